@@ -0,0 +1,58 @@
+package com.example.emulator.config;
+
+import com.example.emulator.dto.OrderResponse;
+import com.example.emulator.service.BenchmarkFixtures;
+import com.example.emulator.service.CpnConfigurationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация готового OrderResponse мапперами из {@link JacksonConfig}:
+ * с отступами (основной бин) и компактным. Граф ответа читается из тела,
+ * собранного сервисом заказов, поэтому совпадает с тем, что эмулятор отдает клиентам.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"1", "100", "1000"})
+    public int limit;
+
+    @Param({"PRETTY", "COMPACT"})
+    public JsonFormat format;
+
+    private ObjectMapper objectMapper;
+    private OrderResponse response;
+
+    @Setup
+    public void setUp() throws Exception {
+        EmulatorConfig config = BenchmarkFixtures.config(BenchmarkFixtures.writeCatalog(100));
+        CpnConfigurationService catalogService = BenchmarkFixtures.catalogService(config);
+        catalogService.loadConfiguration();
+        objectMapper = format == JsonFormat.COMPACT ? BenchmarkFixtures.compactMapper() : BenchmarkFixtures.prettyMapper();
+        byte[] body = BenchmarkFixtures.orderResponseBody(
+                BenchmarkFixtures.orderResponseService(config, catalogService), format, limit);
+        response = objectMapper.readValue(body, OrderResponse.class);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
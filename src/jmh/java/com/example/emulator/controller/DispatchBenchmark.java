@@ -0,0 +1,120 @@
+package com.example.emulator.controller;
+
+import com.example.emulator.config.EmulatorConfig;
+import com.example.emulator.config.JsonFormatResolver;
+import com.example.emulator.service.BenchmarkFixtures;
+import com.example.emulator.service.CpnConfigurationService;
+import com.example.emulator.service.DelayScheduler;
+import com.example.emulator.service.DelayService;
+import com.example.emulator.service.EmulatorService;
+import com.example.emulator.service.OrderResponseCache;
+import com.example.emulator.service.OrderResponseService;
+import com.example.emulator.service.RandomSource;
+import com.example.emulator.service.ResponseMetrics;
+import com.example.emulator.service.TimestampService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.web.reactive.config.EnableWebFlux;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Диспетчеризация запроса в WebFlux без сети и задержки:
+ * аннотированный {@link EmulatorController} против функциональных маршрутов {@link EmulatorRouter}.
+ * Оба варианта собираются в одинаковом контексте с @EnableWebFlux и стандартными кодеками,
+ * запрос проходит полный HttpHandler (DispatcherHandler, кодеки, запись тела в MockServerHttpResponse).
+ * - orders: POST /cpn/orders с декодированием OrderRequest и заголовком RqUID;
+ * - emulate: GET /emulate с кодированием EmulatorResponse.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DispatchBenchmark {
+    private static final String ORDER_REQUEST = "{\"filters\":{\"limit\":1,\"order_id_from\":1}}";
+
+    @Param({"ANNOTATED", "FUNCTIONAL"})
+    public EmulatorConfig.Routing routing;
+
+    @Param({"orders", "emulate"})
+    public String endpoint;
+
+    private AnnotationConfigApplicationContext context;
+    private HttpHandler httpHandler;
+
+    @Configuration
+    @EnableWebFlux
+    static class WebFluxBenchmarkConfig {
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        EmulatorConfig config = BenchmarkFixtures.config(BenchmarkFixtures.writeCatalog(100));
+        CpnConfigurationService catalogService = BenchmarkFixtures.catalogService(config);
+        catalogService.loadConfiguration();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RandomSource randomSource = new RandomSource(config);
+        ResponseMetrics responseMetrics = new ResponseMetrics(registry);
+        DelayService delayService = new DelayService(config, randomSource,
+                new DelayScheduler(config, registry), responseMetrics);
+        EmulatorService emulatorService = new EmulatorService(new TimestampService(config), delayService,
+                responseMetrics);
+        OrderResponseService orderResponseService = BenchmarkFixtures.orderResponseService(config, catalogService);
+        OrderResponseCache orderResponseCache = new OrderResponseCache(orderResponseService, delayService,
+                responseMetrics, randomSource, config, registry);
+        JsonFormatResolver jsonFormatResolver = new JsonFormatResolver(config);
+
+        context = new AnnotationConfigApplicationContext();
+        context.register(WebFluxBenchmarkConfig.class);
+        if (routing == EmulatorConfig.Routing.FUNCTIONAL) {
+            EmulatorHandler handler = new EmulatorHandler(emulatorService, catalogService, orderResponseService,
+                    orderResponseCache, jsonFormatResolver);
+            context.registerBean("emulatorRoutes", RouterFunction.class, () -> EmulatorRouter.routes(handler));
+        } else {
+            context.registerBean(EmulatorController.class, () -> new EmulatorController(emulatorService,
+                    catalogService, orderResponseService, orderResponseCache, config, jsonFormatResolver));
+        }
+        context.refresh();
+        httpHandler = WebHttpHandlerBuilder.applicationContext(context).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String dispatch() {
+        MockServerHttpRequest request = endpoint.equals("orders")
+                ? MockServerHttpRequest.post("/api/back/v1/cpn/orders")
+                        .header(EmulatorHandler.REQUEST_ID_HEADER, "bench")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(ORDER_REQUEST)
+                : MockServerHttpRequest.get("/api/back/v1/emulate").build();
+        MockServerHttpResponse response = new MockServerHttpResponse();
+        httpHandler.handle(request, response).block();
+        return response.getBodyAsString().block();
+    }
+}
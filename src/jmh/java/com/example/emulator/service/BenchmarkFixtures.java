@@ -0,0 +1,106 @@
+package com.example.emulator.service;
+
+import com.example.emulator.config.EmulatorConfig;
+import com.example.emulator.config.JacksonConfig;
+import com.example.emulator.config.JsonFormat;
+import com.example.emulator.dto.Cpn;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сборка сервисов эмулятора для бенчмарков без контекста Spring.
+ * Каталог генерируется во временный файл заданного размера.
+ */
+public final class BenchmarkFixtures {
+    private static final JacksonConfig JACKSON_CONFIG = new JacksonConfig();
+
+    private BenchmarkFixtures() {
+    }
+
+    public static ObjectMapper prettyMapper() {
+        return JACKSON_CONFIG.objectMapper();
+    }
+
+    public static ObjectMapper compactMapper() {
+        return JACKSON_CONFIG.compactObjectMapper();
+    }
+
+    /**
+     * Настройки эмулятора с нулевой задержкой и каталогом из указанного файла.
+     */
+    public static EmulatorConfig config(Path catalogFile) {
+        EmulatorConfig config = new EmulatorConfig();
+        config.getCatalog().setLocation(catalogFile.toUri().toString());
+        config.getRandom().setSeed(42L);
+        config.getScheduler().setType(EmulatorConfig.Scheduler.SchedulerType.REACTOR);
+        return config;
+    }
+
+    /**
+     * Записывает каталог из size купонов с 1-3 офферами во временный файл.
+     */
+    public static Path writeCatalog(int size) throws IOException {
+        Path file = Files.createTempFile("cpn-bench-" + size + "-", ".json");
+        file.toFile().deleteOnExit();
+        List<Cpn> cpns = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            List<Cpn.CpnOffer> offers = new ArrayList<>();
+            for (int o = 0; o <= i % 3; o++) {
+                offers.add(new Cpn.CpnOffer(900_000L + i * 3L + o, Long.toString(800_000L + i * 3L + o), 10 + o));
+            }
+            cpns.add(new Cpn(1000L + i, Long.toString(500_000L + i),
+                    "Покажите промокод на кассе", "Скидка не суммируется с другими акциями",
+                    77L + i % 500, "crm" + i % 500, offers));
+        }
+        try (OutputStream out = Files.newOutputStream(file)) {
+            compactMapper().writeValue(out, cpns);
+        }
+        return file;
+    }
+
+    public static CpnConfigurationService catalogService(EmulatorConfig config) {
+        return new CpnConfigurationService(prettyMapper(), new DefaultResourceLoader(), config,
+                new SimpleMeterRegistry());
+    }
+
+    /**
+     * Собирает сервис заказов поверх загруженного каталога.
+     */
+    public static OrderResponseService orderResponseService(EmulatorConfig config,
+                                                            CpnConfigurationService catalogService) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RandomSource randomSource = new RandomSource(config);
+        ResponseMetrics responseMetrics = new ResponseMetrics(registry);
+        DelayService delayService = new DelayService(config, randomSource,
+                new DelayScheduler(config, registry), responseMetrics);
+        return new OrderResponseService(catalogService, new TimestampService(config), randomSource, delayService,
+                responseMetrics, new LogSampler(config), new OrderStore(config, registry), config,
+                prettyMapper(), compactMapper());
+    }
+
+    /**
+     * Тело ответа на limit заказов начиная с order_id 1 в указанном формате.
+     */
+    public static byte[] orderResponseBody(OrderResponseService service, JsonFormat format, int limit) {
+        DataBuffer buffer = service.writeOrderResponse(format, 1L, null, limit,
+                DefaultDataBufferFactory.sharedInstance);
+        try {
+            byte[] body = new byte[buffer.readableByteCount()];
+            buffer.read(body);
+            return body;
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.emulator.service;
+
+import com.example.emulator.config.EmulatorConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полная загрузка каталога CPN через CpnConfigurationService:
+ * чтение файла, потоковый разбор, валидация и построение индексов.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogLoadBenchmark {
+
+    @Param({"1000", "100000"})
+    public int catalogSize;
+
+    private CpnConfigurationService service;
+
+    @Setup
+    public void setUp() throws Exception {
+        EmulatorConfig config = BenchmarkFixtures.config(BenchmarkFixtures.writeCatalog(catalogSize));
+        service = BenchmarkFixtures.catalogService(config);
+    }
+
+    @Benchmark
+    public CpnCatalog load() {
+        service.loadConfiguration();
+        return service.getCatalog();
+    }
+}
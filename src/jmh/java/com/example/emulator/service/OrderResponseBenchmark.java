@@ -0,0 +1,62 @@
+package com.example.emulator.service;
+
+import com.example.emulator.config.EmulatorConfig;
+import com.example.emulator.config.JsonFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Генерация ответа на запрос заказов в зависимости от limit и размера каталога:
+ * сборка тела из байтовых шаблонов (путь generateOrderResponseBody).
+ * Задержка не измеряется.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderResponseBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    public int limit;
+
+    @Param({"100", "10000"})
+    public int catalogSize;
+
+    @Param({"PRETTY", "COMPACT"})
+    public JsonFormat format;
+
+    private OrderResponseService service;
+    private final DefaultDataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+
+    @Setup
+    public void setUp() throws Exception {
+        EmulatorConfig config = BenchmarkFixtures.config(BenchmarkFixtures.writeCatalog(catalogSize));
+        CpnConfigurationService catalogService = BenchmarkFixtures.catalogService(config);
+        catalogService.loadConfiguration();
+        service = BenchmarkFixtures.orderResponseService(config, catalogService);
+    }
+
+    @Benchmark
+    public int bodyResponse() {
+        DataBuffer buffer = service.writeOrderResponse(format, 1L, null, limit, bufferFactory);
+        int size = buffer.readableByteCount();
+        DataBufferUtils.release(buffer);
+        return size;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.emulator.service;
+
+import com.example.emulator.config.EmulatorConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Форматирование отметок времени: прежний formatDateTime (DateTimeFormatter на каждый вызов)
+ * против кэшированных строк {@link TimestampService}. Запускается в 4 потока,
+ * чтобы было видно влияние общего кэша.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class TimestampBenchmark {
+    private static final ZoneOffset OFFSET = ZoneOffset.ofHours(3);
+
+    private final TimestampService timestampService = new TimestampService(new EmulatorConfig());
+
+    @Benchmark
+    public String formatDateTime() {
+        return TimestampService.DATE_TIME_FORMATTER.format(LocalDateTime.now().atOffset(OFFSET));
+    }
+
+    @Benchmark
+    public String cachedNow() {
+        return timestampService.now();
+    }
+}
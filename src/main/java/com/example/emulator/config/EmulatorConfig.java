@@ -2,6 +2,14 @@ package com.example.emulator.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
 /**
  * Конфигурация эмулятора, загружаемая из application.yml
  * 
@@ -10,6 +18,68 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  *   delay:
  *     min: 100  # минимальная задержка в мс
  *     max: 500  # максимальная задержка в мс
+ *     distribution: uniform      # uniform | normal | log-normal | pareto | exponential | empirical
+ *     p50: 150                   # целевая медиана в мс
+ *     p99: 450                   # целевой 99-й перцентиль в мс
+ *     per-order: 0.0             # дополнительная задержка на заказ в мс
+ *     header: true               # возвращать задержку в заголовке X-Emulated-Delay
+ *     endpoints:                 # профили отдельных эндпоинтов
+ *       orders:
+ *         distribution: log-normal
+ *         p50: 120
+ *         p99: 900
+ *   catalog:
+ *     location: classpath:cpn-list.json  # источник каталога CPN
+ *     watch: false                       # перечитывать файл при изменении
+ *     watch-interval: 5s                 # период проверки изменения файла
+ *   orders:
+ *     streaming-threshold: 1000  # с какого количества заказов ответ отдается потоком
+ *     chunk-size: 65536          # целевой размер буфера потокового ответа в байтах
+ *     max-limit: 1000000         # максимальное количество заказов в одном ответе
+ *     stateful: false            # запоминать выданные заказы (повторные запросы возвращают те же данные)
+ *     store-capacity: 100000     # максимальное количество запомненных заказов
+ *   time:
+ *     offset: "+03:00"           # смещение отметок времени в ответах
+ *   scheduler:
+ *     type: wheel                # wheel (HashedWheelTimer) | reactor (Schedulers.parallel)
+ *     tick-duration: 1ms         # разрешение колеса таймеров
+ *     ticks-per-wheel: 1024      # количество ячеек колеса
+ *   random:
+ *     seed:                      # фиксированный seed для воспроизводимых прогонов (пусто - случайный)
+ *     uuid-version: v4           # версия reserve_key: v4 | v7
+ *   json:
+ *     format: pretty             # формат ответов по умолчанию: pretty | compact
+ *     allow-client-override: true  # разрешить выбор формата параметром ?format= или Accept
+ *     endpoints:                 # формат для отдельных эндпоинтов
+ *       "[/api/back/v1/emulate]": compact
+ *   scenarios:
+ *     location: file:scenarios.json  # правила сценариев (пусто - сценарии отключены)
+ *     watch: false                   # перечитывать файл при изменении
+ *     watch-interval: 5s             # период проверки изменения файла
+ *   network:
+ *     enabled: false             # эмуляция медленной сети для тела ответа
+ *     paths:                     # пути (точные или с суффиксом /**), к которым применяется профиль
+ *       - /api/back/v1/emulate
+ *       - /api/back/v1/cpn/orders
+ *     ttfb: 0ms                  # задержка первого байта тела после отправки заголовков
+ *     bytes-per-second: 0        # пропускная способность (0 - без ограничения)
+ *     chunk-size: 8192           # размер порции тела в байтах
+ *     jitter: 0.0                # относительный разброс времени отправки порции (0 - 1)
+ *   replay:
+ *     location: file:capture.jsonl   # записанные ответы для воспроизведения (пусто - режим отключен)
+ *     key-header: RqUID              # заголовок запроса, по которому ищется запись
+ *   logging:
+ *     sample-rate: 0.01          # доля запросов, по которым пишется строка лога (0 - 1)
+ *     queue-size: 8192           # емкость очереди асинхронного appender'а
+ *   mocks:
+ *     routes:                    # произвольные эмулируемые эндпоинты по шаблонам
+ *       - name: account
+ *         method: GET
+ *         path: /api/back/v1/accounts/{id}
+ *         template: classpath:mocks/account.json  # или body: '...'
+ *         delay:
+ *           min: 10
+ *           max: 50
  *
  * Класс включает валидацию значений:
  * - min должен быть неотрицательным
@@ -40,13 +110,281 @@ public class EmulatorConfig {
         }
     }
 
+    /**
+     * Настройки каталога CPN (источник и горячая перезагрузка).
+     */
+    private Catalog catalog = new Catalog();
+
+    public Catalog getCatalog() {
+        return catalog;
+    }
+
+    public void setCatalog(Catalog catalog) {
+        if (catalog != null) {
+            this.catalog = catalog;
+        } else {
+            throw new IllegalArgumentException("Некорректные настройки каталога CPN");
+        }
+    }
+
+    /**
+     * Настройки генерации ответов на запросы заказов.
+     */
+    private Orders orders = new Orders();
+
+    public Orders getOrders() {
+        return orders;
+    }
+
+    public void setOrders(Orders orders) {
+        if (orders != null) {
+            this.orders = orders;
+        } else {
+            throw new IllegalArgumentException("Некорректные настройки генерации заказов");
+        }
+    }
+
+    /**
+     * Настройки формата JSON-ответов.
+     */
+    private Json json = new Json();
+
+    public Json getJson() {
+        return json;
+    }
+
+    public void setJson(Json json) {
+        if (json != null) {
+            this.json = json;
+        } else {
+            throw new IllegalArgumentException("Некорректные настройки формата JSON");
+        }
+    }
+
+    /**
+     * Настройки отметок времени в ответах.
+     */
+    private Time time = new Time();
+
+    public Time getTime() {
+        return time;
+    }
+
+    public void setTime(Time time) {
+        if (time != null) {
+            this.time = time;
+        } else {
+            throw new IllegalArgumentException("Некорректные настройки времени");
+        }
+    }
+
+    /**
+     * Настройки планировщика эмулируемых задержек.
+     */
+    private Scheduler scheduler = new Scheduler();
+
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    public void setScheduler(Scheduler scheduler) {
+        if (scheduler != null) {
+            this.scheduler = scheduler;
+        } else {
+            throw new IllegalArgumentException("Некорректные настройки планировщика задержек");
+        }
+    }
+
+    /**
+     * Настройки генерации случайных значений (задержки, client_id, reserve_key).
+     */
+    private Random random = new Random();
+
+    public Random getRandom() {
+        return random;
+    }
+
+    public void setRandom(Random random) {
+        if (random != null) {
+            this.random = random;
+        } else {
+            throw new IllegalArgumentException("Некорректные настройки генерации случайных значений");
+        }
+    }
+
+    /**
+     * Настройки логирования запросов.
+     */
+    private Logging logging = new Logging();
+
+    public Logging getLogging() {
+        return logging;
+    }
+
+    public void setLogging(Logging logging) {
+        if (logging != null) {
+            this.logging = logging;
+        } else {
+            throw new IllegalArgumentException("Некорректные настройки логирования");
+        }
+    }
+
+    /**
+     * Настройки сценариев поведения (ошибки, обрывы, зависания, медленные ответы).
+     */
+    private Scenarios scenarios = new Scenarios();
+
+    public Scenarios getScenarios() {
+        return scenarios;
+    }
+
+    public void setScenarios(Scenarios scenarios) {
+        if (scenarios != null) {
+            this.scenarios = scenarios;
+        } else {
+            throw new IllegalArgumentException("Некорректные настройки сценариев");
+        }
+    }
+
+    /**
+     * Настройки эмуляции медленной сети (время до первого байта и пропускная способность).
+     */
+    private Network network = new Network();
+
+    public Network getNetwork() {
+        return network;
+    }
+
+    public void setNetwork(Network network) {
+        if (network != null) {
+            this.network = network;
+        } else {
+            throw new IllegalArgumentException("Некорректные настройки эмуляции сети");
+        }
+    }
+
+    /**
+     * Настройки воспроизведения записанных ответов.
+     */
+    private Replay replay = new Replay();
+
+    public Replay getReplay() {
+        return replay;
+    }
+
+    public void setReplay(Replay replay) {
+        if (replay != null) {
+            this.replay = replay;
+        } else {
+            throw new IllegalArgumentException("Некорректные настройки воспроизведения");
+        }
+    }
+
+    /**
+     * Настройки транспорта HTTP-сервера Netty.
+     */
+    private Server server = new Server();
+
+    public Server getServer() {
+        return server;
+    }
+
+    public void setServer(Server server) {
+        if (server != null) {
+            this.server = server;
+        } else {
+            throw new IllegalArgumentException("Некорректные настройки HTTP-сервера");
+        }
+    }
+
+    /**
+     * Способ диспетчеризации эмулируемых эндпоинтов: аннотированный контроллер или функциональные маршруты.
+     */
+    private Routing routing = Routing.ANNOTATED;
+
+    public Routing getRouting() {
+        return routing;
+    }
+
+    public void setRouting(Routing routing) {
+        if (routing != null) {
+            this.routing = routing;
+        } else {
+            throw new IllegalArgumentException("Способ диспетчеризации не может быть пустым");
+        }
+    }
+
+    /**
+     * ANNOTATED - EmulatorController (@RestController);
+     * FUNCTIONAL - RouterFunction и EmulatorHandler без разрешения аргументов аннотированных методов.
+     */
+    public enum Routing {
+        ANNOTATED, FUNCTIONAL
+    }
+
+    /**
+     * Настройки кэша ответов на запросы заказов.
+     */
+    private Cache cache = new Cache();
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public void setCache(Cache cache) {
+        if (cache != null) {
+            this.cache = cache;
+        } else {
+            throw new IllegalArgumentException("Некорректные настройки кэша ответов");
+        }
+    }
+
+    /**
+     * Маршруты эмулируемых эндпоинтов, отвечающих по шаблонам.
+     */
+    private Mocks mocks = new Mocks();
+
+    public Mocks getMocks() {
+        return mocks;
+    }
+
+    public void setMocks(Mocks mocks) {
+        if (mocks != null) {
+            this.mocks = mocks;
+        } else {
+            throw new IllegalArgumentException("Некорректные настройки эмулируемых маршрутов");
+        }
+    }
+
     /**
      * Внутренний класс для настроек задержки.
-     * Хранит минимальное и максимальное значения задержки.
+     * Хранит минимальное и максимальное значения задержки и модель распределения.
+     *
+     * distribution - закон распределения задержки:
+     * - uniform: равномерно в [min, max] (по умолчанию);
+     * - normal, log-normal, pareto: параметры подбираются по p50 и хвостовому перцентилю
+     *   (p999, если задан, иначе p99);
+     * - exponential: среднее подбирается по p50;
+     * - empirical: кусочно-линейная интерполяция между перцентилями
+     *   (min, p50, p99, p999, percentiles, max).
+     * Для всех распределений кроме uniform значение ограничивается [min, max],
+     * max = 0 означает ограничение только общим пределом 10 секунд.
+     *
+     * perOrder - дополнительная задержка в мс на каждый заказ в ответе, добавляется после ограничения.
+     * endpoints - профили задержки отдельных эндпоинтов (emulate, orders, ...), полностью заменяют общий.
+     * header - возвращать выбранную задержку в заголовке X-Emulated-Delay (учитывается только в общем профиле).
      */
     public static class Delay {
         private int min;
         private int max;
+        private DelayDistribution distribution = DelayDistribution.UNIFORM;
+        private Integer p50;
+        private Integer p99;
+        private Integer p999;
+        private Map<Double, Integer> percentiles = new LinkedHashMap<>();
+        private double perOrder;
+        private Map<String, Delay> endpoints = new LinkedHashMap<>();
+        private boolean header = true;
 
         public int getMin() {
             return min;
@@ -71,5 +409,981 @@ public class EmulatorConfig {
                 throw new IllegalArgumentException("Максимальная задержка не может превышать 10 секунд");
             }
         }
+
+        public DelayDistribution getDistribution() {
+            return distribution;
+        }
+
+        public void setDistribution(DelayDistribution distribution) {
+            if (distribution != null) {
+                this.distribution = distribution;
+            } else {
+                throw new IllegalArgumentException("Распределение задержки не может быть пустым");
+            }
+        }
+
+        public Integer getP50() {
+            return p50;
+        }
+
+        public void setP50(Integer p50) {
+            this.p50 = requirePercentileValue(p50);
+        }
+
+        public Integer getP99() {
+            return p99;
+        }
+
+        public void setP99(Integer p99) {
+            this.p99 = requirePercentileValue(p99);
+        }
+
+        public Integer getP999() {
+            return p999;
+        }
+
+        public void setP999(Integer p999) {
+            this.p999 = requirePercentileValue(p999);
+        }
+
+        public Map<Double, Integer> getPercentiles() {
+            return percentiles;
+        }
+
+        public void setPercentiles(Map<Double, Integer> percentiles) {
+            this.percentiles = percentiles != null ? percentiles : new LinkedHashMap<>();
+        }
+
+        public double getPerOrder() {
+            return perOrder;
+        }
+
+        public void setPerOrder(double perOrder) {
+            if (perOrder >= 0) {
+                this.perOrder = perOrder;
+            } else {
+                throw new IllegalArgumentException("Задержка на заказ не может быть отрицательной");
+            }
+        }
+
+        public Map<String, Delay> getEndpoints() {
+            return endpoints;
+        }
+
+        public void setEndpoints(Map<String, Delay> endpoints) {
+            this.endpoints = endpoints != null ? endpoints : new LinkedHashMap<>();
+        }
+
+        public boolean isHeader() {
+            return header;
+        }
+
+        public void setHeader(boolean header) {
+            this.header = header;
+        }
+
+        private static Integer requirePercentileValue(Integer value) {
+            if (value == null || (value >= 0 && value <= 10000)) {
+                return value;
+            }
+            throw new IllegalArgumentException("Перцентиль задержки должен быть в диапазоне 0 - 10000 мс");
+        }
+
+        /**
+         * Закон распределения задержки.
+         */
+        public enum DelayDistribution {
+            UNIFORM, NORMAL, LOG_NORMAL, PARETO, EXPONENTIAL, EMPIRICAL
+        }
+    }
+
+    /**
+     * Внутренний класс для настроек каталога CPN.
+     * location - путь в формате Spring Resource (classpath:, file:).
+     * watch - включает периодическую проверку времени изменения файла и перезагрузку.
+     */
+    public static class Catalog {
+        private String location = "classpath:cpn-list.json";
+        private boolean watch;
+        private Duration watchInterval = Duration.ofSeconds(5);
+
+        public String getLocation() {
+            return location;
+        }
+
+        public void setLocation(String location) {
+            if (location != null && !location.isBlank()) {
+                this.location = location;
+            } else {
+                throw new IllegalArgumentException("Путь к каталогу CPN не может быть пустым");
+            }
+        }
+
+        public boolean isWatch() {
+            return watch;
+        }
+
+        public void setWatch(boolean watch) {
+            this.watch = watch;
+        }
+
+        public Duration getWatchInterval() {
+            return watchInterval;
+        }
+
+        public void setWatchInterval(Duration watchInterval) {
+            if (watchInterval != null && !watchInterval.isNegative() && !watchInterval.isZero()) {
+                this.watchInterval = watchInterval;
+            } else {
+                throw new IllegalArgumentException("Период проверки каталога CPN должен быть положительным");
+            }
+        }
+    }
+
+    /**
+     * Внутренний класс для настроек генерации заказов.
+     * Ответы с количеством заказов больше streamingThreshold пишутся потоком буферов
+     * размером около chunkSize байт, поэтому расход памяти не зависит от limit.
+     * Запросы с количеством заказов больше maxLimit отклоняются.
+     * stateful - выданные заказы запоминаются в хранилище на storeCapacity заказов,
+     *            при заполнении вытесняются давно не запрашивавшиеся.
+     * Ответы с количеством заказов больше parallelThreshold (0 - отключено) генерируются вне event loop
+     * частями по parallelChunkOrders заказов на пуле из parallelThreads потоков.
+     */
+    public static class Orders {
+        private int streamingThreshold = 1000;
+        private int chunkSize = 64 * 1024;
+        private int maxLimit = 1_000_000;
+        private boolean stateful;
+        private int storeCapacity = 100_000;
+        private int parallelThreshold = 20_000;
+        private int parallelChunkOrders = 2000;
+        private int parallelThreads = Runtime.getRuntime().availableProcessors();
+
+        public int getStreamingThreshold() {
+            return streamingThreshold;
+        }
+
+        public void setStreamingThreshold(int streamingThreshold) {
+            if (streamingThreshold >= 0) {
+                this.streamingThreshold = streamingThreshold;
+            } else {
+                throw new IllegalArgumentException("Порог потоковой генерации не может быть отрицательным");
+            }
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            if (chunkSize >= 1024) {
+                this.chunkSize = chunkSize;
+            } else {
+                throw new IllegalArgumentException("Размер буфера потокового ответа не может быть меньше 1024 байт");
+            }
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            if (maxLimit > 0) {
+                this.maxLimit = maxLimit;
+            } else {
+                throw new IllegalArgumentException("Максимальное количество заказов должно быть положительным");
+            }
+        }
+
+        public boolean isStateful() {
+            return stateful;
+        }
+
+        public void setStateful(boolean stateful) {
+            this.stateful = stateful;
+        }
+
+        public int getStoreCapacity() {
+            return storeCapacity;
+        }
+
+        public void setStoreCapacity(int storeCapacity) {
+            if (storeCapacity > 0) {
+                this.storeCapacity = storeCapacity;
+            } else {
+                throw new IllegalArgumentException("Емкость хранилища заказов должна быть положительной");
+            }
+        }
+
+        public int getParallelThreshold() {
+            return parallelThreshold;
+        }
+
+        public void setParallelThreshold(int parallelThreshold) {
+            if (parallelThreshold >= 0) {
+                this.parallelThreshold = parallelThreshold;
+            } else {
+                throw new IllegalArgumentException("Порог параллельной генерации не может быть отрицательным");
+            }
+        }
+
+        public int getParallelChunkOrders() {
+            return parallelChunkOrders;
+        }
+
+        public void setParallelChunkOrders(int parallelChunkOrders) {
+            if (parallelChunkOrders > 0) {
+                this.parallelChunkOrders = parallelChunkOrders;
+            } else {
+                throw new IllegalArgumentException("Количество заказов в части ответа должно быть больше 0");
+            }
+        }
+
+        public int getParallelThreads() {
+            return parallelThreads;
+        }
+
+        public void setParallelThreads(int parallelThreads) {
+            if (parallelThreads > 0) {
+                this.parallelThreads = parallelThreads;
+            } else {
+                throw new IllegalArgumentException("Количество потоков генерации должно быть больше 0");
+            }
+        }
+    }
+
+    /**
+     * Внутренний класс для настроек формата JSON-ответов.
+     * Формат выбирается в порядке приоритета: подсказка клиента (если разрешена),
+     * настройка эндпоинта, глобальный формат.
+     * Ключи endpoints - точный путь или префикс, оканчивающийся на "/**".
+     */
+    public static class Json {
+        private JsonFormat format = JsonFormat.PRETTY;
+        private boolean allowClientOverride = true;
+        private Map<String, JsonFormat> endpoints = new LinkedHashMap<>();
+
+        public JsonFormat getFormat() {
+            return format;
+        }
+
+        public void setFormat(JsonFormat format) {
+            if (format != null) {
+                this.format = format;
+            } else {
+                throw new IllegalArgumentException("Формат JSON не может быть пустым");
+            }
+        }
+
+        public boolean isAllowClientOverride() {
+            return allowClientOverride;
+        }
+
+        public void setAllowClientOverride(boolean allowClientOverride) {
+            this.allowClientOverride = allowClientOverride;
+        }
+
+        public Map<String, JsonFormat> getEndpoints() {
+            return endpoints;
+        }
+
+        public void setEndpoints(Map<String, JsonFormat> endpoints) {
+            this.endpoints = endpoints != null ? endpoints : new LinkedHashMap<>();
+        }
+    }
+
+    /**
+     * Внутренний класс для настроек отметок времени.
+     * offset - смещение от UTC, с которым форматируется время в ответах.
+     */
+    public static class Time {
+        private ZoneOffset offset = ZoneOffset.ofHours(3);
+
+        public ZoneOffset getOffset() {
+            return offset;
+        }
+
+        public void setOffset(ZoneOffset offset) {
+            if (offset != null) {
+                this.offset = offset;
+            } else {
+                throw new IllegalArgumentException("Смещение времени не может быть пустым");
+            }
+        }
+    }
+
+    /**
+     * Внутренний класс для настроек генерации случайных значений.
+     * seed - если задан, все значения берутся из одной детерминированной последовательности;
+     * uuidVersion - версия UUID для reserve_key;
+     * deterministic - значения заказов (купон ответа, client_id, reserve_key) вычисляются
+     *                 хэшем от seed (по умолчанию 0) и ключа, а не берутся из последовательности;
+     * key - ключ детерминированных значений: ORDER_ID - order_id и нормализованный запрос,
+     *       RQ_UID - дополнительно заголовок RqUID.
+     */
+    public static class Random {
+        private Long seed;
+        private UuidVersion uuidVersion = UuidVersion.V4;
+        private boolean deterministic;
+        private DeterministicKey key = DeterministicKey.ORDER_ID;
+
+        public Long getSeed() {
+            return seed;
+        }
+
+        public void setSeed(Long seed) {
+            this.seed = seed;
+        }
+
+        public UuidVersion getUuidVersion() {
+            return uuidVersion;
+        }
+
+        public void setUuidVersion(UuidVersion uuidVersion) {
+            if (uuidVersion != null) {
+                this.uuidVersion = uuidVersion;
+            } else {
+                throw new IllegalArgumentException("Версия UUID не может быть пустой");
+            }
+        }
+
+        public boolean isDeterministic() {
+            return deterministic;
+        }
+
+        public void setDeterministic(boolean deterministic) {
+            this.deterministic = deterministic;
+        }
+
+        public DeterministicKey getKey() {
+            return key;
+        }
+
+        public void setKey(DeterministicKey key) {
+            if (key != null) {
+                this.key = key;
+            } else {
+                throw new IllegalArgumentException("Ключ детерминированной генерации не может быть пустым");
+            }
+        }
+
+        /**
+         * V4 - полностью случайный UUID, V7 - с миллисекундной отметкой времени в старших битах.
+         */
+        public enum UuidVersion {
+            V4, V7
+        }
+
+        /**
+         * ORDER_ID - значения заказа зависят только от seed и order_id, купон ответа - от запроса;
+         * RQ_UID - от seed, RqUID и order_id (без RqUID - как ORDER_ID).
+         */
+        public enum DeterministicKey {
+            ORDER_ID, RQ_UID
+        }
+    }
+
+    /**
+     * Внутренний класс для настроек планировщика задержек.
+     * type - wheel: колесо таймеров с фиксированной стоимостью постановки и отмены;
+     *        reactor: стандартный Schedulers.parallel() (ScheduledThreadPoolExecutor).
+     * tickDuration - разрешение колеса, задержка срабатывает не позже чем через один тик после срока.
+     * ticksPerWheel - количество ячеек колеса (округляется до степени двойки).
+     */
+    public static class Scheduler {
+        private SchedulerType type = SchedulerType.WHEEL;
+        private Duration tickDuration = Duration.ofMillis(1);
+        private int ticksPerWheel = 1024;
+
+        public SchedulerType getType() {
+            return type;
+        }
+
+        public void setType(SchedulerType type) {
+            if (type != null) {
+                this.type = type;
+            } else {
+                throw new IllegalArgumentException("Тип планировщика задержек не может быть пустым");
+            }
+        }
+
+        public Duration getTickDuration() {
+            return tickDuration;
+        }
+
+        public void setTickDuration(Duration tickDuration) {
+            if (tickDuration != null && tickDuration.toMillis() >= 1) {
+                this.tickDuration = tickDuration;
+            } else {
+                throw new IllegalArgumentException("Тик планировщика задержек должен быть не меньше 1 мс");
+            }
+        }
+
+        public int getTicksPerWheel() {
+            return ticksPerWheel;
+        }
+
+        public void setTicksPerWheel(int ticksPerWheel) {
+            if (ticksPerWheel > 0 && ticksPerWheel <= 1 << 20) {
+                this.ticksPerWheel = ticksPerWheel;
+            } else {
+                throw new IllegalArgumentException("Количество ячеек колеса должно быть в диапазоне 1 - 1048576");
+            }
+        }
+
+        public enum SchedulerType {
+            WHEEL, REACTOR
+        }
+    }
+
+    /**
+     * Внутренний класс для настроек логирования.
+     * sampleRate - доля запросов (по хэшу RqUID), для которых пишутся строки лога горячего пути.
+     * queueSize - емкость очереди асинхронного appender'а из logback-spring.xml; при заполнении
+     *             события отбрасываются, а не блокируют поток event loop.
+     */
+    public static class Logging {
+        private double sampleRate = 0.01;
+        private int queueSize = 8192;
+
+        public double getSampleRate() {
+            return sampleRate;
+        }
+
+        public void setSampleRate(double sampleRate) {
+            if (sampleRate >= 0 && sampleRate <= 1) {
+                this.sampleRate = sampleRate;
+            } else {
+                throw new IllegalArgumentException("Доля логируемых запросов должна быть в диапазоне 0 - 1");
+            }
+        }
+
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        public void setQueueSize(int queueSize) {
+            if (queueSize > 0) {
+                this.queueSize = queueSize;
+            } else {
+                throw new IllegalArgumentException("Емкость очереди логирования должна быть больше 0");
+            }
+        }
+    }
+
+    /**
+     * Внутренний класс для настроек сценариев.
+     * location - путь к JSON-файлу правил в формате Spring Resource (classpath:, file:);
+     *            если не задан, сценарии отключены.
+     * watch - включает периодическую проверку времени изменения файла и перезагрузку.
+     */
+    public static class Scenarios {
+        private String location;
+        private boolean watch;
+        private Duration watchInterval = Duration.ofSeconds(5);
+
+        public String getLocation() {
+            return location;
+        }
+
+        public void setLocation(String location) {
+            this.location = location != null && !location.isBlank() ? location : null;
+        }
+
+        public boolean isWatch() {
+            return watch;
+        }
+
+        public void setWatch(boolean watch) {
+            this.watch = watch;
+        }
+
+        public Duration getWatchInterval() {
+            return watchInterval;
+        }
+
+        public void setWatchInterval(Duration watchInterval) {
+            if (watchInterval != null && !watchInterval.isNegative() && !watchInterval.isZero()) {
+                this.watchInterval = watchInterval;
+            } else {
+                throw new IllegalArgumentException("Период проверки файла сценариев должен быть положительным");
+            }
+        }
+    }
+
+    /**
+     * Внутренний класс для настроек эмуляции сети.
+     * Профиль применяется к телу ответа после обработки запроса и задержки эмулятора:
+     * заголовки уходят сразу, первая порция тела - через ttfb,
+     * остальные - со скоростью bytes-per-second порциями по chunk-size байт.
+     */
+    public static class Network {
+        private boolean enabled;
+        private List<String> paths = List.of("/api/back/v1/emulate", "/api/back/v1/cpn/orders");
+        private Duration ttfb = Duration.ZERO;
+        private long bytesPerSecond;
+        private int chunkSize = 8192;
+        private double jitter;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public List<String> getPaths() {
+            return paths;
+        }
+
+        public void setPaths(List<String> paths) {
+            if (paths != null) {
+                this.paths = List.copyOf(paths);
+            } else {
+                throw new IllegalArgumentException("Список путей эмуляции сети не может быть пустым значением");
+            }
+        }
+
+        public Duration getTtfb() {
+            return ttfb;
+        }
+
+        public void setTtfb(Duration ttfb) {
+            if (ttfb != null && !ttfb.isNegative()) {
+                this.ttfb = ttfb;
+            } else {
+                throw new IllegalArgumentException("Время до первого байта должно быть неотрицательным");
+            }
+        }
+
+        public long getBytesPerSecond() {
+            return bytesPerSecond;
+        }
+
+        public void setBytesPerSecond(long bytesPerSecond) {
+            if (bytesPerSecond >= 0) {
+                this.bytesPerSecond = bytesPerSecond;
+            } else {
+                throw new IllegalArgumentException("Пропускная способность должна быть неотрицательной");
+            }
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            if (chunkSize > 0) {
+                this.chunkSize = chunkSize;
+            } else {
+                throw new IllegalArgumentException("Размер порции тела должен быть больше 0");
+            }
+        }
+
+        public double getJitter() {
+            return jitter;
+        }
+
+        public void setJitter(double jitter) {
+            if (jitter >= 0 && jitter <= 1) {
+                this.jitter = jitter;
+            } else {
+                throw new IllegalArgumentException("Разброс времени отправки должен быть в диапазоне 0 - 1");
+            }
+        }
+    }
+
+    /**
+     * Внутренний класс для настроек воспроизведения записанных ответов.
+     * location - путь к JSONL-файлу записей в формате Spring Resource (только file:);
+     *            если не задан, воспроизведение отключено.
+     * keyHeader - заголовок запроса, значение которого вместе с путем ищется среди записей.
+     */
+    public static class Replay {
+        private String location;
+        private String keyHeader = "RqUID";
+
+        public String getLocation() {
+            return location;
+        }
+
+        public void setLocation(String location) {
+            this.location = location != null && !location.isBlank() ? location : null;
+        }
+
+        public String getKeyHeader() {
+            return keyHeader;
+        }
+
+        public void setKeyHeader(String keyHeader) {
+            if (keyHeader != null && !keyHeader.isBlank()) {
+                this.keyHeader = keyHeader;
+            } else {
+                throw new IllegalArgumentException("Заголовок ключа воспроизведения не может быть пустым");
+            }
+        }
+    }
+
+    /**
+     * Внутренний класс для настроек кэша ответов на запросы заказов.
+     * Кэшируются готовые тела ответов (не потоковые) по нормализованным фильтрам запроса и формату.
+     * maxBytes - суммарный размер тел в кэше; ttl - время жизни ответа;
+     * delayOnHit - применять эмулируемую задержку и к ответам из кэша (и к 304).
+     */
+    public static class Cache {
+        private boolean enabled;
+        private long maxBytes = 64L * 1024 * 1024;
+        private Duration ttl = Duration.ofSeconds(5);
+        private boolean delayOnHit = true;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(long maxBytes) {
+            if (maxBytes > 0) {
+                this.maxBytes = maxBytes;
+            } else {
+                throw new IllegalArgumentException("Размер кэша ответов должен быть больше 0");
+            }
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            if (ttl != null && !ttl.isNegative() && !ttl.isZero()) {
+                this.ttl = ttl;
+            } else {
+                throw new IllegalArgumentException("Время жизни ответа в кэше должно быть положительным");
+            }
+        }
+
+        public boolean isDelayOnHit() {
+            return delayOnHit;
+        }
+
+        public void setDelayOnHit(boolean delayOnHit) {
+            this.delayOnHit = delayOnHit;
+        }
+    }
+
+    /**
+     * Внутренний класс для настроек транспорта HTTP-сервера Reactor Netty.
+     * eventLoopThreads - потоки event loop (не задано - по количеству процессоров);
+     * nativeTransport - epoll на Linux, если доступен; reusePort - SO_REUSEPORT (только epoll),
+     *                   позволяет нескольким процессам эмулятора слушать один порт;
+     * allocator - POOLED (пул буферов, по возможности direct) или UNPOOLED;
+     * backlog - очередь принятых ядром соединений (SO_BACKLOG);
+     * idleTimeout - закрытие соединения keep-alive без запросов (не задано - без ограничения);
+     * maxKeepAliveRequests - запросов на одно соединение (0 - без ограничения);
+     * maxConnections - одновременных соединений, сверх них новые закрываются сразу (0 - без ограничения);
+     * http2 - HTTP/2 без TLS (h2c) на том же порту, что и HTTP/1.1.
+     */
+    public static class Server {
+        private Integer eventLoopThreads;
+        private boolean nativeTransport = true;
+        private boolean reusePort;
+        private Allocator allocator = Allocator.POOLED;
+        private int backlog = 1024;
+        private Duration idleTimeout;
+        private int maxKeepAliveRequests;
+        private int maxConnections;
+        private Http2 http2 = new Http2();
+
+        public Integer getEventLoopThreads() {
+            return eventLoopThreads;
+        }
+
+        public void setEventLoopThreads(Integer eventLoopThreads) {
+            if (eventLoopThreads == null || eventLoopThreads > 0) {
+                this.eventLoopThreads = eventLoopThreads;
+            } else {
+                throw new IllegalArgumentException("Количество потоков event loop должно быть больше 0");
+            }
+        }
+
+        public boolean isNativeTransport() {
+            return nativeTransport;
+        }
+
+        public void setNativeTransport(boolean nativeTransport) {
+            this.nativeTransport = nativeTransport;
+        }
+
+        public boolean isReusePort() {
+            return reusePort;
+        }
+
+        public void setReusePort(boolean reusePort) {
+            this.reusePort = reusePort;
+        }
+
+        public Allocator getAllocator() {
+            return allocator;
+        }
+
+        public void setAllocator(Allocator allocator) {
+            if (allocator != null) {
+                this.allocator = allocator;
+            } else {
+                throw new IllegalArgumentException("Аллокатор буферов не может быть пустым");
+            }
+        }
+
+        public int getBacklog() {
+            return backlog;
+        }
+
+        public void setBacklog(int backlog) {
+            if (backlog > 0) {
+                this.backlog = backlog;
+            } else {
+                throw new IllegalArgumentException("Очередь соединений должна быть больше 0");
+            }
+        }
+
+        public Duration getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(Duration idleTimeout) {
+            if (idleTimeout == null || (!idleTimeout.isNegative() && !idleTimeout.isZero())) {
+                this.idleTimeout = idleTimeout;
+            } else {
+                throw new IllegalArgumentException("Таймаут простоя соединения должен быть положительным");
+            }
+        }
+
+        public int getMaxKeepAliveRequests() {
+            return maxKeepAliveRequests;
+        }
+
+        public void setMaxKeepAliveRequests(int maxKeepAliveRequests) {
+            if (maxKeepAliveRequests >= 0) {
+                this.maxKeepAliveRequests = maxKeepAliveRequests;
+            } else {
+                throw new IllegalArgumentException("Количество запросов на соединение не может быть отрицательным");
+            }
+        }
+
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        public void setMaxConnections(int maxConnections) {
+            if (maxConnections >= 0) {
+                this.maxConnections = maxConnections;
+            } else {
+                throw new IllegalArgumentException("Максимальное количество соединений не может быть отрицательным");
+            }
+        }
+
+        public Http2 getHttp2() {
+            return http2;
+        }
+
+        public void setHttp2(Http2 http2) {
+            if (http2 != null) {
+                this.http2 = http2;
+            } else {
+                throw new IllegalArgumentException("Некорректные настройки HTTP/2");
+            }
+        }
+
+        /**
+         * Настройки h2c: клиент может начать с HTTP/2 сразу (prior knowledge) или перейти
+         * с HTTP/1.1 через Upgrade: h2c; обычные HTTP/1.1 клиенты обслуживаются как раньше.
+         * maxConcurrentStreams - одновременных потоков на соединение (SETTINGS_MAX_CONCURRENT_STREAMS);
+         * initialWindowSize - начальное окно управления потоком для потока (SETTINGS_INITIAL_WINDOW_SIZE).
+         */
+        public static class Http2 {
+            private boolean enabled;
+            private long maxConcurrentStreams = 1000;
+            private int initialWindowSize = 65_535;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public long getMaxConcurrentStreams() {
+                return maxConcurrentStreams;
+            }
+
+            public void setMaxConcurrentStreams(long maxConcurrentStreams) {
+                if (maxConcurrentStreams > 0 && maxConcurrentStreams <= 0xFFFFFFFFL) {
+                    this.maxConcurrentStreams = maxConcurrentStreams;
+                } else {
+                    throw new IllegalArgumentException("Количество потоков HTTP/2 должно быть в диапазоне 1 - 4294967295");
+                }
+            }
+
+            public int getInitialWindowSize() {
+                return initialWindowSize;
+            }
+
+            public void setInitialWindowSize(int initialWindowSize) {
+                if (initialWindowSize >= 0) {
+                    this.initialWindowSize = initialWindowSize;
+                } else {
+                    throw new IllegalArgumentException("Окно управления потоком HTTP/2 не может быть отрицательным");
+                }
+            }
+        }
+
+        /**
+         * POOLED - PooledByteBufAllocator (арены по потокам, direct-буферы при наличии Unsafe);
+         * UNPOOLED - новый буфер на каждое выделение.
+         */
+        public enum Allocator {
+            POOLED, UNPOOLED
+        }
+    }
+
+    /**
+     * Внутренний класс для маршрутов, отвечающих по шаблонам (emulator.mocks.routes).
+     * Каждый маршрут - метод и путь (шаблон пути Spring, например /accounts/{id}), статус, заголовки,
+     * тело из файла template или строки body с подстановками {{...}} и собственная задержка.
+     */
+    public static class Mocks {
+        private List<Route> routes = new ArrayList<>();
+
+        public List<Route> getRoutes() {
+            return routes;
+        }
+
+        public void setRoutes(List<Route> routes) {
+            this.routes = routes != null ? routes : new ArrayList<>();
+        }
+
+        /**
+         * name - имя маршрута: тег endpoint метрик и ключ профиля emulator.delay.endpoints;
+         * method, path - метод и шаблон пути запроса;
+         * status, contentType, headers - статус и заголовки ответа;
+         * template - путь к файлу шаблона в формате Spring Resource; body - шаблон строкой (задается одно из двух);
+         * delay - задержка маршрута (не задана - профиль emulator.delay.endpoints.{name} или общий).
+         */
+        public static class Route {
+            private String name;
+            private String method = "GET";
+            private String path;
+            private int status = 200;
+            private String contentType = "application/json";
+            private Map<String, String> headers = new LinkedHashMap<>();
+            private String template;
+            private String body;
+            private Delay delay;
+
+            public String getName() {
+                return name;
+            }
+
+            public void setName(String name) {
+                if (name != null && !name.isBlank()) {
+                    this.name = name;
+                } else {
+                    throw new IllegalArgumentException("Имя маршрута не может быть пустым");
+                }
+            }
+
+            public String getMethod() {
+                return method;
+            }
+
+            public void setMethod(String method) {
+                if (method != null && !method.isBlank()) {
+                    this.method = method.trim().toUpperCase(Locale.ROOT);
+                } else {
+                    throw new IllegalArgumentException("Метод маршрута не может быть пустым");
+                }
+            }
+
+            public String getPath() {
+                return path;
+            }
+
+            public void setPath(String path) {
+                if (path != null && path.startsWith("/")) {
+                    this.path = path;
+                } else {
+                    throw new IllegalArgumentException("Путь маршрута должен начинаться с /");
+                }
+            }
+
+            public int getStatus() {
+                return status;
+            }
+
+            public void setStatus(int status) {
+                if (status >= 100 && status <= 599) {
+                    this.status = status;
+                } else {
+                    throw new IllegalArgumentException("Статус ответа маршрута должен быть в диапазоне 100 - 599");
+                }
+            }
+
+            public String getContentType() {
+                return contentType;
+            }
+
+            public void setContentType(String contentType) {
+                if (contentType != null && !contentType.isBlank()) {
+                    this.contentType = contentType;
+                } else {
+                    throw new IllegalArgumentException("Тип содержимого маршрута не может быть пустым");
+                }
+            }
+
+            public Map<String, String> getHeaders() {
+                return headers;
+            }
+
+            public void setHeaders(Map<String, String> headers) {
+                this.headers = headers != null ? headers : new LinkedHashMap<>();
+            }
+
+            public String getTemplate() {
+                return template;
+            }
+
+            public void setTemplate(String template) {
+                this.template = template != null && !template.isBlank() ? template : null;
+            }
+
+            public String getBody() {
+                return body;
+            }
+
+            public void setBody(String body) {
+                this.body = body;
+            }
+
+            public Delay getDelay() {
+                return delay;
+            }
+
+            public void setDelay(Delay delay) {
+                if (delay == null || delay.getMin() <= delay.getMax()) {
+                    this.delay = delay;
+                } else {
+                    throw new IllegalArgumentException("Некорректные настройки задержки маршрута");
+                }
+            }
+        }
     }
 }
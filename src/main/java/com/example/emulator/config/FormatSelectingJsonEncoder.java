@@ -0,0 +1,110 @@
+package com.example.emulator.config;
+
+import com.example.emulator.service.ResponseMetrics;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Hints;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageEncoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON-кодировщик WebFlux, выбирающий на каждый запрос один из заранее созданных
+ * кодировщиков Jackson (форматированный или компактный).
+ *
+ * Формат определяется {@link JsonFormatResolver} при подготовке записи ответа и передается
+ * в кодировщик через подсказку {@link #FORMAT_HINT}; сам выбор - это поиск в EnumMap.
+ *
+ * Для эмулируемых эндпоинтов время сериализации одиночного значения и размер результата
+ * записываются в {@link ResponseMetrics}, метрики запроса передаются подсказкой {@link #METERS_HINT}.
+ */
+public class FormatSelectingJsonEncoder implements HttpMessageEncoder<Object> {
+    /** Имя подсказки кодировщика с выбранным форматом */
+    public static final String FORMAT_HINT = FormatSelectingJsonEncoder.class.getName() + ".FORMAT";
+    /** Имя подсказки кодировщика с метриками эндпоинта */
+    public static final String METERS_HINT = FormatSelectingJsonEncoder.class.getName() + ".METERS";
+
+    private final Map<JsonFormat, Jackson2JsonEncoder> encoders;
+    private final Jackson2JsonEncoder defaultEncoder;
+    private final JsonFormatResolver resolver;
+    private final ResponseMetrics responseMetrics;
+
+    public FormatSelectingJsonEncoder(Map<JsonFormat, Jackson2JsonEncoder> encoders, JsonFormatResolver resolver,
+                                      ResponseMetrics responseMetrics) {
+        this.encoders = encoders;
+        this.defaultEncoder = encoders.get(resolver.getDefaultFormat());
+        this.resolver = resolver;
+        this.responseMetrics = responseMetrics;
+    }
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, @Nullable MimeType mimeType) {
+        return defaultEncoder.canEncode(elementType, mimeType);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, @Nullable MimeType mimeType,
+                                   @Nullable Map<String, Object> hints) {
+        Jackson2JsonEncoder encoder = select(hints);
+        if (inputStream instanceof Mono<?> mono
+                && hints != null && hints.get(METERS_HINT) instanceof ResponseMetrics.Meters meters) {
+            // Так же, как Jackson2JsonEncoder кодирует Mono, но с замером времени и размера
+            return mono.map(value -> {
+                long start = System.nanoTime();
+                DataBuffer buffer = encoder.encodeValue(value, bufferFactory, elementType, mimeType, hints);
+                meters.recordSerialization(System.nanoTime() - start, buffer.readableByteCount());
+                return buffer;
+            }).flux();
+        }
+        return encoder.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+    }
+
+    @Override
+    public DataBuffer encodeValue(Object value, DataBufferFactory bufferFactory, ResolvableType valueType,
+                                  @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        return select(hints).encodeValue(value, bufferFactory, valueType, mimeType, hints);
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes() {
+        return defaultEncoder.getEncodableMimeTypes();
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes(ResolvableType elementType) {
+        return defaultEncoder.getEncodableMimeTypes(elementType);
+    }
+
+    @Override
+    public List<MediaType> getStreamingMediaTypes() {
+        return defaultEncoder.getStreamingMediaTypes();
+    }
+
+    @Override
+    public Map<String, Object> getEncodeHints(ResolvableType actualType, ResolvableType elementType,
+                                              @Nullable MediaType mediaType, ServerHttpRequest request,
+                                              ServerHttpResponse response) {
+        Map<String, Object> hints = defaultEncoder.getEncodeHints(actualType, elementType, mediaType, request, response);
+        hints = Hints.merge(hints, FORMAT_HINT, resolver.resolve(request));
+        ResponseMetrics.Meters meters = responseMetrics.forRequest(request);
+        return meters != null ? Hints.merge(hints, METERS_HINT, meters) : hints;
+    }
+
+    private Jackson2JsonEncoder select(@Nullable Map<String, Object> hints) {
+        Object format = hints != null ? hints.get(FORMAT_HINT) : null;
+        Jackson2JsonEncoder encoder = format != null ? encoders.get(format) : null;
+        return encoder != null ? encoder : defaultEncoder;
+    }
+}
@@ -1,22 +1,34 @@
 package com.example.emulator.config;
 
+import com.example.emulator.service.ResponseMetrics;
 import com.fasterxml.jackson.core.util.DefaultIndenter;
 import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.web.codec.CodecCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.annotation.Order;
 import org.springframework.http.codec.json.Jackson2JsonEncoder;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 @Configuration
 public class JacksonConfig {
+    /** Имя бина компактного ObjectMapper (без отступов) */
+    public static final String COMPACT_OBJECT_MAPPER = "compactObjectMapper";
 
+    /**
+     * Основной ObjectMapper: форматированный вывод с отступами в 4 пробела.
+     */
     @Bean
+    @Primary
     public ObjectMapper objectMapper() {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.registerModule(new JavaTimeModule()); // for Java 8 date/time types
-        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        ObjectMapper objectMapper = baseObjectMapper();
         objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
 
         DefaultPrettyPrinter prettyPrinter = new DefaultPrettyPrinter();
@@ -27,6 +39,44 @@ public class JacksonConfig {
         
         objectMapper.setDefaultPrettyPrinter(prettyPrinter);
 
+        return objectMapper;
+    }
+
+    /**
+     * Компактный ObjectMapper: те же настройки без отступов и переводов строк.
+     */
+    @Bean(COMPACT_OBJECT_MAPPER)
+    public ObjectMapper compactObjectMapper() {
+        return baseObjectMapper();
+    }
+
+    @Bean
+    public Jackson2JsonEncoder jackson2JsonEncoder(ObjectMapper objectMapper) {
+        return new Jackson2JsonEncoder(objectMapper);
+    }
+
+    /**
+     * Регистрирует в кодеках WebFlux кодировщик, выбирающий формат на каждый запрос.
+     * Выполняется после стандартного JacksonCodecCustomizer Spring Boot (Order 0) и заменяет его кодировщик.
+     */
+    @Bean
+    @Order(1)
+    public CodecCustomizer jsonFormatCodecCustomizer(ObjectMapper objectMapper,
+                                                     @Qualifier(COMPACT_OBJECT_MAPPER) ObjectMapper compactObjectMapper,
+                                                     JsonFormatResolver jsonFormatResolver,
+                                                     ResponseMetrics responseMetrics) {
+        Map<JsonFormat, Jackson2JsonEncoder> encoders = new EnumMap<>(JsonFormat.class);
+        encoders.put(JsonFormat.PRETTY, new Jackson2JsonEncoder(objectMapper));
+        encoders.put(JsonFormat.COMPACT, new Jackson2JsonEncoder(compactObjectMapper));
+        FormatSelectingJsonEncoder encoder = new FormatSelectingJsonEncoder(encoders, jsonFormatResolver, responseMetrics);
+        return configurer -> configurer.defaultCodecs().jackson2JsonEncoder(encoder);
+    }
+
+    private static ObjectMapper baseObjectMapper() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule()); // for Java 8 date/time types
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
         // Настройка для корректной обработки слешей без экранирования
         objectMapper.getFactory().setCharacterEscapes(new com.fasterxml.jackson.core.io.CharacterEscapes() {
             @Override
@@ -47,9 +97,4 @@ public class JacksonConfig {
 
         return objectMapper;
     }
-
-    @Bean
-    public Jackson2JsonEncoder jackson2JsonEncoder(ObjectMapper objectMapper) {
-        return new Jackson2JsonEncoder(objectMapper);
-    }
 }
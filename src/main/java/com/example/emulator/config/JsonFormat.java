@@ -0,0 +1,11 @@
+package com.example.emulator.config;
+
+/**
+ * Формат JSON-ответов эмулятора.
+ * PRETTY - с отступами в 4 пробела (исходный формат),
+ * COMPACT - без пробелов и переводов строк, минимальный размер ответа.
+ */
+public enum JsonFormat {
+    PRETTY,
+    COMPACT
+}
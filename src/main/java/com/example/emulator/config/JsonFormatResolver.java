@@ -0,0 +1,95 @@
+package com.example.emulator.config;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Определяет формат JSON-ответа для запроса.
+ *
+ * Порядок приоритета:
+ * 1. подсказка клиента, если emulator.json.allow-client-override=true:
+ *    параметр запроса ?format=compact|pretty или параметр Accept (application/json;format=compact);
+ * 2. формат эндпоинта из emulator.json.endpoints;
+ * 3. глобальный формат emulator.json.format.
+ */
+@Component
+public class JsonFormatResolver {
+    static final String FORMAT_PARAMETER = "format";
+    private static final String PREFIX_SUFFIX = "/**";
+
+    private final JsonFormat defaultFormat;
+    private final boolean allowClientOverride;
+    private final Map<String, JsonFormat> exactPaths = new HashMap<>();
+    /** Префиксы путей, отсортированные от самого длинного к самому короткому */
+    private final List<Map.Entry<String, JsonFormat>> prefixes = new ArrayList<>();
+
+    public JsonFormatResolver(EmulatorConfig emulatorConfig) {
+        EmulatorConfig.Json config = emulatorConfig.getJson();
+        this.defaultFormat = config.getFormat();
+        this.allowClientOverride = config.isAllowClientOverride();
+        config.getEndpoints().forEach((path, format) -> {
+            if (path.endsWith(PREFIX_SUFFIX)) {
+                prefixes.add(Map.entry(path.substring(0, path.length() - PREFIX_SUFFIX.length()), format));
+            } else {
+                exactPaths.put(path, format);
+            }
+        });
+        prefixes.sort((a, b) -> Integer.compare(b.getKey().length(), a.getKey().length()));
+    }
+
+    /**
+     * @param request текущий запрос
+     * @return формат JSON-ответа
+     */
+    public JsonFormat resolve(ServerHttpRequest request) {
+        if (allowClientOverride) {
+            JsonFormat requested = parse(request.getQueryParams().getFirst(FORMAT_PARAMETER));
+            if (requested != null) {
+                return requested;
+            }
+            for (MediaType accept : request.getHeaders().getAccept()) {
+                requested = parse(accept.getParameter(FORMAT_PARAMETER));
+                if (requested != null) {
+                    return requested;
+                }
+            }
+        }
+        String path = request.getPath().pathWithinApplication().value();
+        JsonFormat format = exactPaths.get(path);
+        if (format != null) {
+            return format;
+        }
+        for (Map.Entry<String, JsonFormat> prefix : prefixes) {
+            // Префикс совпадает только по границе сегмента: /cpn/** не относится к /cpns
+            if (path.equals(prefix.getKey()) || path.startsWith(prefix.getKey() + "/")) {
+                return prefix.getValue();
+            }
+        }
+        return defaultFormat;
+    }
+
+    /**
+     * @return глобальный формат, используемый при отсутствии других настроек
+     */
+    public JsonFormat getDefaultFormat() {
+        return defaultFormat;
+    }
+
+    private static JsonFormat parse(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "compact" -> JsonFormat.COMPACT;
+            case "pretty" -> JsonFormat.PRETTY;
+            default -> null;
+        };
+    }
+}
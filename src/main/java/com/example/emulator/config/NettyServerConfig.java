@@ -0,0 +1,172 @@
+package com.example.emulator.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufAllocatorMetric;
+import io.netty.buffer.ByteBufAllocatorMetricProvider;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.stereotype.Component;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Настройка транспорта встроенного HTTP-сервера Reactor Netty из emulator.server.
+ *
+ * Применяется Spring Boot ко всем NettyReactiveWebServerFactory:
+ * - собственные LoopResources, если задано количество потоков event loop или отключен native-транспорт;
+ * - SO_REUSEPORT на epoll, SO_BACKLOG;
+ * - аллокатор буферов соединений (им же выделяются DataBuffer ответов);
+ * - таймаут простоя и количество запросов на соединение keep-alive;
+ * - ограничение одновременных соединений: сверх emulator.server.max-connections соединение
+ *   закрывается сразу после принятия;
+ * - h2c (emulator.server.http2) рядом с HTTP/1.1: prior knowledge и Upgrade, лимит потоков
+ *   и окно управления потоком. Потоки HTTP/2 не считаются отдельными соединениями.
+ *
+ * Метрики в общем реестре (Prometheus):
+ * - emulator.server.connections.active, emulator.server.connections.accepted, emulator.server.connections.rejected;
+ * - emulator.netty.allocator.used.memory{type} и для пула - emulator.netty.allocator.arenas{type},
+ *   emulator.netty.allocator.thread.local.caches, emulator.netty.allocator.chunk.size.
+ */
+@Component
+public class NettyServerConfig implements NettyServerCustomizer, DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(NettyServerConfig.class);
+
+    private final EmulatorConfig.Server config;
+    private final ByteBufAllocator allocator;
+    private final LoopResources loopResources;
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final Counter accepted;
+    private final Counter rejected;
+
+    public NettyServerConfig(EmulatorConfig emulatorConfig, MeterRegistry meterRegistry) {
+        this.config = emulatorConfig.getServer();
+        this.allocator = config.getAllocator() == EmulatorConfig.Server.Allocator.POOLED
+                ? PooledByteBufAllocator.DEFAULT
+                : UnpooledByteBufAllocator.DEFAULT;
+        this.loopResources = config.getEventLoopThreads() != null || !config.isNativeTransport()
+                ? LoopResources.create("emulator-http", 1,
+                        config.getEventLoopThreads() != null ? config.getEventLoopThreads()
+                                : LoopResources.DEFAULT_IO_WORKER_COUNT,
+                        true)
+                : null;
+        Gauge.builder("emulator.server.connections.active", activeConnections, AtomicInteger::get)
+                .description("Открытые соединения HTTP-сервера")
+                .register(meterRegistry);
+        this.accepted = Counter.builder("emulator.server.connections.accepted")
+                .description("Принятые соединения HTTP-сервера")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("emulator.server.connections.rejected")
+                .description("Соединения, закрытые сверх emulator.server.max-connections")
+                .register(meterRegistry);
+        registerAllocatorMetrics(meterRegistry);
+    }
+
+    @Override
+    public HttpServer apply(HttpServer server) {
+        if (loopResources != null) {
+            server = server.runOn(loopResources, config.isNativeTransport());
+        }
+        server = server
+                .option(ChannelOption.SO_BACKLOG, config.getBacklog())
+                .childOption(ChannelOption.ALLOCATOR, allocator);
+        if (config.isReusePort()) {
+            if (config.isNativeTransport() && Epoll.isAvailable()) {
+                server = server.option(EpollChannelOption.SO_REUSEPORT, true);
+            } else {
+                log.warn("SO_REUSEPORT requires native epoll transport, option ignored");
+            }
+        }
+        if (config.getIdleTimeout() != null) {
+            server = server.idleTimeout(config.getIdleTimeout());
+        }
+        if (config.getMaxKeepAliveRequests() > 0) {
+            server = server.maxKeepAliveRequests(config.getMaxKeepAliveRequests());
+        }
+        EmulatorConfig.Server.Http2 http2 = config.getHttp2();
+        if (http2.isEnabled()) {
+            server = server
+                    .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+                    .http2Settings(settings -> settings
+                            .maxConcurrentStreams(http2.getMaxConcurrentStreams())
+                            .initialWindowSize(http2.getInitialWindowSize()));
+        }
+        int maxConnections = config.getMaxConnections();
+        server = server.doOnChannelInit((observer, channel, remoteAddress) -> {
+            if (channel instanceof Http2StreamChannel) {
+                return;
+            }
+            int active = activeConnections.incrementAndGet();
+            channel.closeFuture().addListener(future -> activeConnections.decrementAndGet());
+            accepted.increment();
+            if (maxConnections > 0 && active > maxConnections) {
+                rejected.increment();
+                channel.close();
+            }
+        });
+        log.info("Netty server: event loop threads {}, native transport {} (epoll available: {}), allocator {}, "
+                        + "backlog {}, reuse port {}, idle timeout {}, max keep-alive requests {}, max connections {}, "
+                        + "h2c {}",
+                config.getEventLoopThreads() != null ? config.getEventLoopThreads() : "default",
+                config.isNativeTransport(), Epoll.isAvailable(), config.getAllocator(), config.getBacklog(),
+                config.isReusePort(), config.getIdleTimeout(), config.getMaxKeepAliveRequests(), maxConnections,
+                http2.isEnabled() ? "enabled (max streams " + http2.getMaxConcurrentStreams()
+                        + ", window " + http2.getInitialWindowSize() + ")" : "disabled");
+        return server;
+    }
+
+    private void registerAllocatorMetrics(MeterRegistry meterRegistry) {
+        if (!(allocator instanceof ByteBufAllocatorMetricProvider provider)) {
+            return;
+        }
+        ByteBufAllocatorMetric metric = provider.metric();
+        Gauge.builder("emulator.netty.allocator.used.memory", metric, ByteBufAllocatorMetric::usedDirectMemory)
+                .description("Память, занятая буферами аллокатора Netty")
+                .tag("type", "direct")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("emulator.netty.allocator.used.memory", metric, ByteBufAllocatorMetric::usedHeapMemory)
+                .description("Память, занятая буферами аллокатора Netty")
+                .tag("type", "heap")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        if (allocator instanceof PooledByteBufAllocator pooled) {
+            Gauge.builder("emulator.netty.allocator.arenas", pooled, p -> p.metric().numDirectArenas())
+                    .description("Арены пула буферов Netty")
+                    .tag("type", "direct")
+                    .register(meterRegistry);
+            Gauge.builder("emulator.netty.allocator.arenas", pooled, p -> p.metric().numHeapArenas())
+                    .description("Арены пула буферов Netty")
+                    .tag("type", "heap")
+                    .register(meterRegistry);
+            Gauge.builder("emulator.netty.allocator.thread.local.caches", pooled,
+                            p -> p.metric().numThreadLocalCaches())
+                    .description("Кэши буферов потоков пула Netty")
+                    .register(meterRegistry);
+            Gauge.builder("emulator.netty.allocator.chunk.size", pooled, p -> p.metric().chunkSize())
+                    .description("Размер чанка арены пула Netty")
+                    .baseUnit("bytes")
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (loopResources != null) {
+            loopResources.dispose();
+        }
+    }
+}
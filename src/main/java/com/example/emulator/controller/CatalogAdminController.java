@@ -0,0 +1,95 @@
+package com.example.emulator.controller;
+
+import com.example.emulator.dto.CatalogReloadResponse;
+import com.example.emulator.dto.ReplayReloadResponse;
+import com.example.emulator.dto.ScenarioReloadResponse;
+import com.example.emulator.service.CpnConfigurationService;
+import com.example.emulator.service.ReplayService;
+import com.example.emulator.service.ScenarioService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * Административный REST контроллер эмулятора.
+ * Позволяет управлять конфигурацией без перезапуска сервиса под нагрузкой.
+ */
+@RestController
+@RequestMapping("/api/back/v1/admin")
+public class CatalogAdminController {
+    private static final Logger log = LoggerFactory.getLogger(CatalogAdminController.class);
+
+    private final CpnConfigurationService cpnConfigurationService;
+    private final ScenarioService scenarioService;
+    private final ReplayService replayService;
+
+    public CatalogAdminController(CpnConfigurationService cpnConfigurationService, ScenarioService scenarioService,
+                                  ReplayService replayService) {
+        this.cpnConfigurationService = cpnConfigurationService;
+        this.scenarioService = scenarioService;
+        this.replayService = replayService;
+    }
+
+    /**
+     * Перечитывает каталог CPN из настроенного источника.
+     * При ошибке возвращает 422, текущий каталог остается без изменений.
+     *
+     * @return Mono<ResponseEntity<CatalogReloadResponse>> - результат перезагрузки
+     */
+    @PostMapping(value = "/cpns/reload", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<CatalogReloadResponse>> reloadCatalog() {
+        log.info("Получен запрос на перезагрузку каталога CPN");
+        return cpnConfigurationService.reload()
+                .map(ResponseEntity::ok)
+                .onErrorResume(e -> {
+                    log.error("Не удалось перезагрузить каталог CPN", e);
+                    return Mono.just(ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                            .body(new CatalogReloadResponse("error",
+                                    cpnConfigurationService.getCatalog().size(), 0, e.getMessage())));
+                });
+    }
+
+    /**
+     * Перечитывает правила сценариев из emulator.scenarios.location.
+     * При ошибке возвращает 422, текущие правила остаются без изменений.
+     *
+     * @return Mono<ResponseEntity<ScenarioReloadResponse>> - результат перезагрузки
+     */
+    @PostMapping(value = "/scenarios/reload", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<ScenarioReloadResponse>> reloadScenarios() {
+        log.info("Получен запрос на перезагрузку сценариев");
+        return scenarioService.reload()
+                .map(ResponseEntity::ok)
+                .onErrorResume(e -> {
+                    log.error("Не удалось перезагрузить сценарии", e);
+                    return Mono.just(ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                            .body(new ScenarioReloadResponse("error",
+                                    scenarioService.getMatcher().size(), 0, e.getMessage())));
+                });
+    }
+
+    /**
+     * Перечитывает записанные ответы из emulator.replay.location.
+     * При ошибке возвращает 422, текущее хранилище остается без изменений.
+     *
+     * @return Mono<ResponseEntity<ReplayReloadResponse>> - результат перезагрузки
+     */
+    @PostMapping(value = "/replay/reload", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<ReplayReloadResponse>> reloadReplay() {
+        log.info("Получен запрос на перезагрузку записанных ответов");
+        return replayService.reload()
+                .map(ResponseEntity::ok)
+                .onErrorResume(e -> {
+                    log.error("Не удалось перезагрузить записанные ответы", e);
+                    return Mono.just(ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                            .body(new ReplayReloadResponse("error",
+                                    replayService.getStore().size(), 0, e.getMessage())));
+                });
+    }
+}
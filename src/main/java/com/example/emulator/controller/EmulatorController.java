@@ -2,21 +2,26 @@ package com.example.emulator.controller;
 
 import com.example.emulator.dto.EmulatorResponse;
 import com.example.emulator.dto.OrderRequest;
-import com.example.emulator.dto.OrderResponse; // Добавлен импорт
 import com.example.emulator.dto.Cpn;
 import com.example.emulator.service.CpnConfigurationService;
 import com.example.emulator.config.EmulatorConfig;
+import com.example.emulator.config.JsonFormatResolver;
 import com.example.emulator.service.EmulatorService;
+import com.example.emulator.service.OrderResponseCache;
 import com.example.emulator.service.OrderResponseService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.MediaType;
+import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -24,8 +29,10 @@ import reactor.core.publisher.Mono;
  * REST контроллер для эмулятора.
  * Обрабатывает входящие HTTP-запросы.
  * Метрики собираются автоматически через Spring Actuator.
+ * При emulator.routing: functional заменяется маршрутами {@link EmulatorRouter}.
  */
 @RestController
+@ConditionalOnProperty(prefix = "emulator", name = "routing", havingValue = "annotated", matchIfMissing = true)
 @RequestMapping("/api/back/v1")
 public class EmulatorController {
     private static final Logger log = LoggerFactory.getLogger(EmulatorController.class);
@@ -33,7 +40,9 @@ public class EmulatorController {
     private final EmulatorService emulatorService;
     private final CpnConfigurationService cpnConfigurationService;
     private final OrderResponseService orderResponseService;
+    private final OrderResponseCache orderResponseCache;
     private final EmulatorConfig emulatorConfig; // Added for OrderResponseService
+    private final JsonFormatResolver jsonFormatResolver;
 
     /**
      * Конструктор с внедрением зависимостей.
@@ -42,16 +51,22 @@ public class EmulatorController {
      * @param emulatorService - сервис эмулятора
      * @param cpnConfigurationService - сервис конфигурации CPN
      * @param orderResponseService - сервис ответов на запросы заказов
+     * @param orderResponseCache - кэш ответов на запросы заказов
      * @param emulatorConfig - конфигурация эмулятора (для задержек)
+     * @param jsonFormatResolver - выбор формата JSON для ответа
      */
     public EmulatorController(EmulatorService emulatorService, 
                               CpnConfigurationService cpnConfigurationService,
                               OrderResponseService orderResponseService,
-                              EmulatorConfig emulatorConfig) { 
+                              OrderResponseCache orderResponseCache,
+                              EmulatorConfig emulatorConfig,
+                              JsonFormatResolver jsonFormatResolver) {
         this.emulatorService = emulatorService;
         this.cpnConfigurationService = cpnConfigurationService;
         this.orderResponseService = orderResponseService; 
+        this.orderResponseCache = orderResponseCache;
         this.emulatorConfig = emulatorConfig; 
+        this.jsonFormatResolver = jsonFormatResolver;
         log.info("Контроллер инициализирован");
     }
 
@@ -75,20 +90,40 @@ public class EmulatorController {
     /**
      * Обрабатывает POST запрос на получение заказов
      *
+     * Тело ответа собирается из предварительно сериализованных фрагментов,
+     * поэтому возвращается уже готовый JSON в буферах.
+     * Тип Publisher сохраняет конкретный тип ответа сервиса: для Mono выставляется
+     * Content-Length, большие ответы (Flux) отдаются потоком с chunked-кодированием.
+     * При emulator.cache.enabled ответ берется из {@link OrderResponseCache} (ETag, 304).
+     *
      * @param requestId UUID запроса из заголовка X-Request-Id
      * @param request тело запроса
-     * @return Mono<OrderResponse> - реактивный ответ с заказами
+     * @param exchange HTTP-обмен (для выбора формата JSON и доступа к фабрике буферов)
+     * @return Publisher<DataBuffer> - реактивный ответ с заказами в формате JSON
      */
     @PostMapping(value = "/cpn/orders", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Mono<OrderResponse> getOrders(
+    public Publisher<DataBuffer> getOrders(
             @RequestHeader("RqUID") String requestId,
-            @RequestBody OrderRequest request) {
+            @RequestBody OrderRequest request,
+            ServerWebExchange exchange) {
         log.debug("Получен запрос на получение заказов. Request-Id: {}, запрос: {}", requestId, request);
-        return orderResponseService.generateOrderResponse(
+        if (orderResponseCache.isEnabled()) {
+            return orderResponseCache.getOrderResponseBody(
+                requestId,
+                request.filters().orderIdFrom(),
+                request.filters().orderIds(),
+                request.filters().limit(),
+                jsonFormatResolver.resolve(exchange.getRequest()),
+                exchange
+            );
+        }
+        return orderResponseService.generateOrderResponseBody(
             requestId,
             request.filters().orderIdFrom(),
             request.filters().orderIds(),
-            request.filters().limit()
+            request.filters().limit(),
+            jsonFormatResolver.resolve(exchange.getRequest()),
+            exchange.getResponse().bufferFactory()
         );
     }
 
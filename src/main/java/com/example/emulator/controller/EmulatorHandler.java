@@ -0,0 +1,99 @@
+package com.example.emulator.controller;
+
+import com.example.emulator.config.JsonFormat;
+import com.example.emulator.config.JsonFormatResolver;
+import com.example.emulator.dto.Cpn;
+import com.example.emulator.dto.EmulatorResponse;
+import com.example.emulator.dto.OrderRequest;
+import com.example.emulator.service.CpnConfigurationService;
+import com.example.emulator.service.EmulatorService;
+import com.example.emulator.service.OrderResponseCache;
+import com.example.emulator.service.OrderResponseService;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+
+/**
+ * Обработчики функциональных маршрутов эмулятора (emulator.routing: functional).
+ *
+ * Повторяют {@link EmulatorController} без разрешения аргументов аннотированных методов:
+ * заголовок читается напрямую, тело запроса декодируется в {@link OrderRequest} через
+ * {@link ServerRequest#bodyToMono}, готовое тело заказов пишется как поток DataBuffer.
+ * Кодеки, фильтры, метрики и формат JSON те же, что и у контроллера.
+ */
+@Component
+@ConditionalOnProperty(prefix = "emulator", name = "routing", havingValue = "functional")
+public class EmulatorHandler {
+    static final String REQUEST_ID_HEADER = "RqUID";
+
+    private final EmulatorService emulatorService;
+    private final CpnConfigurationService cpnConfigurationService;
+    private final OrderResponseService orderResponseService;
+    private final OrderResponseCache orderResponseCache;
+    private final JsonFormatResolver jsonFormatResolver;
+
+    public EmulatorHandler(EmulatorService emulatorService,
+                           CpnConfigurationService cpnConfigurationService,
+                           OrderResponseService orderResponseService,
+                           OrderResponseCache orderResponseCache,
+                           JsonFormatResolver jsonFormatResolver) {
+        this.emulatorService = emulatorService;
+        this.cpnConfigurationService = cpnConfigurationService;
+        this.orderResponseService = orderResponseService;
+        this.orderResponseCache = orderResponseCache;
+        this.jsonFormatResolver = jsonFormatResolver;
+    }
+
+    /**
+     * GET /cpns - все купоны каталога.
+     */
+    public Mono<ServerResponse> cpns(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(cpnConfigurationService.getAllCpns(), Cpn.class);
+    }
+
+    /**
+     * POST /cpn/orders - ответ на запрос заказов, как {@link EmulatorController#getOrders}.
+     * Без заголовка RqUID - 400 Bad Request.
+     */
+    public Mono<ServerResponse> orders(ServerRequest request) {
+        String requestId = request.headers().firstHeader(REQUEST_ID_HEADER);
+        if (requestId == null) {
+            return Mono.error(new ServerWebInputException("Missing request header '" + REQUEST_ID_HEADER + "'"));
+        }
+        ServerWebExchange exchange = request.exchange();
+        JsonFormat format = jsonFormatResolver.resolve(exchange.getRequest());
+        return request.bodyToMono(OrderRequest.class)
+                .switchIfEmpty(Mono.error(() -> new ServerWebInputException("Request body is missing")))
+                .flatMap(orderRequest -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(orderResponseBody(requestId, orderRequest.filters(), format, exchange), DataBuffer.class));
+    }
+
+    /**
+     * GET /emulate - общий эмулируемый ответ.
+     */
+    public Mono<ServerResponse> emulate(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(emulatorService.getEmulatedResponse(), EmulatorResponse.class);
+    }
+
+    private Publisher<DataBuffer> orderResponseBody(String requestId, OrderRequest.Filters filters, JsonFormat format,
+                                                    ServerWebExchange exchange) {
+        if (orderResponseCache.isEnabled()) {
+            return orderResponseCache.getOrderResponseBody(requestId, filters.orderIdFrom(), filters.orderIds(),
+                    filters.limit(), format, exchange);
+        }
+        return orderResponseService.generateOrderResponseBody(requestId, filters.orderIdFrom(), filters.orderIds(),
+                filters.limit(), format, exchange.getResponse().bufferFactory());
+    }
+}
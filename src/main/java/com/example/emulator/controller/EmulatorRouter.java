@@ -0,0 +1,38 @@
+package com.example.emulator.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/**
+ * Функциональные маршруты эмулятора вместо {@link EmulatorController} (emulator.routing: functional).
+ *
+ * Запрос сопоставляется с небольшим деревом предикатов и сразу передается в {@link EmulatorHandler},
+ * без HandlerMethod, разрешения аргументов и обработки возвращаемого значения аннотированного метода.
+ * Административные эндпоинты остаются в {@link CatalogAdminController}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "emulator", name = "routing", havingValue = "functional")
+public class EmulatorRouter {
+
+    @Bean
+    public RouterFunction<ServerResponse> emulatorRoutes(EmulatorHandler handler) {
+        return routes(handler);
+    }
+
+    /**
+     * Маршруты тех же путей, что и у {@link EmulatorController}.
+     * Используется также бенчмарком диспетчеризации (src/jmh).
+     */
+    public static RouterFunction<ServerResponse> routes(EmulatorHandler handler) {
+        return RouterFunctions.route()
+                .path("/api/back/v1", builder -> builder
+                        .GET("/cpns", handler::cpns)
+                        .POST("/cpn/orders", handler::orders)
+                        .GET("/emulate", handler::emulate))
+                .build();
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.emulator.controller;
+
+import com.example.emulator.service.MockRouteService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Функциональные маршруты эндпоинтов из emulator.mocks.routes (см. {@link MockRouteService}).
+ *
+ * Маршруты регистрируются при любом emulator.routing. Функциональные маршруты проверяются раньше
+ * аннотированных контроллеров, поэтому маршрут с путем существующего эндпоинта заменяет его.
+ * Запросы к маршрутам проходят те же фильтры: сценарии, эмуляцию сети, заголовок X-Emulated-Delay.
+ */
+@Configuration
+public class MockRouter {
+
+    @Bean
+    public RouterFunction<ServerResponse> mockRoutes(MockRouteService mockRouteService) {
+        if (mockRouteService.getRoutes().isEmpty()) {
+            return request -> Mono.empty();
+        }
+        RouterFunctions.Builder builder = RouterFunctions.route();
+        for (MockRouteService.Route route : mockRouteService.getRoutes()) {
+            builder.route(RequestPredicates.method(HttpMethod.valueOf(route.getMethod()))
+                            .and(RequestPredicates.path(route.getPath())),
+                    request -> mockRouteService.respond(route, request));
+        }
+        return builder.build();
+    }
+}
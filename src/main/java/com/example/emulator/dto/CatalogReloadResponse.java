@@ -0,0 +1,16 @@
+package com.example.emulator.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * DTO для ответа на запрос перезагрузки каталога CPN
+ */
+@JsonPropertyOrder({ "status", "size", "duration_ms", "message" })
+public record CatalogReloadResponse(
+    String status,
+    int size,
+    @JsonProperty("duration_ms")
+    long durationMs,
+    String message
+) {}
@@ -1,7 +1,6 @@
 package com.example.emulator.dto;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import java.time.LocalDateTime;
 
 /**
  * DTO для ответа эмулятора.
@@ -29,15 +28,17 @@ public class EmulatorResponse {
     }
 
     /**
-     * Создает новый ответ с текущим временем.
+     * Создает новый ответ с переданным временем.
      *
+     * @param timestamp время в миллисекундах
+     * @param generatedAt отформатированное время генерации ответа
      * @return EmulatorResponse с заполненными полями
      */
-    public static EmulatorResponse createResponse() {
+    public static EmulatorResponse createResponse(long timestamp, String generatedAt) {
         return new EmulatorResponse(
-            System.currentTimeMillis(),
+            timestamp,
             "success",
-            "Response generated at: " + LocalDateTime.now()
+            "Response generated at: " + generatedAt
         );
     }
 }
@@ -0,0 +1,16 @@
+package com.example.emulator.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * DTO для ответа на запрос перезагрузки записанных ответов
+ */
+@JsonPropertyOrder({ "status", "entries", "duration_ms", "message" })
+public record ReplayReloadResponse(
+    String status,
+    int entries,
+    @JsonProperty("duration_ms")
+    long durationMs,
+    String message
+) {}
@@ -0,0 +1,16 @@
+package com.example.emulator.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * DTO для ответа на запрос перезагрузки сценариев
+ */
+@JsonPropertyOrder({ "status", "rules", "duration_ms", "message" })
+public record ScenarioReloadResponse(
+    String status,
+    int rules,
+    @JsonProperty("duration_ms")
+    long durationMs,
+    String message
+) {}
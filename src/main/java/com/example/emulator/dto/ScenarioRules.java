@@ -0,0 +1,104 @@
+package com.example.emulator.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO файла сценариев поведения эмулятора.
+ *
+ * Пример:
+ * {
+ *   "rules": [
+ *     {
+ *       "name": "orders-429",
+ *       "path": "/api/back/v1/cpn/orders",
+ *       "method": "POST",
+ *       "headers": { "RqUID": "^throttle-.*" },
+ *       "filters": { "limit": { "min": 1000 }, "product_type": "coupon" },
+ *       "percentage": 10,
+ *       "action": { "type": "error", "status": 429, "headers": { "Retry-After": "1" } }
+ *     }
+ *   ]
+ * }
+ */
+public record ScenarioRules(
+    List<Rule> rules
+) {
+    /**
+     * Правило: условия и действие. Правила проверяются в порядке файла, применяется первое подходящее.
+     *
+     * @param name имя правила (тег метрики и строки лога)
+     * @param path точный путь или префикс с /**; пусто - любой путь
+     * @param method HTTP-метод; пусто - любой
+     * @param headers регулярные выражения для значений заголовков (значение без спецсимволов сравнивается точно)
+     * @param filters условия на OrderRequest.filters; требуют чтения тела запроса
+     * @param percentage доля подходящих запросов в процентах, к которым применяется действие (по умолчанию 100)
+     * @param action действие
+     */
+    public record Rule(
+        String name,
+        String path,
+        String method,
+        Map<String, String> headers,
+        Filters filters,
+        Double percentage,
+        Action action
+    ) {}
+
+    /**
+     * Условия на фильтры запроса заказов. Незаданные условия не проверяются.
+     */
+    public record Filters(
+        Range limit,
+        @JsonProperty("product_type")
+        String productType,
+        @JsonProperty("order_id_from")
+        Range orderIdFrom,
+        @JsonProperty("order_ids")
+        Range orderIds
+    ) {}
+
+    /**
+     * Диапазон значения включительно; для order_ids - диапазон количества идентификаторов.
+     */
+    public record Range(
+        Long min,
+        Long max
+    ) {}
+
+    /**
+     * Действие правила.
+     *
+     * @param type error | drop | hang | throttle
+     * @param delayMs задержка перед действием (для throttle - до первого байта)
+     * @param status HTTP-статус для error (по умолчанию 500)
+     * @param headers дополнительные заголовки ответа для error
+     * @param body тело ответа для error (JSON)
+     * @param durationMs сколько держать соединение для hang до обрыва (по умолчанию 5 минут)
+     * @param bytesPerSecond скорость отдачи тела для throttle
+     * @param chunkSize размер порции тела для throttle
+     */
+    public record Action(
+        ActionType type,
+        @JsonProperty("delay_ms")
+        Long delayMs,
+        Integer status,
+        Map<String, String> headers,
+        String body,
+        @JsonProperty("duration_ms")
+        Long durationMs,
+        @JsonProperty("bytes_per_second")
+        Long bytesPerSecond,
+        @JsonProperty("chunk_size")
+        Integer chunkSize
+    ) {}
+
+    public enum ActionType {
+        @JsonProperty("error") ERROR,
+        @JsonProperty("drop") DROP,
+        @JsonProperty("hang") HANG,
+        @JsonProperty("throttle") THROTTLE
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.emulator.filter;
+
+import com.example.emulator.config.EmulatorConfig;
+import com.example.emulator.service.EmulatedDelay;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Возвращает клиенту эмулированную задержку запроса в заголовке X-Emulated-Delay.
+ *
+ * Фильтр кладет в контекст Reactor пустой {@link EmulatedDelay}, который заполняется
+ * при выборе задержки, и перед отправкой заголовков ответа переносит значение в заголовок.
+ * Задержка всегда отсчитывается до первого байта ответа, поэтому заголовок
+ * присутствует и у потоковых ответов. Отключается emulator.delay.header=false.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 3)
+public class EmulatedDelayHeaderFilter implements WebFilter {
+    private final boolean enabled;
+
+    public EmulatedDelayHeaderFilter(EmulatorConfig emulatorConfig) {
+        this.enabled = emulatorConfig.getDelay().isHeader();
+    }
+
+    @Override
+    @NonNull
+    public Mono<Void> filter(@NonNull ServerWebExchange exchange, @NonNull WebFilterChain chain) {
+        if (!enabled) {
+            return chain.filter(exchange);
+        }
+        EmulatedDelay delay = new EmulatedDelay();
+        exchange.getResponse().beforeCommit(() -> {
+            if (delay.isSet()) {
+                exchange.getResponse().getHeaders().set(EmulatedDelay.HEADER, delay.toHeaderValue());
+            }
+            return Mono.empty();
+        });
+        return chain.filter(exchange)
+                .contextWrite(context -> context.put(EmulatedDelay.CONTEXT_KEY, delay));
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.emulator.filter;
+
+import com.example.emulator.config.EmulatorConfig;
+import com.example.emulator.service.BodyThrottler;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Эмулирует медленную сеть для тела ответа по профилю emulator.network.
+ *
+ * Запрос обрабатывается как обычно; готовое тело ответа режется на порции
+ * по chunk-size байт без копирования и отдается через {@link BodyThrottler}:
+ * заголовки уходят сразу, первая порция - через ttfb, остальные - со скоростью
+ * bytes-per-second с разбросом jitter. Эмулированная задержка обработки
+ * (emulator.delay) при этом сохраняется и отсчитывается до заголовков.
+ *
+ * Пути задаются точно или префиксом с суффиксом /**. При enabled=false фильтр ничего не делает.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 2)
+public class NetworkEmulationFilter implements WebFilter {
+    private static final String PREFIX_SUFFIX = "/**";
+
+    private final BodyThrottler bodyThrottler;
+    private final BodyThrottler.Profile profile;
+    private final Set<String> exactPaths = new HashSet<>();
+    private final List<String> pathPrefixes = new ArrayList<>();
+
+    public NetworkEmulationFilter(EmulatorConfig emulatorConfig, BodyThrottler bodyThrottler) {
+        EmulatorConfig.Network config = emulatorConfig.getNetwork();
+        this.bodyThrottler = bodyThrottler;
+        this.profile = config.isEnabled() && (config.getBytesPerSecond() > 0 || !config.getTtfb().isZero())
+                ? new BodyThrottler.Profile(config.getTtfb(), config.getBytesPerSecond(),
+                        config.getChunkSize(), config.getJitter())
+                : null;
+        for (String path : config.getPaths()) {
+            if (path.endsWith(PREFIX_SUFFIX)) {
+                pathPrefixes.add(path.substring(0, path.length() - PREFIX_SUFFIX.length()));
+            } else {
+                exactPaths.add(path);
+            }
+        }
+    }
+
+    @Override
+    @NonNull
+    public Mono<Void> filter(@NonNull ServerWebExchange exchange, @NonNull WebFilterChain chain) {
+        if (profile == null || !matches(exchange.getRequest().getPath().pathWithinApplication().value())) {
+            return chain.filter(exchange);
+        }
+        return chain.filter(exchange.mutate()
+                .response(new ThrottledResponse(exchange.getResponse(), bodyThrottler, profile))
+                .build());
+    }
+
+    private boolean matches(String path) {
+        if (exactPaths.contains(path)) {
+            return true;
+        }
+        for (String prefix : pathPrefixes) {
+            // Префикс совпадает только по границе сегмента: /cpn/** не относится к /cpns
+            if (path.equals(prefix) || path.startsWith(prefix + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.emulator.filter;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.netty.http.server.HttpServerRequest;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Метрики запросов по протоколу HTTP: при включенном h2c (emulator.server.http2) одни и те же
+ * эндпоинты обслуживаются по HTTP/1.1 и HTTP/2, и их поведение под нагрузкой различается.
+ *
+ * - emulator.http.requests{protocol} - время обработки запроса от входа в цепочку фильтров до завершения;
+ * - emulator.http.requests.active{protocol} - запросы в обработке (для HTTP/2 - одновременные потоки).
+ *
+ * Протокол определяется по соединению Reactor Netty: запрос в дочернем канале потока HTTP/2 - h2c,
+ * иначе версия HTTP/1.x из запроса; unknown - на другом сервере.
+ * Фильтр выполняется первым, поэтому учитывает и задержку, и сценарии, и ответы из кэша.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ProtocolMetricsFilter implements WebFilter {
+    private final ProtocolMeters http11;
+    private final ProtocolMeters http10;
+    private final ProtocolMeters h2c;
+    private final ProtocolMeters unknown;
+
+    public ProtocolMetricsFilter(MeterRegistry meterRegistry) {
+        this.http11 = new ProtocolMeters(meterRegistry, "http1.1");
+        this.http10 = new ProtocolMeters(meterRegistry, "http1.0");
+        this.h2c = new ProtocolMeters(meterRegistry, "h2c");
+        this.unknown = new ProtocolMeters(meterRegistry, "unknown");
+    }
+
+    @Override
+    @NonNull
+    public Mono<Void> filter(@NonNull ServerWebExchange exchange, @NonNull WebFilterChain chain) {
+        ProtocolMeters meters = meters(exchange);
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            meters.active.incrementAndGet();
+            return chain.filter(exchange).doFinally(signal -> {
+                meters.active.decrementAndGet();
+                meters.requests.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            });
+        });
+    }
+
+    private ProtocolMeters meters(ServerWebExchange exchange) {
+        Object nativeRequest = ServerHttpRequestDecorator.getNativeRequest(exchange.getRequest());
+        if (!(nativeRequest instanceof HttpServerRequest netty)) {
+            return unknown;
+        }
+        if (netty instanceof Connection connection && connection.channel() instanceof Http2StreamChannel) {
+            return h2c;
+        }
+        return HttpVersion.HTTP_1_0.equals(netty.version()) ? http10 : http11;
+    }
+
+    private static final class ProtocolMeters {
+        final Timer requests;
+        final AtomicInteger active = new AtomicInteger();
+
+        ProtocolMeters(MeterRegistry meterRegistry, String protocol) {
+            this.requests = Timer.builder("emulator.http.requests")
+                    .description("Время обработки запроса по протоколу HTTP")
+                    .tag("protocol", protocol)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(30))
+                    .register(meterRegistry);
+            Gauge.builder("emulator.http.requests.active", active, AtomicInteger::get)
+                    .description("Запросы в обработке по протоколу HTTP")
+                    .tag("protocol", protocol)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.emulator.filter;
+
+import com.example.emulator.service.LogSampler;
+import com.example.emulator.service.ReplayService;
+import com.example.emulator.service.ReplayStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Отдает записанные ответы из {@link ReplayService} вместо генерации.
+ *
+ * Запрос ищется по пути и значению заголовка emulator.replay.key-header.
+ * При попадании ответ отдается после записанной задержки: статус и заголовки из записи,
+ * тело - срез отображенного в память файла, обернутый в DataBuffer без копирования.
+ * При промахе запрос обрабатывается контроллером как обычно (генерация заказов).
+ *
+ * Фильтр выполняется последним, поэтому к записанным ответам применяются сценарии,
+ * эмуляция сети и заголовок X-Emulated-Delay. Без emulator.replay.location фильтр ничего не делает.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class ReplayFilter implements WebFilter {
+    private static final Logger log = LoggerFactory.getLogger(ReplayFilter.class);
+
+    private final ReplayService replayService;
+    private final LogSampler logSampler;
+
+    public ReplayFilter(ReplayService replayService, LogSampler logSampler) {
+        this.replayService = replayService;
+        this.logSampler = logSampler;
+    }
+
+    @Override
+    @NonNull
+    public Mono<Void> filter(@NonNull ServerWebExchange exchange, @NonNull WebFilterChain chain) {
+        if (!replayService.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        String key = exchange.getRequest().getHeaders().getFirst(replayService.getKeyHeader());
+        if (key == null) {
+            return chain.filter(exchange);
+        }
+        String path = exchange.getRequest().getPath().pathWithinApplication().value();
+        ReplayStore.Response recorded = replayService.find(path, key);
+        if (recorded == null) {
+            return chain.filter(exchange);
+        }
+        if (logSampler.isSampled(key)) {
+            log.info("replay rq={} path={} status={} bytes={}", key, path, recorded.status(),
+                    recorded.body().remaining());
+        }
+        return replayService.delay(recorded).then(write(recorded, exchange.getResponse()));
+    }
+
+    private static Mono<Void> write(ReplayStore.Response recorded, ServerHttpResponse response) {
+        return Mono.defer(() -> {
+            response.setStatusCode(HttpStatusCode.valueOf(recorded.status()));
+            response.getHeaders().putAll(recorded.headers());
+            response.getHeaders().setContentLength(recorded.body().remaining());
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(recorded.body())));
+        });
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.emulator.filter;
+
+import com.example.emulator.dto.OrderRequest;
+import com.example.emulator.service.BodyThrottler;
+import com.example.emulator.service.DelayScheduler;
+import com.example.emulator.service.LogSampler;
+import com.example.emulator.service.RandomSource;
+import com.example.emulator.service.Scenario;
+import com.example.emulator.service.ScenarioMatcher;
+import com.example.emulator.service.ScenarioService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.DecoderHttpMessageReader;
+import org.springframework.http.codec.HttpMessageReader;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.json.AbstractJackson2Decoder;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Применяет сценарии поведения из {@link ScenarioService} к входящим запросам.
+ *
+ * Действия:
+ * - error: ответ с заданным статусом, заголовками и телом вместо обработки запроса;
+ * - drop: закрытие соединения без ответа;
+ * - hang: запрос остается без ответа до отключения клиента или до duration_ms, затем соединение закрывается;
+ * - throttle: запрос обрабатывается как обычно, тело ответа отдается порциями с заданной скоростью.
+ * delay_ms откладывает любое действие (для throttle - и начало обработки).
+ *
+ * Тело запроса читается только для путей, у которых есть правила с условиями на filters:
+ * оно собирается в один буфер, разбирается как {@link OrderRequest} и передается
+ * контроллеру без повторного чтения из сети. Без правил фильтр ничего не делает.
+ * Тело собирается не больше лимита JSON-кодека (spring.codec.max-in-memory-size, по умолчанию 256 КБ):
+ * к большему телу правила с filters не применяются, а контроллер получает ту же ошибку превышения
+ * лимита, что и без фильтра.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class ScenarioFilter implements WebFilter {
+    private static final Logger log = LoggerFactory.getLogger(ScenarioFilter.class);
+    /** Лимит кодеков WebFlux по умолчанию */
+    private static final int DEFAULT_MAX_BODY_SIZE = 256 * 1024;
+
+    private final ScenarioService scenarioService;
+    private final DelayScheduler delayScheduler;
+    private final BodyThrottler bodyThrottler;
+    private final RandomSource randomSource;
+    private final LogSampler logSampler;
+    private final ObjectMapper objectMapper;
+    private final int maxBodySize;
+
+    public ScenarioFilter(ScenarioService scenarioService, DelayScheduler delayScheduler, BodyThrottler bodyThrottler,
+                          RandomSource randomSource, LogSampler logSampler, ObjectMapper objectMapper,
+                          ServerCodecConfigurer codecConfigurer) {
+        this.scenarioService = scenarioService;
+        this.delayScheduler = delayScheduler;
+        this.bodyThrottler = bodyThrottler;
+        this.randomSource = randomSource;
+        this.logSampler = logSampler;
+        this.objectMapper = objectMapper;
+        this.maxBodySize = maxBodySize(codecConfigurer);
+    }
+
+    /**
+     * @return лимит тела JSON-кодека, которым контроллер читает тот же запрос
+     */
+    private static int maxBodySize(ServerCodecConfigurer codecConfigurer) {
+        for (HttpMessageReader<?> reader : codecConfigurer.getReaders()) {
+            if (reader instanceof DecoderHttpMessageReader<?> decoderReader
+                    && decoderReader.getDecoder() instanceof AbstractJackson2Decoder decoder) {
+                return decoder.getMaxInMemorySize();
+            }
+        }
+        return DEFAULT_MAX_BODY_SIZE;
+    }
+
+    @Override
+    @NonNull
+    public Mono<Void> filter(@NonNull ServerWebExchange exchange, @NonNull WebFilterChain chain) {
+        ScenarioMatcher matcher = scenarioService.getMatcher();
+        if (matcher.isEmpty()) {
+            return chain.filter(exchange);
+        }
+        String path = exchange.getRequest().getPath().pathWithinApplication().value();
+        if (!matcher.needsBody(path)) {
+            return apply(match(matcher, exchange, path, null), exchange, chain);
+        }
+        ServerHttpRequest original = exchange.getRequest();
+        return DataBufferUtils.join(original.getBody(), maxBodySize)
+                .<ServerHttpRequest>map(body -> new CachedBodyRequest(original, body))
+                .onErrorResume(DataBufferLimitException.class, e -> Mono.just(new RejectedBodyRequest(original, e)))
+                .defaultIfEmpty(original)
+                .flatMap(request -> {
+                    if (!(request instanceof CachedBodyRequest cached)) {
+                        return apply(match(matcher, exchange, path, null),
+                                request == original ? exchange : exchange.mutate().request(request).build(), chain);
+                    }
+                    Scenario scenario = match(matcher, exchange, path, cached.parseFilters());
+                    return apply(scenario, exchange.mutate().request(cached).build(), chain)
+                            .doFinally(signal -> cached.releaseIfUnread());
+                });
+    }
+
+    @Nullable
+    private Scenario match(ScenarioMatcher matcher, ServerWebExchange exchange, String path,
+                           @Nullable OrderRequest.Filters filters) {
+        ServerHttpRequest request = exchange.getRequest();
+        return matcher.match(request.getMethod().name(), path, request.getHeaders(), filters,
+                randomSource.generator());
+    }
+
+    private Mono<Void> apply(@Nullable Scenario scenario, ServerWebExchange exchange, WebFilterChain chain) {
+        if (scenario == null) {
+            return chain.filter(exchange);
+        }
+        scenario.markApplied();
+        String requestId = exchange.getRequest().getHeaders().getFirst(ScenarioMatcher.REQUEST_ID_HEADER);
+        if (logSampler.isSampled(requestId)) {
+            log.info("scenario rq={} rule={} action={}", requestId, scenario.getName(), scenario.getType());
+        }
+        Mono<Void> action = switch (scenario.getType()) {
+            case ERROR -> writeError(scenario, exchange.getResponse());
+            case DROP -> drop(exchange.getResponse());
+            case HANG -> delayScheduler.delay(scenario.getHang()).then(drop(exchange.getResponse()));
+            case THROTTLE -> chain.filter(exchange.mutate()
+                    .response(new ThrottledResponse(exchange.getResponse(), bodyThrottler, scenario.getThrottle()))
+                    .build());
+        };
+        return scenario.getDelay().isZero() ? action : delayScheduler.delay(scenario.getDelay()).then(action);
+    }
+
+    private static Mono<Void> writeError(Scenario scenario, ServerHttpResponse response) {
+        return Mono.defer(() -> {
+            byte[] body = scenario.getBody();
+            response.setStatusCode(scenario.getStatus());
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            response.getHeaders().setContentLength(body.length);
+            response.getHeaders().putAll(scenario.getHeaders());
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+        });
+    }
+
+    /**
+     * Закрывает соединение клиента без ответа. Доступно только на Reactor Netty.
+     */
+    private static Mono<Void> drop(ServerHttpResponse response) {
+        return Mono.defer(() -> {
+            Object nativeResponse = ServerHttpResponseDecorator.getNativeResponse(response);
+            if (nativeResponse instanceof HttpServerResponse netty) {
+                netty.withConnection(connection -> connection.channel().close());
+                return Mono.empty();
+            }
+            return Mono.error(new IllegalStateException("Dropping connections requires Reactor Netty"));
+        });
+    }
+
+    /**
+     * Запрос с уже прочитанным телом. Тело отдается контроллеру один раз;
+     * если контроллер его не прочитал, буфер освобождается по завершении обработки.
+     */
+    private final class CachedBodyRequest extends ServerHttpRequestDecorator {
+        private final DataBuffer body;
+        private final AtomicBoolean read = new AtomicBoolean();
+
+        CachedBodyRequest(ServerHttpRequest delegate, DataBuffer body) {
+            super(delegate);
+            this.body = body;
+        }
+
+        @Override
+        @NonNull
+        public Flux<DataBuffer> getBody() {
+            return Flux.defer(() -> read.compareAndSet(false, true) ? Flux.just(body) : Flux.empty());
+        }
+
+        @Nullable
+        OrderRequest.Filters parseFilters() {
+            int position = body.readPosition();
+            try {
+                OrderRequest request = objectMapper.readValue(body.asInputStream(), OrderRequest.class);
+                return request != null ? request.filters() : null;
+            } catch (IOException e) {
+                // Некорректное тело отклонит контроллер, правила с filters к нему не применяются
+                return null;
+            } finally {
+                body.readPosition(position);
+            }
+        }
+
+        void releaseIfUnread() {
+            if (read.compareAndSet(false, true)) {
+                DataBufferUtils.release(body);
+            }
+        }
+    }
+
+    /**
+     * Запрос, тело которого превысило лимит при чтении фильтром.
+     * Прочитанная часть уже отброшена, поэтому контроллер получает ошибку превышения лимита.
+     */
+    private static final class RejectedBodyRequest extends ServerHttpRequestDecorator {
+        private final DataBufferLimitException error;
+
+        RejectedBodyRequest(ServerHttpRequest delegate, DataBufferLimitException error) {
+            super(delegate);
+            this.error = error;
+        }
+
+        @Override
+        @NonNull
+        public Flux<DataBuffer> getBody() {
+            return Flux.error(error);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.emulator.filter;
+
+import com.example.emulator.service.BodyThrottler;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.lang.NonNull;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Ответ, тело которого отдается порциями по профилю {@link BodyThrottler}.
+ *
+ * Заголовки уходят клиенту сразу: первой отправляется пустая порция с flush,
+ * после нее тело по расписанию профиля. Каждая порция отправляется с flush,
+ * иначе Netty может склеить несколько порций в один пакет.
+ */
+class ThrottledResponse extends ServerHttpResponseDecorator {
+    private final BodyThrottler bodyThrottler;
+    private final BodyThrottler.Profile profile;
+
+    ThrottledResponse(ServerHttpResponse delegate, BodyThrottler bodyThrottler, BodyThrottler.Profile profile) {
+        super(delegate);
+        this.bodyThrottler = bodyThrottler;
+        this.profile = profile;
+    }
+
+    @Override
+    @NonNull
+    public Mono<Void> writeWith(@NonNull Publisher<? extends DataBuffer> body) {
+        Flux<DataBuffer> headers = Flux.defer(() -> Flux.just(bufferFactory().allocateBuffer(0)));
+        return super.writeAndFlushWith(headers.concatWith(bodyThrottler.throttle(body, profile)).map(Mono::just));
+    }
+
+    @Override
+    @NonNull
+    public Mono<Void> writeAndFlushWith(@NonNull Publisher<? extends Publisher<? extends DataBuffer>> body) {
+        return writeWith(Flux.from(body).concatMap(Flux::from));
+    }
+}
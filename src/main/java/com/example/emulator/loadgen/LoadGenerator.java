@@ -0,0 +1,292 @@
+package com.example.emulator.loadgen;
+
+import com.example.emulator.service.EmulatedDelay;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Встроенный генератор нагрузки для проверки самого эмулятора.
+ *
+ * Нагружает /api/back/v1/cpn/orders или /api/back/v1/emulate через Reactor Netty HttpClient:
+ * - open: запросы отправляются с постоянной интенсивностью по расписанию; время ответа
+ *   отсчитывается от запланированного момента отправки, а не от фактического, поэтому
+ *   задержки самого генератора и очереди соединений не скрывают хвосты (coordinated omission);
+ * - closed: фиксированное количество клиентов, каждый отправляет следующий запрос после ответа.
+ *
+ * Эмулятор возвращает выбранную задержку в заголовке X-Emulated-Delay, поэтому для каждого
+ * запроса вычисляются собственные накладные расходы сервера: время обслуживания минус задержка.
+ * Распределения собираются в HdrHistogram и печатаются по завершении.
+ *
+ * Запуск из собранного jar:
+ * java -cp target/emulator-service-1.0.0.jar -Dloader.main=com.example.emulator.loadgen.LoadGenerator
+ *      org.springframework.boot.loader.PropertiesLauncher --mode=open --rate=2000 --duration=60s
+ */
+public final class LoadGenerator {
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final LoadGeneratorOptions options;
+    private final HttpClient client;
+    private final String uri;
+    private final String body;
+    private final AtomicLong requestIds = new AtomicLong();
+
+    private final Recorder responseTime = new Recorder(3);
+    private final Recorder serviceTime = new Recorder(3);
+    private final Recorder emulatedDelay = new Recorder(3);
+    private final Recorder overhead = new Recorder(3);
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder inFlight = new LongAdder();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    public LoadGenerator(LoadGeneratorOptions options) {
+        this.options = options;
+        ConnectionProvider provider = ConnectionProvider.builder("loadgen")
+                .maxConnections(options.connections())
+                .pendingAcquireMaxCount(-1)
+                .pendingAcquireTimeout(Duration.ofMinutes(1))
+                .build();
+        this.client = HttpClient.create(provider).baseUrl(options.url());
+        String path = options.endpoint().path();
+        this.uri = options.format() != null ? path + "?format=" + options.format() : path;
+        this.body = "{\"filters\":{\"limit\":" + options.limit() + ",\"product_type\":\"coupon\",\"order_id_from\":1}}";
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Контекст Spring не поднимается, поэтому без этого Reactor Netty логирует каждый запрос на DEBUG
+        LoggingSystem.get(LoadGenerator.class.getClassLoader()).setLogLevel(LoggingSystem.ROOT_LOGGER_NAME, LogLevel.WARN);
+        LoadGeneratorOptions options;
+        try {
+            options = LoadGeneratorOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(LoadGeneratorOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+        new LoadGenerator(options).run();
+        System.exit(0);
+    }
+
+    /**
+     * Выполняет прогрев и измерение, затем печатает отчет.
+     */
+    public void run() throws FileNotFoundException {
+        System.out.printf("Load: %s %s%s, %s%n", options.mode().name().toLowerCase(), options.url(), uri,
+                options.mode() == LoadGeneratorOptions.Mode.OPEN
+                        ? options.rate() + " req/s"
+                        : options.concurrency() + " concurrent requests");
+        if (!options.warmup().isZero()) {
+            System.out.printf("Warming up for %s%n", options.warmup());
+            runPhase(options.warmup());
+            resetMeasurements();
+        }
+        System.out.printf("Measuring for %s%n", options.duration());
+        long start = System.nanoTime();
+        runPhase(options.duration());
+        long elapsed = System.nanoTime() - start;
+        report(elapsed);
+    }
+
+    private void runPhase(Duration duration) {
+        if (options.mode() == LoadGeneratorOptions.Mode.OPEN) {
+            runOpen(duration);
+        } else {
+            runClosed(duration);
+        }
+    }
+
+    /**
+     * Открытая модель: запрос i отправляется в момент start + i / rate независимо от ответов.
+     * Если генератор отстал от расписания, запросы отправляются сразу, но время ответа
+     * по-прежнему считается от запланированного момента.
+     */
+    private void runOpen(Duration duration) {
+        long second = TimeUnit.SECONDS.toNanos(1);
+        int rate = options.rate();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (long i = 0; ; i++) {
+            // Без округления интервала до наносекунд: при rate > 10^9 он был бы нулевым,
+            // а остаток от деления на rate не дает произведению переполниться
+            long intended = start + (i / rate) * second + (i % rate) * second / rate;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            inFlight.increment();
+            long sent = System.nanoTime();
+            send().doFinally(signal -> inFlight.decrement())
+                    .subscribe(result -> record(intended, sent, result), this::recordError);
+        }
+        awaitInFlight();
+    }
+
+    /**
+     * Закрытая модель: concurrency клиентов, каждый ждет ответа перед следующим запросом.
+     */
+    private void runClosed(Duration duration) {
+        long end = System.nanoTime() + duration.toNanos();
+        Flux.range(0, options.concurrency())
+                .flatMap(client -> Mono.defer(() -> {
+                            long sent = System.nanoTime();
+                            return send()
+                                    .doOnNext(result -> record(sent, sent, result))
+                                    .onErrorResume(e -> {
+                                        recordError(e);
+                                        return Mono.empty();
+                                    });
+                        })
+                        .repeat(() -> System.nanoTime() < end), options.concurrency())
+                .blockLast();
+    }
+
+    private Mono<Result> send() {
+        String requestId = "loadgen-" + requestIds.incrementAndGet();
+        HttpClient.ResponseReceiver<?> request;
+        if (options.endpoint() == LoadGeneratorOptions.Endpoint.ORDERS) {
+            request = client.post()
+                    .uri(uri)
+                    .send((req, out) -> {
+                        req.header("RqUID", requestId)
+                                .header(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON);
+                        return out.sendString(Mono.just(body));
+                    });
+        } else {
+            request = client.get().uri(uri);
+        }
+        return request.response((response, content) -> content
+                .map(ByteBuf::readableBytes)
+                .reduce(0L, Long::sum)
+                .map(size -> new Result(response.status().code(),
+                        EmulatedDelay.parseHeaderValue(response.responseHeaders().get(EmulatedDelay.HEADER)),
+                        size)))
+                .next();
+    }
+
+    private void record(long intended, long sent, Result result) {
+        long now = System.nanoTime();
+        if (result.status() >= 400) {
+            errors.computeIfAbsent("HTTP " + result.status(), key -> new LongAdder()).increment();
+            return;
+        }
+        long serviceMicros = (now - sent) / 1000;
+        responseTime.recordValue((now - intended) / 1000);
+        serviceTime.recordValue(serviceMicros);
+        bytes.add(result.bytes());
+        if (result.delayNanos() >= 0) {
+            long delayMicros = result.delayNanos() / 1000;
+            emulatedDelay.recordValue(delayMicros);
+            overhead.recordValue(Math.max(serviceMicros - delayMicros, 0));
+        }
+    }
+
+    private void recordError(Throwable error) {
+        errors.computeIfAbsent(error.getClass().getSimpleName(), key -> new LongAdder()).increment();
+    }
+
+    private void awaitInFlight() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (inFlight.sum() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+
+    private void resetMeasurements() {
+        responseTime.reset();
+        serviceTime.reset();
+        emulatedDelay.reset();
+        overhead.reset();
+        bytes.reset();
+        errors.clear();
+    }
+
+    private void report(long elapsedNanos) throws FileNotFoundException {
+        Histogram response = responseTime.getIntervalHistogram();
+        Histogram service = serviceTime.getIntervalHistogram();
+        Histogram delay = emulatedDelay.getIntervalHistogram();
+        Histogram serverOverhead = overhead.getIntervalHistogram();
+        double seconds = elapsedNanos / 1e9;
+
+        System.out.printf("%nRequests: %d ok, %.1f req/s, %.1f MB/s%n", service.getTotalCount(),
+                service.getTotalCount() / seconds, bytes.sum() / seconds / (1024 * 1024));
+        errors.forEach((error, count) -> System.out.printf("Errors: %s x %d%n", error, count.sum()));
+        System.out.printf("%n%-22s %10s %10s %10s %10s %10s %10s%n",
+                "latency, ms", "mean", "p50", "p90", "p99", "p99.9", "max");
+        printRow(options.mode() == LoadGeneratorOptions.Mode.OPEN ? "response (corrected)" : "response", response);
+        printRow("service", service);
+        printRow("emulated delay", delay);
+        printRow("server overhead", serverOverhead);
+        if (delay.getTotalCount() > 0) {
+            System.out.printf("%n%-22s %10s %10.3f %10.3f %10.3f %10.3f%n", "service - delay", "",
+                    difference(service, delay, 50), difference(service, delay, 90),
+                    difference(service, delay, 99), difference(service, delay, 99.9));
+        } else {
+            System.out.println("\nX-Emulated-Delay header is missing, server overhead is not isolated");
+        }
+
+        if (options.hgrm() != null) {
+            writeDistribution(options.hgrm() + "-response.hgrm", response);
+            writeDistribution(options.hgrm() + "-service.hgrm", service);
+            writeDistribution(options.hgrm() + "-delay.hgrm", delay);
+            writeDistribution(options.hgrm() + "-overhead.hgrm", serverOverhead);
+        }
+    }
+
+    private static void printRow(String name, Histogram histogram) {
+        if (histogram.getTotalCount() == 0) {
+            System.out.printf("%-22s %10s%n", name, "-");
+            return;
+        }
+        System.out.printf("%-22s %10.3f %10.3f %10.3f %10.3f %10.3f %10.3f%n", name,
+                histogram.getMean() / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(50) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(90) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99.9) / MICROS_PER_MILLI,
+                histogram.getMaxValue() / MICROS_PER_MILLI);
+    }
+
+    private static double difference(Histogram measured, Histogram configured, double percentile) {
+        return (measured.getValueAtPercentile(percentile) - configured.getValueAtPercentile(percentile))
+                / MICROS_PER_MILLI;
+    }
+
+    private static void writeDistribution(String file, Histogram histogram) throws FileNotFoundException {
+        try (PrintStream out = new PrintStream(file)) {
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+        System.out.printf("Saved %s%n", file);
+    }
+
+    /**
+     * Результат одного запроса.
+     *
+     * @param status HTTP-статус
+     * @param delayNanos эмулированная задержка из заголовка или -1
+     * @param bytes размер тела ответа
+     */
+    private record Result(int status, long delayNanos, long bytes) {
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.emulator.loadgen;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Параметры генератора нагрузки, разбираемые из аргументов вида --ключ=значение.
+ *
+ * @param url базовый адрес эмулятора
+ * @param endpoint нагружаемый эндпоинт: orders или emulate
+ * @param mode модель нагрузки: open (постоянная интенсивность) или closed (постоянная конкурентность)
+ * @param rate интенсивность запросов в секунду для open
+ * @param concurrency количество одновременных запросов для closed
+ * @param duration длительность измерения
+ * @param warmup длительность прогрева, результаты которого отбрасываются
+ * @param limit limit в запросе заказов
+ * @param format формат JSON (?format=), null - формат сервера по умолчанию
+ * @param connections максимальное количество соединений
+ * @param hgrm префикс файлов с полными распределениями HdrHistogram, null - не сохранять
+ */
+public record LoadGeneratorOptions(
+        String url,
+        Endpoint endpoint,
+        Mode mode,
+        int rate,
+        int concurrency,
+        Duration duration,
+        Duration warmup,
+        int limit,
+        String format,
+        int connections,
+        String hgrm
+) {
+    private static final Set<String> KEYS = Set.of("url", "endpoint", "mode", "rate", "concurrency",
+            "duration", "warmup", "limit", "format", "connections", "hgrm");
+
+    public static final String USAGE = """
+            Usage: LoadGenerator [--url=http://localhost:8080] [--endpoint=orders|emulate] [--mode=open|closed]
+                                 [--rate=1000] [--concurrency=64] [--duration=30s] [--warmup=5s]
+                                 [--limit=10] [--format=pretty|compact] [--connections=1000] [--hgrm=prefix]
+            """;
+
+    public enum Endpoint {
+        ORDERS("/api/back/v1/cpn/orders"),
+        EMULATE("/api/back/v1/emulate");
+
+        private final String path;
+
+        Endpoint(String path) {
+            this.path = path;
+        }
+
+        public String path() {
+            return path;
+        }
+    }
+
+    public enum Mode {
+        OPEN, CLOSED
+    }
+
+    /**
+     * Разбирает аргументы командной строки.
+     *
+     * @throws IllegalArgumentException при неизвестном ключе или некорректном значении
+     */
+    public static LoadGeneratorOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            String key = arg.substring(2, eq);
+            if (!KEYS.contains(key)) {
+                throw new IllegalArgumentException("Unknown option: " + key);
+            }
+            values.put(key, arg.substring(eq + 1));
+        }
+        LoadGeneratorOptions options = new LoadGeneratorOptions(
+                values.getOrDefault("url", "http://localhost:8080"),
+                Endpoint.valueOf(values.getOrDefault("endpoint", "orders").toUpperCase()),
+                Mode.valueOf(values.getOrDefault("mode", "open").toUpperCase()),
+                Integer.parseInt(values.getOrDefault("rate", "1000")),
+                Integer.parseInt(values.getOrDefault("concurrency", "64")),
+                DurationStyle.detectAndParse(values.getOrDefault("duration", "30s")),
+                DurationStyle.detectAndParse(values.getOrDefault("warmup", "5s")),
+                Integer.parseInt(values.getOrDefault("limit", "10")),
+                values.get("format"),
+                Integer.parseInt(values.getOrDefault("connections", "1000")),
+                values.get("hgrm"));
+        if (options.rate <= 0 || options.concurrency <= 0 || options.connections <= 0 || options.limit < 0) {
+            throw new IllegalArgumentException("rate, concurrency and connections must be positive, limit non-negative");
+        }
+        if (options.duration.isZero() || options.duration.isNegative() || options.warmup.isNegative()) {
+            throw new IllegalArgumentException("duration must be positive, warmup non-negative");
+        }
+        return options;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.emulator.service;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+/**
+ * Отдача тела ответа с ограниченной скоростью.
+ *
+ * Буферы тела режутся на порции через {@link DataBuffer#split(int)}: порции разделяют
+ * память исходного буфера, данные не копируются. Каждая порция отправляется не раньше
+ * своего срока по расписанию; ожидание отсчитывает {@link DelayScheduler},
+ * поэтому медленные ответы не занимают потоки. Срок следующей порции отсчитывается
+ * от срока предыдущей, а не от фактической отправки, так что опоздания отдельных тиков
+ * не накапливаются.
+ */
+@Service
+public class BodyThrottler {
+    private final DelayScheduler delayScheduler;
+    private final RandomSource randomSource;
+
+    public BodyThrottler(DelayScheduler delayScheduler, RandomSource randomSource) {
+        this.delayScheduler = delayScheduler;
+        this.randomSource = randomSource;
+    }
+
+    /**
+     * Профиль отдачи тела.
+     *
+     * @param firstByte задержка первой порции от подписки
+     * @param bytesPerSecond скорость отдачи; 0 - без ограничения
+     * @param chunkSize размер порции в байтах
+     * @param jitter относительный разброс времени отправки каждой порции (0 - 1)
+     */
+    public record Profile(Duration firstByte, long bytesPerSecond, int chunkSize, double jitter) {
+        public Profile {
+            if (chunkSize <= 0 || bytesPerSecond < 0 || jitter < 0 || jitter > 1) {
+                throw new IllegalArgumentException("Invalid throttling profile");
+            }
+        }
+
+        /**
+         * @return профиль с постоянной скоростью без задержки первой порции и разброса
+         */
+        public static Profile of(long bytesPerSecond, int chunkSize) {
+            return new Profile(Duration.ZERO, bytesPerSecond, chunkSize, 0);
+        }
+    }
+
+    /**
+     * @param body тело ответа
+     * @param profile скорость, размер порции и задержка первой порции
+     * @return порции тела, выдаваемые по расписанию
+     */
+    public Flux<DataBuffer> throttle(Publisher<? extends DataBuffer> body, Profile profile) {
+        if (profile.bytesPerSecond() == 0) {
+            Flux<DataBuffer> chunks = Flux.from(body);
+            return profile.firstByte().isZero() ? chunks
+                    : chunks.delaySubscription(delayScheduler.delay(profile.firstByte()));
+        }
+        return Flux.defer(() -> {
+            long[] due = {System.nanoTime() + profile.firstByte().toNanos()};
+            return Flux.from(body)
+                    .concatMapIterable(buffer -> split(buffer, profile.chunkSize()))
+                    .delayUntil(chunk -> {
+                        long wait = due[0] - System.nanoTime();
+                        due[0] += interval(chunk.readableByteCount(), profile);
+                        return wait > 0 ? delayScheduler.delay(Duration.ofNanos(wait)) : Mono.empty();
+                    });
+        }).doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    /**
+     * @return время передачи порции по скорости профиля с учетом разброса
+     */
+    private long interval(int bytes, Profile profile) {
+        long nanos = TimeUnit.SECONDS.toNanos(bytes) / profile.bytesPerSecond();
+        if (profile.jitter() == 0) {
+            return nanos;
+        }
+        RandomGenerator random = randomSource.generator();
+        return (long) (nanos * (1 + profile.jitter() * (2 * random.nextDouble() - 1)));
+    }
+
+    private static List<DataBuffer> split(DataBuffer buffer, int chunkSize) {
+        List<DataBuffer> chunks = new ArrayList<>(buffer.readableByteCount() / chunkSize + 1);
+        while (buffer.readableByteCount() > chunkSize) {
+            chunks.add(buffer.split(buffer.readPosition() + chunkSize));
+        }
+        chunks.add(buffer);
+        return chunks;
+    }
+}
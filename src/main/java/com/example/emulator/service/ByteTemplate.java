@@ -0,0 +1,102 @@
+package com.example.emulator.service;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Предкомпилированный шаблон ответа в виде байтовых сегментов.
+ *
+ * Шаблон получается из уже сериализованного документа, в котором динамические
+ * значения заменены уникальными маркерами. При компиляции документ режется по маркерам,
+ * поэтому рендеринг сводится к копированию статических сегментов и записи значений слотов.
+ */
+public final class ByteTemplate {
+
+    /**
+     * Источник значений для слотов шаблона.
+     */
+    @FunctionalInterface
+    public interface Slots {
+        /**
+         * Записывает значение слота.
+         *
+         * @param slot индекс маркера, переданного при компиляции
+         * @param out буфер ответа
+         */
+        void write(int slot, DataBuffer out);
+    }
+
+    /** segments.length == slots.length + 1 */
+    private final byte[][] segments;
+    private final int[] slots;
+    private final int staticLength;
+
+    private ByteTemplate(byte[][] segments, int[] slots) {
+        this.segments = segments;
+        this.slots = slots;
+        int length = 0;
+        for (byte[] segment : segments) {
+            length += segment.length;
+        }
+        this.staticLength = length;
+    }
+
+    /**
+     * Компилирует шаблон, находя все вхождения маркеров.
+     *
+     * @param source сериализованный документ с маркерами
+     * @param placeholders маркеры; индекс маркера становится номером слота
+     * @return скомпилированный шаблон
+     * @throws IllegalArgumentException если какой-либо маркер не найден
+     */
+    public static ByteTemplate compile(byte[] source, byte[]... placeholders) {
+        List<int[]> matches = new ArrayList<>();
+        for (int slot = 0; slot < placeholders.length; slot++) {
+            int from = 0;
+            int found = 0;
+            int pos;
+            while ((pos = JsonBytes.indexOf(source, placeholders[slot], from)) >= 0) {
+                matches.add(new int[] { pos, slot });
+                from = pos + placeholders[slot].length;
+                found++;
+            }
+            if (found == 0) {
+                throw new IllegalArgumentException("Placeholder " + slot + " not found in template");
+            }
+        }
+        matches.sort((a, b) -> Integer.compare(a[0], b[0]));
+
+        byte[][] segments = new byte[matches.size() + 1][];
+        int[] slots = new int[matches.size()];
+        int start = 0;
+        for (int i = 0; i < matches.size(); i++) {
+            int[] match = matches.get(i);
+            segments[i] = Arrays.copyOfRange(source, start, match[0]);
+            slots[i] = match[1];
+            start = match[0] + placeholders[match[1]].length;
+        }
+        segments[matches.size()] = Arrays.copyOfRange(source, start, source.length);
+        return new ByteTemplate(segments, slots);
+    }
+
+    /**
+     * Записывает шаблон в буфер, подставляя значения слотов.
+     */
+    public void render(DataBuffer out, Slots values) {
+        for (int i = 0; i < slots.length; i++) {
+            out.write(segments[i]);
+            values.write(slots[i], out);
+        }
+        out.write(segments[slots.length]);
+    }
+
+    /**
+     * @return суммарный размер статических сегментов в байтах
+     */
+    public int staticLength() {
+        return staticLength;
+    }
+}
@@ -0,0 +1,344 @@
+package com.example.emulator.service;
+
+import com.example.emulator.dto.Cpn;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.random.RandomGenerator;
+
+/**
+ * Иммутабельный индексированный каталог CPN.
+ *
+ * Строится один раз при загрузке конфигурации и далее только читается,
+ * поэтому безопасен для использования из любого количества потоков без синхронизации.
+ * Предоставляет доступ за O(1):
+ * - по позиции в исходном файле (и случайный выбор купона);
+ * - по id;
+ * - по omni_id;
+ * - по partner_omni_id (список купонов партнера).
+ *
+ * Данные хранятся по колонкам: числовые поля в примитивных массивах, строки
+ * дедуплицируются через словарь, офферы всех купонов лежат в общих колонках
+ * со смещениями. Объекты {@link Cpn} материализуются только при обращении,
+ * поэтому каталог из сотен тысяч купонов не держит на куче граф record-объектов.
+ *
+ * При дублировании ключей в индексах id и omni_id остается первый купон из файла.
+ */
+public final class CpnCatalog {
+    private static final CpnCatalog EMPTY = new Builder().build();
+
+    private final int size;
+    private final long[] ids;
+    private final String[] omniIds;
+    private final String[] uses;
+    private final String[] conditions;
+    private final long[] partnerOmniIds;
+    private final String[] partnerCrmIds;
+
+    /** Офферы купона i лежат в диапазоне [offerStart[i], offerStart[i + 1]) */
+    private final int[] offerStart;
+    private final long[] offerIds;
+    private final String[] offerOmniIds;
+    private final int[] offerPrices;
+
+    private final LongIntIndex byId;
+    private final LongIntIndex byOmniId;
+    private final LongIntIndex firstByPartner;
+    /** Следующий купон того же партнера или -1 */
+    private final int[] nextSamePartner;
+
+    private final List<Cpn> view = new CatalogView();
+
+    private CpnCatalog(Builder builder) {
+        this.size = builder.size;
+        this.ids = Arrays.copyOf(builder.ids, size);
+        this.omniIds = Arrays.copyOf(builder.omniIds, size);
+        this.uses = Arrays.copyOf(builder.uses, size);
+        this.conditions = Arrays.copyOf(builder.conditions, size);
+        this.partnerOmniIds = Arrays.copyOf(builder.partnerOmniIds, size);
+        this.partnerCrmIds = Arrays.copyOf(builder.partnerCrmIds, size);
+        this.offerStart = Arrays.copyOf(builder.offerStart, size + 1);
+        int offers = builder.offerCount;
+        this.offerIds = Arrays.copyOf(builder.offerIds, offers);
+        this.offerOmniIds = Arrays.copyOf(builder.offerOmniIds, offers);
+        this.offerPrices = Arrays.copyOf(builder.offerPrices, offers);
+
+        this.byId = new LongIntIndex(size);
+        this.byOmniId = new LongIntIndex(size);
+        this.firstByPartner = new LongIntIndex(size);
+        this.nextSamePartner = new int[size];
+        for (int i = 0; i < size; i++) {
+            byId.putIfAbsent(ids[i], i);
+            long omniId = parseOmniId(omniIds[i]);
+            if (omniId != Long.MIN_VALUE) {
+                byOmniId.putIfAbsent(omniId, i);
+            }
+            firstByPartner.putIfAbsent(partnerOmniIds[i], i);
+        }
+        linkPartners();
+    }
+
+    /**
+     * Создает каталог из списка купонов.
+     *
+     * @param cpns купоны в порядке их следования в конфигурации
+     * @return новый каталог
+     */
+    public static CpnCatalog of(List<Cpn> cpns) {
+        if (cpns.isEmpty()) {
+            return EMPTY;
+        }
+        Builder builder = new Builder();
+        cpns.forEach(builder::add);
+        return builder.build();
+    }
+
+    /**
+     * @return пустой каталог
+     */
+    public static CpnCatalog empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Материализует купон по позиции в конфигурации.
+     *
+     * @param index позиция купона
+     * @return купон
+     */
+    public Cpn get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("CPN index " + index + " out of bounds for size " + size);
+        }
+        int from = offerStart[index];
+        int to = offerStart[index + 1];
+        Cpn.CpnOffer[] offers = new Cpn.CpnOffer[to - from];
+        for (int o = from; o < to; o++) {
+            offers[o - from] = new Cpn.CpnOffer(offerIds[o], offerOmniIds[o], offerPrices[o]);
+        }
+        return new Cpn(ids[index], omniIds[index], uses[index], conditions[index],
+                partnerOmniIds[index], partnerCrmIds[index], List.of(offers));
+    }
+
+    /**
+     * @param index позиция купона
+     * @return id купона без материализации
+     */
+    public long idAt(int index) {
+        return ids[index];
+    }
+
+    /**
+     * Выбирает случайный купон за O(1).
+     *
+     * @param random генератор случайных чисел вызывающей стороны
+     * @return случайный купон
+     * @throws IllegalStateException если каталог пуст
+     */
+    public Cpn random(RandomGenerator random) {
+        return get(randomIndex(random));
+    }
+
+    /**
+     * Выбирает позицию случайного купона, не материализуя сам купон.
+     *
+     * @param random генератор случайных чисел вызывающей стороны
+     * @return позиция случайного купона
+     * @throws IllegalStateException если каталог пуст
+     */
+    public int randomIndex(RandomGenerator random) {
+        if (size == 0) {
+            throw new IllegalStateException("CPN catalog is empty");
+        }
+        return random.nextInt(size);
+    }
+
+    /**
+     * @param id id купона
+     * @return позиция купона в каталоге или -1
+     */
+    public int indexOfId(long id) {
+        return byId.get(id);
+    }
+
+    public Optional<Cpn> findById(long id) {
+        int index = byId.get(id);
+        return index == LongIntIndex.MISSING ? Optional.empty() : Optional.of(get(index));
+    }
+
+    public Optional<Cpn> findByOmniId(String omniId) {
+        long key = parseOmniId(omniId);
+        int index = key == Long.MIN_VALUE ? LongIntIndex.MISSING : byOmniId.get(key);
+        return index == LongIntIndex.MISSING ? Optional.empty() : Optional.of(get(index));
+    }
+
+    /**
+     * @param partnerOmniId идентификатор партнера
+     * @return купоны партнера в порядке конфигурации, либо пустой список
+     */
+    public List<Cpn> findByPartnerOmniId(long partnerOmniId) {
+        int index = firstByPartner.get(partnerOmniId);
+        if (index == LongIntIndex.MISSING) {
+            return List.of();
+        }
+        List<Cpn> result = new ArrayList<>();
+        for (; index >= 0; index = nextSamePartner[index]) {
+            result.add(get(index));
+        }
+        return List.copyOf(result);
+    }
+
+    /**
+     * @return неизменяемое представление всех купонов в порядке конфигурации;
+     *         элементы материализуются при обращении
+     */
+    public List<Cpn> all() {
+        return view;
+    }
+
+    /**
+     * Связывает купоны одного партнера в цепочку в порядке конфигурации.
+     * Голова цепочки хранится в firstByPartner.
+     */
+    private void linkPartners() {
+        Arrays.fill(nextSamePartner, -1);
+        int[] lastSeen = new int[size];
+        LongIntIndex partnerSlot = new LongIntIndex(size);
+        int partners = 0;
+        for (int i = 0; i < size; i++) {
+            int slot = partnerSlot.get(partnerOmniIds[i]);
+            if (slot == LongIntIndex.MISSING) {
+                partnerSlot.putIfAbsent(partnerOmniIds[i], partners);
+                lastSeen[partners++] = i;
+            } else {
+                nextSamePartner[lastSeen[slot]] = i;
+                lastSeen[slot] = i;
+            }
+        }
+    }
+
+    /**
+     * omni_id в конфигурации числовой (это проверяется при загрузке),
+     * поэтому индексируется как long без хранения строковых ключей.
+     */
+    private static long parseOmniId(String omniId) {
+        if (omniId == null) {
+            return Long.MIN_VALUE;
+        }
+        try {
+            return Long.parseLong(omniId);
+        } catch (NumberFormatException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private final class CatalogView extends AbstractList<Cpn> implements RandomAccess {
+        @Override
+        public Cpn get(int index) {
+            return CpnCatalog.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Построитель каталога, принимающий купоны по одному.
+     * Используется потоковым загрузчиком: разобранная запись сразу раскладывается
+     * по колонкам и может быть собрана сборщиком мусора.
+     * Не потокобезопасен.
+     */
+    public static final class Builder {
+        private int size;
+        private long[] ids = new long[16];
+        private String[] omniIds = new String[16];
+        private String[] uses = new String[16];
+        private String[] conditions = new String[16];
+        private long[] partnerOmniIds = new long[16];
+        private String[] partnerCrmIds = new String[16];
+        private int[] offerStart = new int[17];
+
+        private int offerCount;
+        private long[] offerIds = new long[16];
+        private String[] offerOmniIds = new String[16];
+        private int[] offerPrices = new int[16];
+
+        private final Map<String, String> dictionary = new HashMap<>();
+
+        public Builder add(Cpn cpn) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                omniIds = Arrays.copyOf(omniIds, capacity);
+                uses = Arrays.copyOf(uses, capacity);
+                conditions = Arrays.copyOf(conditions, capacity);
+                partnerOmniIds = Arrays.copyOf(partnerOmniIds, capacity);
+                partnerCrmIds = Arrays.copyOf(partnerCrmIds, capacity);
+                offerStart = Arrays.copyOf(offerStart, capacity + 1);
+            }
+            ids[size] = cpn.id();
+            omniIds[size] = cpn.omniId();
+            uses[size] = dedupe(cpn.use());
+            conditions[size] = dedupe(cpn.conditions());
+            partnerOmniIds[size] = cpn.partnerOmniId();
+            partnerCrmIds[size] = dedupe(cpn.partnerCrmId());
+            if (cpn.offers() != null) {
+                for (Cpn.CpnOffer offer : cpn.offers()) {
+                    addOffer(offer);
+                }
+            }
+            size++;
+            offerStart[size] = offerCount;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public CpnCatalog build() {
+            return new CpnCatalog(this);
+        }
+
+        private void addOffer(Cpn.CpnOffer offer) {
+            if (offerCount == offerIds.length) {
+                int capacity = offerCount * 2;
+                offerIds = Arrays.copyOf(offerIds, capacity);
+                offerOmniIds = Arrays.copyOf(offerOmniIds, capacity);
+                offerPrices = Arrays.copyOf(offerPrices, capacity);
+            }
+            offerIds[offerCount] = offer.id();
+            offerOmniIds[offerCount] = offer.omniId();
+            offerPrices[offerCount] = offer.price();
+            offerCount++;
+        }
+
+        /**
+         * Тексты условий, правил использования и crm_id партнеров сильно повторяются,
+         * поэтому в колонках хранится единственный экземпляр каждой строки.
+         */
+        private String dedupe(String value) {
+            if (value == null) {
+                return null;
+            }
+            String existing = dictionary.putIfAbsent(value, value);
+            return existing != null ? existing : value;
+        }
+    }
+}
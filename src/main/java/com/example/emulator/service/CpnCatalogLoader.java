@@ -0,0 +1,103 @@
+package com.example.emulator.service;
+
+import com.example.emulator.dto.Cpn;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Потоковый загрузчик каталога CPN.
+ *
+ * Вместо чтения всего документа в List<Cpn> разбирает JSON-массив по одной записи
+ * через JsonParser и сразу раскладывает каждую запись по колонкам {@link CpnCatalog.Builder}.
+ * Файловые ресурсы читаются через отображение в память ({@link MappedFileInputStream}),
+ * поэтому файлы размером в сотни мегабайт не копируются в кучу целиком.
+ * Ресурсы из classpath и jar читаются обычным InputStream.
+ */
+public class CpnCatalogLoader {
+    private final ObjectMapper objectMapper;
+
+    public CpnCatalogLoader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Результат загрузки каталога.
+     *
+     * @param catalog загруженный каталог
+     * @param bytes размер источника в байтах, -1 если неизвестен
+     * @param elapsedNanos длительность загрузки
+     */
+    public record Result(CpnCatalog catalog, long bytes, long elapsedNanos) {
+        /**
+         * @return пропускная способность загрузки, записей в секунду
+         */
+        public double recordsPerSecond() {
+            return elapsedNanos > 0 ? catalog.size() * 1e9 / elapsedNanos : 0;
+        }
+
+        /**
+         * @return пропускная способность загрузки, мегабайт в секунду
+         */
+        public double megabytesPerSecond() {
+            return elapsedNanos > 0 && bytes > 0 ? bytes * 1e9 / elapsedNanos / (1024 * 1024) : 0;
+        }
+    }
+
+    /**
+     * Загружает каталог из ресурса.
+     *
+     * @param resource ресурс с JSON-массивом купонов
+     * @param validator проверка каждой записи; исключение прерывает загрузку
+     * @return результат загрузки
+     */
+    public Result load(Resource resource, Consumer<Cpn> validator) throws IOException {
+        long start = System.nanoTime();
+        CpnCatalog.Builder builder = new CpnCatalog.Builder();
+        long bytes;
+        if (resource.isFile()) {
+            Path path = resource.getFile().toPath();
+            try (MappedFileInputStream is = new MappedFileInputStream(path)) {
+                bytes = is.size();
+                parse(is, builder, validator);
+            }
+        } else {
+            try (InputStream is = resource.getInputStream()) {
+                bytes = contentLength(resource);
+                parse(is, builder, validator);
+            }
+        }
+        return new Result(builder.build(), bytes, System.nanoTime() - start);
+    }
+
+    private void parse(InputStream is, CpnCatalog.Builder builder, Consumer<Cpn> validator) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(is)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalStateException("CPN catalog must be a JSON array");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                Cpn cpn = objectMapper.readValue(parser, Cpn.class);
+                validator.accept(cpn);
+                builder.add(cpn);
+            }
+            if (token != JsonToken.END_ARRAY) {
+                throw new IllegalStateException("Unexpected token in CPN catalog: " + token);
+            }
+        }
+    }
+
+    private static long contentLength(Resource resource) {
+        try {
+            return resource.contentLength();
+        } catch (IOException e) {
+            return -1L;
+        }
+    }
+}
@@ -1,53 +1,221 @@
 package com.example.emulator.service;
 
+import com.example.emulator.config.EmulatorConfig;
+import com.example.emulator.dto.CatalogReloadResponse;
 import com.example.emulator.dto.Cpn;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import jakarta.annotation.PostConstruct;
-import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.List;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Сервис для загрузки и хранения конфигурации CPN из JSON файла
+ * Сервис для загрузки и хранения конфигурации CPN из JSON файла.
+ *
+ * Каталог публикуется как иммутабельный снимок через AtomicReference:
+ * перезагрузка разбирает и валидирует новый файл вне event loop и затем
+ * атомарно подменяет ссылку, поэтому запросы в обработке продолжают работать
+ * со своим снимком и никогда не видят частично загруженный список.
+ * Сам файл разбирается потоково ({@link CpnCatalogLoader}) в колоночное хранилище.
  */
 @Service
 public class CpnConfigurationService {
     private static final Logger log = LoggerFactory.getLogger(CpnConfigurationService.class);
-    private static final String CONFIG_FILE = "cpn-list.json";
-    
-    private final ObjectMapper objectMapper;
-    private final List<Cpn> cpnList;
 
-    public CpnConfigurationService(ObjectMapper objectMapper) {
-        this.objectMapper = objectMapper;
-        this.cpnList = new ArrayList<>(); // Initialize final field in constructor
+    private final CpnCatalogLoader loader;
+    private final ResourceLoader resourceLoader;
+    private final EmulatorConfig.Catalog config;
+    private final AtomicReference<CpnCatalog> catalog = new AtomicReference<>(CpnCatalog.empty());
+    private final Object reloadLock = new Object();
+    private final Timer reloadSuccessTimer;
+    private final Timer reloadFailureTimer;
+    private final AtomicLong sourceBytes = new AtomicLong();
+    private final AtomicLong loadThroughput = new AtomicLong();
+
+    private volatile long lastModified = -1L;
+    private Disposable watcher;
+
+    public CpnConfigurationService(ObjectMapper objectMapper,
+                                   ResourceLoader resourceLoader,
+                                   EmulatorConfig emulatorConfig,
+                                   MeterRegistry meterRegistry) {
+        this.loader = new CpnCatalogLoader(objectMapper);
+        this.resourceLoader = resourceLoader;
+        this.config = emulatorConfig.getCatalog();
+        this.reloadSuccessTimer = reloadTimer(meterRegistry, "success");
+        this.reloadFailureTimer = reloadTimer(meterRegistry, "failure");
+        Gauge.builder("emulator.cpn.catalog.size", catalog, ref -> ref.get().size())
+                .description("Количество CPN в текущем снимке каталога")
+                .register(meterRegistry);
+        Gauge.builder("emulator.cpn.catalog.source.bytes", sourceBytes, AtomicLong::get)
+                .description("Размер файла, из которого загружен текущий каталог")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("emulator.cpn.load.throughput", loadThroughput, AtomicLong::get)
+                .description("Скорость последней успешной загрузки каталога, записей в секунду")
+                .register(meterRegistry);
     }
 
     @PostConstruct
     public void loadConfiguration() {
-        try (InputStream is = getClass().getClassLoader().getResourceAsStream(CONFIG_FILE)) {
-            if (is == null) {
-                throw new IllegalStateException("Cannot find " + CONFIG_FILE + " in classpath");
-            }
-            List<Cpn> loadedCpns = objectMapper.readValue(is, new TypeReference<List<Cpn>>() {});
-            this.cpnList.addAll(loadedCpns);
-            log.info("Successfully loaded {} CPNs from configuration", this.cpnList.size());
+        try {
+            CatalogReloadResponse result = reloadNow();
+            log.info("Successfully loaded {} CPNs from configuration", result.size());
         } catch (Exception e) {
             log.error("Failed to load configuration", e);
             throw new IllegalStateException("Could not load configuration", e);
         }
+        if (config.isWatch()) {
+            startWatching();
+        }
+    }
+
+    @PreDestroy
+    public void stopWatching() {
+        if (watcher != null) {
+            watcher.dispose();
+        }
+    }
+
+    /**
+     * Возвращает иммутабельный индексированный каталог CPN.
+     * Используется на горячем пути генерации заказов вместо копирования списка.
+     */
+    public CpnCatalog getCatalog() {
+        return catalog.get();
     }
 
     /**
-     * Возвращает все CPN из конфигурации как Flux
+     * Возвращает все CPN из конфигурации как Flux.
+     * Купоны материализуются из колоночного хранилища по мере запроса подписчиком.
      */
     public Flux<Cpn> getAllCpns() {
-        return Flux.fromIterable(cpnList);
+        return Flux.defer(() -> {
+            CpnCatalog snapshot = catalog.get();
+            return Flux.range(0, snapshot.size()).map(snapshot::get);
+        });
+    }
+
+    /**
+     * Перезагружает каталог вне event loop.
+     * При ошибке чтения или валидации текущий снимок остается без изменений.
+     *
+     * @return Mono с результатом перезагрузки
+     */
+    public Mono<CatalogReloadResponse> reload() {
+        return Mono.fromCallable(this::reloadNow)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Синхронно читает, валидирует и публикует новый снимок каталога.
+     * Параллельные перезагрузки выполняются последовательно.
+     */
+    private CatalogReloadResponse reloadNow() throws IOException {
+        synchronized (reloadLock) {
+            long start = System.nanoTime();
+            try {
+                Resource resource = resourceLoader.getResource(config.getLocation());
+                // Запоминаем версию файла до разбора, чтобы наблюдатель не повторял
+                // заведомо неудачную перезагрузку до следующего изменения файла
+                lastModified = lastModified(resource);
+                CpnCatalogLoader.Result result = loader.load(resource, CpnConfigurationService::validate);
+                CpnCatalog snapshot = result.catalog();
+                if (snapshot.isEmpty()) {
+                    throw new IllegalStateException("CPN catalog is empty");
+                }
+                CpnCatalog previous = catalog.getAndSet(snapshot);
+                sourceBytes.set(result.bytes());
+                loadThroughput.set((long) result.recordsPerSecond());
+                long elapsed = System.nanoTime() - start;
+                reloadSuccessTimer.record(elapsed, TimeUnit.NANOSECONDS);
+                log.info("CPN catalog reloaded from {}: {} -> {} CPNs in {} ms ({} bytes, {} records/s, {} MB/s)",
+                        config.getLocation(), previous.size(), snapshot.size(),
+                        TimeUnit.NANOSECONDS.toMillis(elapsed), result.bytes(),
+                        Math.round(result.recordsPerSecond()), String.format("%.1f", result.megabytesPerSecond()));
+                return new CatalogReloadResponse("success", snapshot.size(),
+                        TimeUnit.NANOSECONDS.toMillis(elapsed), null);
+            } catch (IOException | RuntimeException e) {
+                reloadFailureTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Проверяет, что запись каталога пригодна для генерации заказов.
+     * Вызывается для каждой записи по мере потокового разбора файла.
+     *
+     * @param cpn разобранный купон
+     * @throws IllegalStateException если купон не проходит проверку
+     */
+    private static void validate(Cpn cpn) {
+        if (cpn.offers() == null || cpn.offers().isEmpty()) {
+            throw new IllegalStateException("No offers found in CPN " + cpn.id());
+        }
+        requireNumeric(cpn.omniId(), "omni_id of CPN " + cpn.id());
+        requireNumeric(cpn.offers().get(0).omniId(), "omni_id of first offer of CPN " + cpn.id());
+    }
+
+    private static void requireNumeric(String value, String field) {
+        try {
+            Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Non-numeric " + field + ": " + value);
+        }
+    }
+
+    /**
+     * Запускает периодическую проверку времени изменения файла каталога.
+     * Проверка и перезагрузка выполняются на boundedElastic планировщике.
+     */
+    private void startWatching() {
+        Resource resource = resourceLoader.getResource(config.getLocation());
+        if (lastModified(resource) < 0) {
+            log.warn("CPN catalog {} is not a file, watching is disabled", config.getLocation());
+            return;
+        }
+        watcher = Flux.interval(config.getWatchInterval(), Schedulers.boundedElastic())
+                .filter(tick -> {
+                    long modified = lastModified(resource);
+                    return modified >= 0 && modified != lastModified;
+                })
+                .concatMap(tick -> reload()
+                        .onErrorResume(e -> {
+                            log.error("Failed to reload CPN catalog, keeping previous snapshot", e);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+        log.info("Watching CPN catalog {} every {}", config.getLocation(), config.getWatchInterval());
+    }
+
+    private static long lastModified(Resource resource) {
+        try {
+            return resource.isFile() ? resource.lastModified() : -1L;
+        } catch (IOException e) {
+            return -1L;
+        }
+    }
+
+    private static Timer reloadTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("emulator.cpn.reload")
+                .description("Длительность перезагрузки каталога CPN")
+                .tag("result", result)
+                .register(meterRegistry);
     }
 }
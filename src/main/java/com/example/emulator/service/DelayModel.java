@@ -0,0 +1,238 @@
+package com.example.emulator.service;
+
+import com.example.emulator.config.EmulatorConfig;
+import com.example.emulator.config.EmulatorConfig.Delay.DelayDistribution;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.random.RandomGenerator;
+
+/**
+ * Модель задержки ответа, построенная по {@link EmulatorConfig.Delay}.
+ *
+ * Параметры распределения вычисляются один раз при создании модели, поэтому выборка
+ * сводится к одному-двум вызовам генератора и нескольким арифметическим операциям.
+ * Параметрические распределения подбираются так, чтобы медиана совпадала с p50,
+ * а хвостовой перцентиль (p999, если задан, иначе p99) - с заданным значением.
+ */
+public final class DelayModel {
+    /** Общий предел задержки из валидации настроек */
+    private static final double MAX_DELAY_MS = 10_000;
+    private static final double Z_99 = 2.3263478740408408;
+    private static final double Z_999 = 3.090232306167813;
+
+    private final DelayDistribution distribution;
+    private final double min;
+    private final double max;
+    private final double perOrder;
+    private final Sampler sampler;
+    private final String description;
+
+    /**
+     * Выборка базовой задержки в миллисекундах до ограничения диапазоном.
+     */
+    @FunctionalInterface
+    private interface Sampler {
+        double sample(RandomGenerator random);
+    }
+
+    private DelayModel(EmulatorConfig.Delay config) {
+        if (config.getMin() > config.getMax() && config.getMax() > 0) {
+            throw new IllegalArgumentException("Минимальная задержка больше максимальной");
+        }
+        this.distribution = config.getDistribution();
+        this.min = config.getMin();
+        this.max = config.getMax() > 0 ? config.getMax() : MAX_DELAY_MS;
+        this.perOrder = config.getPerOrder();
+        this.sampler = sampler(config);
+        this.description = describe(config);
+    }
+
+    /**
+     * Строит модель задержки по настройкам.
+     *
+     * @throws IllegalArgumentException если для распределения не заданы нужные перцентили
+     */
+    public static DelayModel of(EmulatorConfig.Delay config) {
+        return new DelayModel(config);
+    }
+
+    /**
+     * Выбирает задержку ответа.
+     *
+     * @param random генератор вызывающего потока
+     * @param orderCount количество заказов в ответе (0, если неприменимо)
+     * @return задержка
+     */
+    public Duration sample(RandomGenerator random, int orderCount) {
+        double ms = Math.min(Math.max(sampler.sample(random), min), max) + perOrder * orderCount;
+        return Duration.ofNanos((long) (ms * 1_000_000));
+    }
+
+    public DelayDistribution getDistribution() {
+        return distribution;
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+
+    private Sampler sampler(EmulatorConfig.Delay config) {
+        return switch (config.getDistribution()) {
+            case UNIFORM -> uniform(config);
+            case NORMAL -> normal(config);
+            case LOG_NORMAL -> logNormal(config);
+            case PARETO -> pareto(config);
+            case EXPONENTIAL -> exponential(config);
+            case EMPIRICAL -> empirical(config);
+        };
+    }
+
+    /**
+     * Равномерное распределение в [min, max] с шагом 1 мс, как в исходной реализации.
+     */
+    private static Sampler uniform(EmulatorConfig.Delay config) {
+        int low = config.getMin();
+        int range = Math.max(config.getMax() - low + 1, 1);
+        return random -> low + random.nextInt(range);
+    }
+
+    private static Sampler normal(EmulatorConfig.Delay config) {
+        double mean = requireP50(config);
+        double sigma = (tailValue(config) - mean) / tailZ(config);
+        return random -> mean + sigma * random.nextGaussian();
+    }
+
+    private static Sampler logNormal(EmulatorConfig.Delay config) {
+        double median = requirePositiveP50(config);
+        double mu = Math.log(median);
+        double sigma = Math.log(tailValue(config) / median) / tailZ(config);
+        return random -> Math.exp(mu + sigma * random.nextGaussian());
+    }
+
+    /**
+     * Парето с квантилем Q(p) = xm / (1 - p)^(1 / alpha):
+     * alpha и xm находятся из отношения хвостового перцентиля к медиане.
+     */
+    private static Sampler pareto(EmulatorConfig.Delay config) {
+        double median = requirePositiveP50(config);
+        double tailPercentile = config.getP999() != null ? 0.999 : 0.99;
+        double alpha = Math.log(0.5 / (1 - tailPercentile)) / Math.log(tailValue(config) / median);
+        double scale = median * Math.pow(0.5, 1 / alpha);
+        double inverseAlpha = 1 / alpha;
+        return random -> scale / Math.pow(1 - random.nextDouble(), inverseAlpha);
+    }
+
+    /**
+     * Экспоненциальное распределение с медианой p50: среднее = p50 / ln 2.
+     */
+    private static Sampler exponential(EmulatorConfig.Delay config) {
+        double mean = requireP50(config) / Math.log(2);
+        return random -> mean * random.nextExponential();
+    }
+
+    /**
+     * Обратная функция распределения, заданная перцентилями и линейно интерполированная между ними.
+     */
+    private static Sampler empirical(EmulatorConfig.Delay config) {
+        TreeMap<Double, Double> points = new TreeMap<>();
+        points.put(0.0, (double) config.getMin());
+        if (config.getP50() != null) {
+            points.put(0.5, config.getP50().doubleValue());
+        }
+        if (config.getP99() != null) {
+            points.put(0.99, config.getP99().doubleValue());
+        }
+        if (config.getP999() != null) {
+            points.put(0.999, config.getP999().doubleValue());
+        }
+        for (Map.Entry<Double, Integer> entry : config.getPercentiles().entrySet()) {
+            double percentile = entry.getKey();
+            if (percentile < 0 || percentile > 100 || entry.getValue() == null || entry.getValue() < 0) {
+                throw new IllegalArgumentException("Некорректный перцентиль задержки: " + entry.getKey());
+            }
+            points.put(percentile / 100, entry.getValue().doubleValue());
+        }
+        if (config.getMax() > 0) {
+            points.putIfAbsent(1.0, (double) config.getMax());
+        }
+        if (points.size() < 2) {
+            throw new IllegalArgumentException("Для распределения empirical нужен хотя бы один перцентиль");
+        }
+
+        double[] quantiles = new double[points.size()];
+        double[] values = new double[points.size()];
+        int i = 0;
+        for (Map.Entry<Double, Double> point : points.entrySet()) {
+            quantiles[i] = point.getKey();
+            values[i] = point.getValue();
+            if (i > 0 && values[i] < values[i - 1]) {
+                throw new IllegalArgumentException("Перцентили задержки должны не убывать");
+            }
+            i++;
+        }
+        return random -> interpolate(quantiles, values, random.nextDouble());
+    }
+
+    private static double interpolate(double[] quantiles, double[] values, double u) {
+        int last = quantiles.length - 1;
+        if (u >= quantiles[last]) {
+            return values[last];
+        }
+        int i = 1;
+        while (quantiles[i] < u) {
+            i++;
+        }
+        double from = quantiles[i - 1];
+        double span = quantiles[i] - from;
+        return values[i - 1] + (values[i] - values[i - 1]) * (u - from) / span;
+    }
+
+    private static double requireP50(EmulatorConfig.Delay config) {
+        if (config.getP50() == null) {
+            throw new IllegalArgumentException("Для распределения " + config.getDistribution() + " нужен p50");
+        }
+        return config.getP50();
+    }
+
+    private static double requirePositiveP50(EmulatorConfig.Delay config) {
+        double p50 = requireP50(config);
+        if (p50 <= 0) {
+            throw new IllegalArgumentException("Для распределения " + config.getDistribution() + " p50 должен быть больше 0");
+        }
+        return p50;
+    }
+
+    private static double tailValue(EmulatorConfig.Delay config) {
+        Integer tail = config.getP999() != null ? config.getP999() : config.getP99();
+        if (tail == null || tail <= config.getP50()) {
+            throw new IllegalArgumentException("Для распределения " + config.getDistribution()
+                    + " нужен p99 или p999 больше p50");
+        }
+        return tail;
+    }
+
+    private static double tailZ(EmulatorConfig.Delay config) {
+        return config.getP999() != null ? Z_999 : Z_99;
+    }
+
+    private static String describe(EmulatorConfig.Delay config) {
+        StringBuilder sb = new StringBuilder(config.getDistribution().name().toLowerCase())
+                .append(" [").append(config.getMin()).append(" - ").append(config.getMax()).append(" ms]");
+        if (config.getP50() != null) {
+            sb.append(" p50=").append(config.getP50());
+        }
+        if (config.getP99() != null) {
+            sb.append(" p99=").append(config.getP99());
+        }
+        if (config.getP999() != null) {
+            sb.append(" p999=").append(config.getP999());
+        }
+        if (config.getPerOrder() > 0) {
+            sb.append(" +").append(config.getPerOrder()).append(" ms/order");
+        }
+        return sb.toString();
+    }
+}
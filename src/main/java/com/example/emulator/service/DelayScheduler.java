@@ -0,0 +1,115 @@
+package com.example.emulator.service;
+
+import com.example.emulator.config.EmulatorConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.internal.ThreadExecutorMap;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Планировщик эмулируемых задержек ответа.
+ *
+ * delayElement() ставит каждую задержку в ScheduledThreadPoolExecutor Schedulers.parallel(),
+ * очередь которого - двоичная куча под блокировкой: O(log n) на постановку и отмену
+ * и конкуренция потоков при сотнях тысяч ожидающих ответов.
+ * Здесь задержки ставятся в {@link HashedWheelTimer}: постановка и отмена - O(1)
+ * через lock-free очередь, срабатывание - с точностью до одного тика.
+ *
+ * Поток колеса только отмечает срок: продолжение обработки передается обратно в event loop,
+ * из которого была поставлена задержка, поэтому ответ формируется и пишется в том же потоке
+ * Netty, что и принятый запрос. Вне event loop продолжение выполняется в Schedulers.parallel().
+ */
+@Service
+public class DelayScheduler {
+    private static final Logger log = LoggerFactory.getLogger(DelayScheduler.class);
+
+    private final HashedWheelTimer wheel;
+
+    public DelayScheduler(EmulatorConfig emulatorConfig, MeterRegistry meterRegistry) {
+        EmulatorConfig.Scheduler config = emulatorConfig.getScheduler();
+        if (config.getType() == EmulatorConfig.Scheduler.SchedulerType.WHEEL) {
+            this.wheel = new HashedWheelTimer(new DefaultThreadFactory("emulator-delay-wheel", true),
+                    config.getTickDuration().toNanos(), TimeUnit.NANOSECONDS, config.getTicksPerWheel());
+            this.wheel.start();
+            Gauge.builder("emulator.delay.scheduler.pending", wheel, HashedWheelTimer::pendingTimeouts)
+                    .description("Количество ожидающих эмулируемых задержек")
+                    .register(meterRegistry);
+            log.info("Delay scheduler: timer wheel, tick {}, {} ticks per wheel",
+                    config.getTickDuration(), config.getTicksPerWheel());
+        } else {
+            this.wheel = null;
+            log.info("Delay scheduler: reactor parallel scheduler");
+        }
+    }
+
+    /**
+     * Возвращает Mono, завершающийся через заданное время, без учета опоздания в метриках.
+     *
+     * @param delay задержка
+     * @return пустой Mono, завершающийся по истечении задержки
+     */
+    public Mono<Void> delay(Duration delay) {
+        return delay(delay, null);
+    }
+
+    /**
+     * Возвращает Mono, завершающийся через заданное время.
+     * Отмена подписки снимает задержку с колеса.
+     *
+     * @param delay задержка
+     * @param lateness таймер для опоздания срабатывания относительно срока или null
+     * @return пустой Mono, завершающийся по истечении задержки
+     */
+    public Mono<Void> delay(Duration delay, @Nullable Timer lateness) {
+        if (wheel == null) {
+            return Mono.defer(() -> {
+                long deadline = System.nanoTime() + delay.toNanos();
+                return Mono.delay(delay, Schedulers.parallel())
+                        .doOnNext(tick -> recordLateness(lateness, deadline))
+                        .then();
+            });
+        }
+        return Mono.create(sink -> {
+            long delayNanos = delay.toNanos();
+            long deadline = System.nanoTime() + delayNanos;
+            EventExecutor eventLoop = ThreadExecutorMap.currentExecutor();
+            Timeout timeout = wheel.newTimeout(t -> {
+                recordLateness(lateness, deadline);
+                if (eventLoop != null && !eventLoop.isShuttingDown()) {
+                    eventLoop.execute(sink::success);
+                } else {
+                    Schedulers.parallel().schedule(sink::success);
+                }
+            }, delayNanos, TimeUnit.NANOSECONDS);
+            sink.onCancel(timeout::cancel);
+        });
+    }
+
+    private static void recordLateness(@Nullable Timer lateness, long deadline) {
+        if (lateness == null) {
+            return;
+        }
+        lateness.record(Math.max(System.nanoTime() - deadline, 0), TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (wheel != null) {
+            wheel.stop().forEach(Timeout::cancel);
+        }
+    }
+}
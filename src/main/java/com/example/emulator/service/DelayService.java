@@ -0,0 +1,107 @@
+package com.example.emulator.service;
+
+import com.example.emulator.config.EmulatorConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Выбор задержки ответа для эмулируемых эндпоинтов.
+ *
+ * Для каждого эндпоинта используется его профиль из emulator.delay.endpoints,
+ * либо общий профиль emulator.delay. Для маршрутов emulator.mocks.routes эндпоинт - имя маршрута,
+ * а задержка, заданная в самом маршруте, заменяет профиль из emulator.delay.endpoints.
+ * Примененные задержки публикуются как гистограмма emulator.delay.applied{endpoint, limit},
+ * по которой можно проверить достигнутые перцентили (см. {@link ResponseMetrics}).
+ * Сами задержки отсчитываются {@link DelayScheduler}; выбранная задержка записывается
+ * в {@link EmulatedDelay} из контекста запроса, если он там есть.
+ */
+@Service
+public class DelayService {
+    private static final Logger log = LoggerFactory.getLogger(DelayService.class);
+
+    /** Общий эмулятор /api/back/v1/emulate */
+    public static final String ENDPOINT_EMULATE = "emulate";
+    /** Эмулятор заказов /api/back/v1/cpn/orders */
+    public static final String ENDPOINT_ORDERS = "orders";
+    /** Воспроизведение записанных ответов (см. {@link ReplayService}) */
+    public static final String ENDPOINT_REPLAY = "replay";
+    /** Имена встроенных эндпоинтов: заняты для профилей задержки и тега endpoint метрик */
+    public static final Set<String> BUILT_IN_ENDPOINTS = Set.of(ENDPOINT_EMULATE, ENDPOINT_ORDERS, ENDPOINT_REPLAY);
+
+    private final RandomSource randomSource;
+    private final DelayScheduler delayScheduler;
+    private final ResponseMetrics responseMetrics;
+    private final DelayModel defaultModel;
+    private final Map<String, DelayModel> endpointModels = new HashMap<>();
+
+    public DelayService(EmulatorConfig emulatorConfig, RandomSource randomSource, DelayScheduler delayScheduler,
+                        ResponseMetrics responseMetrics) {
+        this.randomSource = randomSource;
+        this.delayScheduler = delayScheduler;
+        this.responseMetrics = responseMetrics;
+        EmulatorConfig.Delay config = emulatorConfig.getDelay();
+        this.defaultModel = DelayModel.of(config);
+        config.getEndpoints().forEach((endpoint, profile) -> endpointModels.put(endpoint, DelayModel.of(profile)));
+        emulatorConfig.getMocks().getRoutes().stream()
+                .filter(route -> route.getDelay() != null)
+                .forEach(route -> endpointModels.put(route.getName(), DelayModel.of(route.getDelay())));
+        log.info("Default delay model: {}", defaultModel);
+        endpointModels.forEach((endpoint, model) -> log.info("Delay model for {}: {}", endpoint, model));
+    }
+
+    /**
+     * Возвращает Mono, завершающийся после задержки эндпоинта.
+     * Задержка выбирается при подписке, а не при сборке цепочки.
+     *
+     * @param endpoint имя эндпоинта (см. константы ENDPOINT_*)
+     * @param orderCount количество заказов в ответе для задержки, зависящей от размера
+     * @return пустой Mono, завершающийся по истечении задержки
+     */
+    public Mono<Void> delay(String endpoint, int orderCount) {
+        return delay(responseMetrics.meters(endpoint, orderCount), orderCount);
+    }
+
+    /**
+     * Возвращает Mono, завершающийся после задержки эндпоинта, и учитывает задержку
+     * в уже выбранных метриках запроса.
+     *
+     * @param meters метрики эндпоинта запроса
+     * @param orderCount количество заказов в ответе для задержки, зависящей от размера
+     * @return пустой Mono, завершающийся по истечении задержки
+     */
+    public Mono<Void> delay(ResponseMetrics.Meters meters, int orderCount) {
+        return Mono.defer(() -> delay(meters,
+                model(meters.getEndpoint()).sample(randomSource.generator(), orderCount)));
+    }
+
+    /**
+     * Возвращает Mono, завершающийся после заданной задержки (например, записанной в ответе
+     * для воспроизведения), с тем же учетом в метриках и заголовке, что и у выбранных по модели.
+     *
+     * @param meters метрики эндпоинта запроса
+     * @param delay задержка
+     * @return пустой Mono, завершающийся по истечении задержки
+     */
+    public Mono<Void> delay(ResponseMetrics.Meters meters, Duration delay) {
+        return Mono.deferContextual(context -> {
+            meters.recordDelay(delay);
+            log.debug("Emulated delay for {}: {} ms", meters.getEndpoint(), delay.toMillis());
+            context.<EmulatedDelay>getOrEmpty(EmulatedDelay.CONTEXT_KEY).ifPresent(holder -> holder.set(delay));
+            return delayScheduler.delay(delay, meters.lateness());
+        });
+    }
+
+    /**
+     * @return модель задержки эндпоинта
+     */
+    public DelayModel model(String endpoint) {
+        return endpointModels.getOrDefault(endpoint, defaultModel);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.emulator.service;
+
+import java.time.Duration;
+
+/**
+ * Эмулированная задержка текущего запроса.
+ *
+ * Экземпляр кладется в контекст Reactor веб-фильтром по ключу {@link #CONTEXT_KEY},
+ * {@link DelayService} записывает в него выбранную задержку, а фильтр возвращает ее
+ * клиенту в заголовке {@link #HEADER}. По этому заголовку генератор нагрузки
+ * отделяет собственные накладные расходы эмулятора от заданной задержки.
+ */
+public final class EmulatedDelay {
+    /** Заголовок ответа с задержкой в миллисекундах (три знака после точки) */
+    public static final String HEADER = "X-Emulated-Delay";
+    public static final Class<EmulatedDelay> CONTEXT_KEY = EmulatedDelay.class;
+
+    private volatile long nanos = -1;
+
+    void set(Duration delay) {
+        this.nanos = delay.toNanos();
+    }
+
+    public boolean isSet() {
+        return nanos >= 0;
+    }
+
+    /**
+     * @return задержка в наносекундах или -1, если задержка не применялась
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * @return задержка в миллисекундах с точностью до микросекунды, например "123.456"
+     */
+    public String toHeaderValue() {
+        long micros = nanos / 1000;
+        long fraction = micros % 1000;
+        StringBuilder sb = new StringBuilder(12).append(micros / 1000).append('.');
+        if (fraction < 100) {
+            sb.append('0');
+        }
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction).toString();
+    }
+
+    /**
+     * Разбирает значение заголовка {@link #HEADER}.
+     *
+     * @return задержка в наносекундах или -1, если заголовок отсутствует или некорректен
+     */
+    public static long parseHeaderValue(String value) {
+        if (value == null || value.isEmpty()) {
+            return -1;
+        }
+        try {
+            return (long) (Double.parseDouble(value) * 1_000_000);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -7,22 +7,21 @@
  *    - Отвечает за генерацию ответа с задержкой
  *
  * 2. Ключевые компоненты:
- *    - EmulatorConfig: настройки задержки из application.yml
+ *    - DelayService: задержка по модели из application.yml
  *    - EmulatorResponse: DTO для формирования ответа
+ *    - TimestampService: общий источник отформатированного времени
+ *    - ResponseMetrics: время сборки ответа отдельно от задержки
  *    - Mono: реактивный тип для асинхронной обработки
  */
 
 package com.example.emulator.service;
 
-import com.example.emulator.config.EmulatorConfig;
 import com.example.emulator.dto.EmulatorResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
-import java.time.Duration;
-import java.util.Random;
 
 /**
  * Сервис, реализующий бизнес-логику эмулятора.
@@ -32,56 +31,47 @@ import java.util.Random;
 public class EmulatorService {
     private static final Logger log = LoggerFactory.getLogger(EmulatorService.class);
     
-    // Генератор случайных чисел для задержки
-    private final Random random;
-    
-    // Минимальная задержка из конфигурации
-    private final int minDelay;
-    
-    // Максимальная задержка из конфигурации
-    private final int maxDelay;
-    
-    // Диапазон задержки (кэшируется для оптимизации)
-    private final int delayRange;
+    // Источник времени для ответа
+    private final TimestampService timestampService;
+
+    // Выбор задержки по настроенному распределению
+    private final DelayService delayService;
+
+    // Метрики эндпоинта emulate (limit=none)
+    private final ResponseMetrics.Meters meters;
 
     /**
      * Конструктор сервиса с внедрением зависимостей (Dependency Injection).
-     * Инициализирует все необходимые поля и вычисляет диапазон задержки.
      *
-     * @param config - конфигурация из application.yml
+     * @param timestampService - источник времени для ответа
+     * @param delayService - выбор и отсчет задержки по модели эндпоинта
+     * @param responseMetrics - метрики этапов обработки ответа
      */
-    public EmulatorService(EmulatorConfig config) {
-        this.random = new Random();
-        this.minDelay = config.getDelay().getMin();
-        this.maxDelay = config.getDelay().getMax();
-        // Кэшируем разницу для оптимизации генерации случайных чисел
-        this.delayRange = maxDelay - minDelay + 1;
-        log.info("Сервис инициализирован с задержкой {} - {} мс", minDelay, maxDelay);
+    public EmulatorService(TimestampService timestampService, DelayService delayService,
+                           ResponseMetrics responseMetrics) {
+        this.timestampService = timestampService;
+        this.delayService = delayService;
+        this.meters = responseMetrics.meters(DelayService.ENDPOINT_EMULATE);
+        log.info("Сервис инициализирован с задержкой {}", delayService.model(DelayService.ENDPOINT_EMULATE));
     }
 
     /**
      * Генерирует ответ с заданной задержкой.
-     * Задержка выбирается случайным образом из заданного диапазона.
+     * Задержка выбирается по распределению, настроенному для эндпоинта emulate.
      *
      * @return Mono<EmulatorResponse> - реактивная обертка над DTO ответом
      */
     public Mono<EmulatorResponse> getEmulatedResponse() {
-        Duration delay = getRandomDelay();
-        log.debug("Запрос получен, ответ будет отправлен через: {} мс", delay.toMillis());
-        
-        return Mono.just(EmulatorResponse.createResponse())
-                .delayElement(delay);
-    }
+        log.debug("Запрос получен");
 
-    /**
-     * Генерирует случайную задержку в заданном диапазоне.
-     * Использует кэшированный диапазон для оптимизации.
-     *
-     * @return Duration - объект длительности для WebFlux
-     */
-    private Duration getRandomDelay() {
-        return Duration.ofMillis(random.nextInt(delayRange) + minDelay);
+        return delayService.delay(meters, 0)
+                .then(Mono.fromSupplier(() -> {
+                    long start = System.nanoTime();
+                    EmulatorResponse response = EmulatorResponse.createResponse(
+                            timestampService.currentTimeMillis(), timestampService.now());
+                    meters.recordConstruction(System.nanoTime() - start);
+                    return response;
+                }));
     }
 
-
 }
@@ -0,0 +1,150 @@
+package com.example.emulator.service;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Низкоуровневые операции над JSON в виде байтов:
+ * запись чисел и строк в DataBuffer и навигация по уже сериализованному документу.
+ *
+ * Числа и ASCII-строки без спецсимволов до {@link #SCRATCH_SIZE} символов собираются в буфере потока
+ * и пишутся одним вызовом write без выделения памяти. Строки, требующие экранирования,
+ * и более длинные строки кодируются с выделением массива.
+ */
+public final class JsonBytes {
+    /** Размер буфера потока: вмещает любое long и типичные значения полей (id, время, UUID) */
+    static final int SCRATCH_SIZE = 128;
+
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[SCRATCH_SIZE]);
+
+    private JsonBytes() {
+    }
+
+    /**
+     * Записывает десятичное представление числа.
+     */
+    public static void writeLong(DataBuffer out, long value) {
+        if (value == Long.MIN_VALUE) {
+            out.write(MIN_LONG);
+            return;
+        }
+        byte[] scratch = SCRATCH.get();
+        boolean negative = value < 0;
+        if (negative) {
+            value = -value;
+        }
+        int pos = scratch.length;
+        do {
+            scratch[--pos] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        if (negative) {
+            scratch[--pos] = '-';
+        }
+        out.write(scratch, pos, scratch.length - pos);
+    }
+
+    /**
+     * Записывает содержимое JSON-строки (без кавычек).
+     * ASCII-строки без спецсимволов пишутся напрямую, остальные экранируются Jackson.
+     */
+    public static void writeStringContent(DataBuffer out, String value) {
+        int length = value.length();
+        byte[] bytes = length <= SCRATCH_SIZE ? SCRATCH.get() : new byte[length];
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x20 || c >= 0x7F || c == '"' || c == '\\') {
+                out.write(JsonStringEncoder.getInstance().quoteAsUTF8(value));
+                return;
+            }
+            bytes[i] = (byte) c;
+        }
+        out.write(bytes, 0, length);
+    }
+
+    /**
+     * Пропускает пробельные символы.
+     *
+     * @return позиция первого непробельного символа
+     */
+    public static int skipWhitespace(byte[] json, int pos) {
+        while (pos < json.length && (json[pos] == ' ' || json[pos] == '\n' || json[pos] == '\r' || json[pos] == '\t')) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Пропускает JSON-значение, начинающееся с позиции pos.
+     *
+     * @return позиция сразу за значением
+     */
+    public static int skipValue(byte[] json, int pos) {
+        byte first = json[pos];
+        if (first == '"') {
+            return skipString(json, pos);
+        }
+        if (first != '{' && first != '[') {
+            while (pos < json.length && json[pos] != ',' && json[pos] != '}' && json[pos] != ']'
+                    && json[pos] != ' ' && json[pos] != '\n' && json[pos] != '\r' && json[pos] != '\t') {
+                pos++;
+            }
+            return pos;
+        }
+        int depth = 0;
+        while (pos < json.length) {
+            byte b = json[pos];
+            if (b == '"') {
+                pos = skipString(json, pos);
+                continue;
+            }
+            if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+                if (depth == 0) {
+                    return pos + 1;
+                }
+            }
+            pos++;
+        }
+        throw new IllegalArgumentException("Unterminated JSON value");
+    }
+
+    /**
+     * Находит первое вхождение последовательности байтов.
+     *
+     * @return позиция вхождения или -1
+     */
+    public static int indexOf(byte[] source, byte[] target, int from) {
+        outer:
+        for (int i = Math.max(from, 0); i <= source.length - target.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (source[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static int skipString(byte[] json, int pos) {
+        pos++;
+        while (pos < json.length) {
+            byte b = json[pos];
+            if (b == '\\') {
+                pos += 2;
+                continue;
+            }
+            if (b == '"') {
+                return pos + 1;
+            }
+            pos++;
+        }
+        throw new IllegalArgumentException("Unterminated JSON string");
+    }
+}
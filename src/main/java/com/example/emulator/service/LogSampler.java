@@ -0,0 +1,53 @@
+package com.example.emulator.service;
+
+import com.example.emulator.config.EmulatorConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Выборка запросов для логирования на горячем пути.
+ *
+ * Решение принимается по хэшу RqUID, поэтому все строки одного запроса либо пишутся,
+ * либо нет, и по RqUID из лога клиента можно найти запрос в логе эмулятора при том же
+ * значении emulator.logging.sample-rate. Проверка не выделяет памяти и не обращается
+ * к генератору случайных чисел.
+ */
+@Service
+public class LogSampler {
+    private static final Logger log = LoggerFactory.getLogger(LogSampler.class);
+    private static final long HASH_RANGE = 1L << 32;
+
+    /** Запрос логируется, если беззнаковый 32-битный хэш RqUID меньше порога */
+    private final long threshold;
+
+    public LogSampler(EmulatorConfig emulatorConfig) {
+        double sampleRate = emulatorConfig.getLogging().getSampleRate();
+        this.threshold = sampleRate >= 1 ? HASH_RANGE : (long) (sampleRate * HASH_RANGE);
+        log.info("Request log sample rate: {}", sampleRate);
+    }
+
+    /**
+     * @param requestId RqUID запроса (может быть null)
+     * @return true, если строки лога этого запроса нужно писать
+     */
+    public boolean isSampled(String requestId) {
+        if (requestId == null || threshold == 0) {
+            return false;
+        }
+        return (mix(requestId.hashCode()) & 0xFFFFFFFFL) < threshold;
+    }
+
+    /**
+     * Финализатор MurmurHash3: последовательные RqUID вида loadgen-1, loadgen-2
+     * отличаются в младших битах String.hashCode и без перемешивания попадали бы в выборку подряд.
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.emulator.service;
+
+import java.util.Arrays;
+
+/**
+ * Компактный индекс long -> int на открытой адресации с линейным пробированием.
+ *
+ * Не упаковывает ключи и значения в объекты, поэтому на каталоге из сотен тысяч CPN
+ * занимает в разы меньше памяти, чем HashMap<Long, Integer>.
+ * Заполняется один раз при построении каталога, далее только читается.
+ * При повторной вставке существующего ключа сохраняется первое значение.
+ */
+final class LongIntIndex {
+    static final int MISSING = -1;
+
+    private final long[] keys;
+    private final int[] values;
+    private final int mask;
+    private int size;
+
+    LongIntIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(values, MISSING);
+    }
+
+    /**
+     * Добавляет ключ, если его еще нет в индексе.
+     *
+     * @return true если ключ добавлен
+     */
+    boolean putIfAbsent(long key, int value) {
+        int slot = slot(key);
+        while (values[slot] != MISSING) {
+            if (keys[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * @return значение для ключа или {@link #MISSING}
+     */
+    int get(long key) {
+        int slot = slot(key);
+        int value;
+        while ((value = values[slot]) != MISSING) {
+            if (keys[slot] == key) {
+                return value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int slot(long key) {
+        // Финализатор fmix64 из MurmurHash3, чтобы последовательные id не образовывали кластеры
+        long h = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return (int) (h ^ (h >>> 33)) & mask;
+    }
+}
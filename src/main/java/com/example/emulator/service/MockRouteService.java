@@ -0,0 +1,266 @@
+package com.example.emulator.service;
+
+import com.example.emulator.config.EmulatorConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Эмулируемые эндпоинты, описанные в конфигурации (emulator.mocks.routes), без отдельного класса на каждый.
+ *
+ * Шаблоны всех маршрутов читаются и компилируются в {@link MockTemplate} при старте: ошибка в шаблоне
+ * или неизвестная подстановка не дают приложению запуститься. Ответ маршрута - задержка профиля маршрута
+ * (см. {@link DelayService}), затем сборка тела из сегментов шаблона и значений подстановок:
+ * - method, path - метод и путь запроса;
+ * - header.{имя}, query.{имя}, var.{имя} - заголовок, параметр запроса, переменная шаблона пути;
+ * - body, body.{поле}.{индекс}... - тело запроса (JSON) или его поле;
+ * - seq - счетчик запросов маршрута, seq.{имя} - именованный счетчик, общий для всех маршрутов;
+ * - random.uuid, random.int, random.int(min,max) (включительно), random.boolean;
+ * - now - текущее время в формате ответов, now.millis и now.seconds - с начала эпохи.
+ * Отсутствующее значение запроса подставляется пустым. Тело запроса читается, только если шаблон на него ссылается.
+ *
+ * Задержка и время сборки тела учитываются в {@link ResponseMetrics} с тегом endpoint - именем маршрута,
+ * поэтому имя не может совпадать с именем встроенного эндпоинта ({@link DelayService#BUILT_IN_ENDPOINTS}).
+ */
+@Service
+public class MockRouteService {
+    private static final Logger log = LoggerFactory.getLogger(MockRouteService.class);
+    private static final Pattern RANDOM_INT = Pattern.compile("random\\.int\\(\\s*(-?\\d+)\\s*,\\s*(-?\\d+)\\s*\\)");
+
+    private final DelayService delayService;
+    private final RandomSource randomSource;
+    private final TimestampService timestampService;
+    private final Map<String, AtomicLong> namedCounters = new ConcurrentHashMap<>();
+    private final List<Route> routes = new ArrayList<>();
+
+    public MockRouteService(EmulatorConfig emulatorConfig,
+                            ResourceLoader resourceLoader,
+                            DelayService delayService,
+                            ResponseMetrics responseMetrics,
+                            RandomSource randomSource,
+                            TimestampService timestampService) {
+        this.delayService = delayService;
+        this.randomSource = randomSource;
+        this.timestampService = timestampService;
+        Set<String> names = new HashSet<>();
+        for (EmulatorConfig.Mocks.Route config : emulatorConfig.getMocks().getRoutes()) {
+            if (config.getName() == null || config.getPath() == null) {
+                throw new IllegalArgumentException("Mock route requires name and path");
+            }
+            if (DelayService.BUILT_IN_ENDPOINTS.contains(config.getName())) {
+                throw new IllegalArgumentException("Mock route name " + config.getName()
+                        + " is reserved for a built-in endpoint");
+            }
+            if (!names.add(config.getName())) {
+                throw new IllegalArgumentException("Duplicate mock route name: " + config.getName());
+            }
+            try {
+                routes.add(compile(config, resourceLoader, responseMetrics));
+            } catch (IOException | IllegalArgumentException e) {
+                throw new IllegalStateException("Could not compile mock route " + config.getName(), e);
+            }
+            log.info("Mock route {}: {} {} -> {} ({})", config.getName(), config.getMethod(), config.getPath(),
+                    config.getStatus(), config.getTemplate() != null ? config.getTemplate() : "inline body");
+        }
+    }
+
+    /**
+     * @return скомпилированные маршруты в порядке конфигурации
+     */
+    public List<Route> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * Скомпилированный маршрут.
+     */
+    public static final class Route {
+        private final String name;
+        private final String method;
+        private final String path;
+        private final HttpStatusCode status;
+        private final MediaType contentType;
+        private final HttpHeaders headers;
+        private final MockTemplate template;
+        private final ResponseMetrics.Meters meters;
+        private final AtomicLong counter;
+
+        private Route(EmulatorConfig.Mocks.Route config, MediaType contentType, MockTemplate template,
+                      ResponseMetrics.Meters meters, AtomicLong counter) {
+            this.name = config.getName();
+            this.method = config.getMethod();
+            this.path = config.getPath();
+            this.status = HttpStatusCode.valueOf(config.getStatus());
+            this.contentType = contentType;
+            this.headers = new HttpHeaders();
+            config.getHeaders().forEach(headers::add);
+            this.template = template;
+            this.meters = meters;
+            this.counter = counter;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getPath() {
+            return path;
+        }
+    }
+
+    /**
+     * Отвечает на запрос маршрута: задержка, затем тело по шаблону.
+     *
+     * @param route маршрут
+     * @param request запрос
+     * @return Mono с ответом
+     */
+    public Mono<ServerResponse> respond(Route route, ServerRequest request) {
+        Mono<JsonNode> body = route.template.needsBody()
+                ? request.bodyToMono(JsonNode.class).defaultIfEmpty(MissingNode.getInstance())
+                : Mono.just(MissingNode.getInstance());
+        return body.flatMap(json -> delayService.delay(route.meters, 0)
+                .then(Mono.defer(() -> {
+                    long start = System.nanoTime();
+                    DataBuffer buffer = route.template.render(request, json,
+                            request.exchange().getResponse().bufferFactory());
+                    route.meters.recordSerialization(System.nanoTime() - start, buffer.readableByteCount());
+                    return ServerResponse.status(route.status)
+                            .contentType(route.contentType)
+                            .contentLength(buffer.readableByteCount())
+                            .headers(headers -> headers.putAll(route.headers))
+                            .body(BodyInserters.fromDataBuffers(Mono.just(buffer)));
+                })));
+    }
+
+    private Route compile(EmulatorConfig.Mocks.Route config, ResourceLoader resourceLoader,
+                          ResponseMetrics responseMetrics) throws IOException {
+        if ((config.getTemplate() == null) == (config.getBody() == null)) {
+            throw new IllegalArgumentException("Exactly one of template and body must be set");
+        }
+        byte[] source;
+        if (config.getTemplate() != null) {
+            try (InputStream in = resourceLoader.getResource(config.getTemplate()).getInputStream()) {
+                source = in.readAllBytes();
+            }
+        } else {
+            source = config.getBody().getBytes(StandardCharsets.UTF_8);
+        }
+        MediaType contentType = MediaType.parseMediaType(config.getContentType());
+        boolean json = MediaType.APPLICATION_JSON.isCompatibleWith(contentType)
+                || (contentType.getSubtypeSuffix() != null && contentType.getSubtypeSuffix().equals("json"));
+        AtomicLong counter = new AtomicLong();
+        MockTemplate template = MockTemplate.compile(source, json,
+                expression -> placeholder(expression, config.getPath(), counter));
+        return new Route(config, contentType, template, responseMetrics.meters(config.getName()), counter);
+    }
+
+    private MockTemplate.Placeholder placeholder(String expression, String path, AtomicLong routeCounter) {
+        switch (expression) {
+            case "method":
+                return (request, body) -> request.method().name();
+            case "path":
+                return (request, body) -> request.path();
+            case "body":
+                return new BodyField(new String[0]);
+            case "seq":
+                return (request, body) -> routeCounter.incrementAndGet();
+            case "random.uuid":
+                return (request, body) -> randomSource.uuid().toString();
+            case "random.int":
+                return (request, body) -> (long) randomSource.generator().nextInt(Integer.MAX_VALUE);
+            case "random.boolean":
+                return (request, body) -> randomSource.generator().nextBoolean();
+            case "now":
+                return (request, body) -> timestampService.now();
+            case "now.millis":
+                return (request, body) -> timestampService.currentTimeMillis();
+            case "now.seconds":
+                return (request, body) -> timestampService.epochSecond();
+            default:
+                break;
+        }
+        int dot = expression.indexOf('.');
+        String prefix = dot > 0 ? expression.substring(0, dot) : expression;
+        String name = dot > 0 ? expression.substring(dot + 1) : "";
+        if (!name.isEmpty()) {
+            switch (prefix) {
+                case "header":
+                    return (request, body) -> request.headers().firstHeader(name);
+                case "query":
+                    return (request, body) -> request.queryParam(name).orElse(null);
+                case "var":
+                    if (!path.contains("{" + name + "}") && !path.contains("{*" + name + "}")) {
+                        throw new IllegalArgumentException("Path " + path + " has no variable " + name);
+                    }
+                    return (request, body) -> request.pathVariables().get(name);
+                case "body":
+                    return new BodyField(name.split("\\."));
+                case "seq":
+                    AtomicLong counter = namedCounters.computeIfAbsent(name, key -> new AtomicLong());
+                    return (request, body) -> counter.incrementAndGet();
+                default:
+                    break;
+            }
+        }
+        Matcher randomInt = RANDOM_INT.matcher(expression);
+        if (randomInt.matches()) {
+            long min = Long.parseLong(randomInt.group(1));
+            long max = Long.parseLong(randomInt.group(2));
+            if (min > max) {
+                throw new IllegalArgumentException("Empty range in {{" + expression + "}}");
+            }
+            return (request, body) -> randomSource.generator().nextLong(min, max + 1);
+        }
+        throw new IllegalArgumentException("Unknown placeholder {{" + expression + "}}");
+    }
+
+    /**
+     * Поле тела запроса: имена полей объектов и индексы элементов массивов.
+     */
+    private record BodyField(String[] path) implements MockTemplate.Placeholder {
+        @Override
+        public Object value(ServerRequest request, JsonNode body) {
+            JsonNode node = body;
+            for (String segment : path) {
+                node = node.isArray() && !segment.isEmpty() && segment.chars().allMatch(Character::isDigit)
+                        ? node.path(Integer.parseInt(segment))
+                        : node.path(segment);
+            }
+            return node.isMissingNode() || node.isNull() ? null : node;
+        }
+
+        @Override
+        public boolean needsBody() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.emulator.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.web.reactive.function.server.ServerRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Шаблон тела ответа эмулируемого маршрута (emulator.mocks.routes) с подстановками вида {{выражение}}.
+ *
+ * При компиляции каждое различное выражение превращается в слот {@link ByteTemplate}, а значение
+ * слота вычисляется {@link Placeholder}, который строит {@link MockRouteService}. При ответе значения
+ * всех слотов вычисляются один раз (одно выражение, встреченное в шаблоне несколько раз, дает одно значение),
+ * после чего тело собирается копированием статических сегментов.
+ *
+ * Строки пишутся с экранированием JSON, если шаблон JSON, иначе как есть в UTF-8;
+ * числа - десятичной записью; узлы JSON, кроме строк, - их JSON-представлением.
+ * Кавычки вокруг подстановки задаются в самом шаблоне: "id": "{{var.id}}", "seq": {{seq}}.
+ */
+public final class MockTemplate {
+    private static final byte[] OPEN = "{{".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CLOSE = "}}".getBytes(StandardCharsets.US_ASCII);
+    /** Оценка размера одного значения для начального размера буфера */
+    private static final int VALUE_SIZE_ESTIMATE = 32;
+
+    /**
+     * Значение подстановки.
+     */
+    public interface Placeholder {
+        /**
+         * @param request запрос
+         * @param body тело запроса, разобранное как JSON (MissingNode, если тело не требуется или пустое)
+         * @return String, Long, JsonNode или null (пустое значение)
+         */
+        @Nullable
+        Object value(ServerRequest request, JsonNode body);
+
+        /**
+         * @return true, если значению нужно тело запроса
+         */
+        default boolean needsBody() {
+            return false;
+        }
+    }
+
+    private final ByteTemplate template;
+    private final Placeholder[] placeholders;
+    private final boolean json;
+    private final boolean needsBody;
+
+    private MockTemplate(ByteTemplate template, Placeholder[] placeholders, boolean json) {
+        this.template = template;
+        this.placeholders = placeholders;
+        this.json = json;
+        boolean body = false;
+        for (Placeholder placeholder : placeholders) {
+            body |= placeholder.needsBody();
+        }
+        this.needsBody = body;
+    }
+
+    /**
+     * Компилирует шаблон.
+     *
+     * @param source байты шаблона (UTF-8)
+     * @param json экранировать строковые значения как содержимое JSON-строк
+     * @param resolver строит значение по тексту выражения без фигурных скобок и пробелов по краям;
+     *                 для неизвестного выражения бросает IllegalArgumentException
+     * @return скомпилированный шаблон
+     * @throws IllegalArgumentException если шаблон содержит незакрытую подстановку или неизвестное выражение
+     */
+    public static MockTemplate compile(byte[] source, boolean json, Function<String, Placeholder> resolver) {
+        if (JsonBytes.indexOf(source, new byte[] { 0 }, 0) >= 0) {
+            throw new IllegalArgumentException("Template must not contain NUL bytes");
+        }
+        // Выражения заменяются маркерами \0<слот>\0, которые не встречаются в тексте шаблона
+        Map<String, Integer> slots = new LinkedHashMap<>();
+        List<Placeholder> placeholders = new ArrayList<>();
+        ByteArrayOutputStream marked = new ByteArrayOutputStream(source.length);
+        int pos = 0;
+        int open;
+        while ((open = JsonBytes.indexOf(source, OPEN, pos)) >= 0) {
+            int close = JsonBytes.indexOf(source, CLOSE, open + OPEN.length);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unterminated placeholder at byte " + open);
+            }
+            String expression = new String(source, open + OPEN.length, close - open - OPEN.length,
+                    StandardCharsets.UTF_8).trim();
+            Integer slot = slots.get(expression);
+            if (slot == null) {
+                slot = slots.size();
+                slots.put(expression, slot);
+                placeholders.add(resolver.apply(expression));
+            }
+            marked.write(source, pos, open - pos);
+            marked.writeBytes(marker(slot));
+            pos = close + CLOSE.length;
+        }
+        marked.write(source, pos, source.length - pos);
+
+        byte[][] markers = new byte[slots.size()][];
+        for (int slot = 0; slot < markers.length; slot++) {
+            markers[slot] = marker(slot);
+        }
+        return new MockTemplate(ByteTemplate.compile(marked.toByteArray(), markers),
+                placeholders.toArray(new Placeholder[0]), json);
+    }
+
+    /**
+     * @return true, если для ответа нужно прочитать тело запроса
+     */
+    public boolean needsBody() {
+        return needsBody;
+    }
+
+    /**
+     * Собирает тело ответа.
+     *
+     * @param request запрос
+     * @param body тело запроса (MissingNode, если не требуется)
+     * @param bufferFactory фабрика буферов ответа
+     * @return буфер с телом ответа
+     */
+    public DataBuffer render(ServerRequest request, JsonNode body, DataBufferFactory bufferFactory) {
+        Object[] values = new Object[placeholders.length];
+        for (int i = 0; i < placeholders.length; i++) {
+            values[i] = placeholders[i].value(request, body);
+        }
+        DataBuffer out = bufferFactory.allocateBuffer(
+                template.staticLength() + placeholders.length * VALUE_SIZE_ESTIMATE);
+        template.render(out, (slot, buffer) -> write(buffer, values[slot]));
+        return out;
+    }
+
+    private void write(DataBuffer out, @Nullable Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Long number) {
+            JsonBytes.writeLong(out, number);
+        } else if (value instanceof JsonNode node && !node.isTextual()) {
+            out.write(node.toString().getBytes(StandardCharsets.UTF_8));
+        } else {
+            String text = value instanceof JsonNode textNode ? textNode.textValue() : value.toString();
+            if (json) {
+                JsonBytes.writeStringContent(out, text);
+            } else {
+                out.write(text.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private static byte[] marker(int slot) {
+        return ("\0" + slot + "\0").getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.emulator.service;
+
+import com.example.emulator.config.EmulatorConfig;
+import com.example.emulator.config.JsonFormat;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Кэш готовых тел ответов на запросы заказов для клиентов, повторяющих один и тот же запрос.
+ *
+ * Ключ - нормализованные фильтры запроса (так же, как они попадают в filters ответа), формат JSON
+ * и RqUID, если от него зависят значения заказов (emulator.random.key: rq-uid). Значение - байты тела
+ * и ETag, посчитанный по CRC32C и длине тела. Вытеснение - Caffeine (W-TinyLFU) с ограничением
+ * суммарного размера тел emulator.cache.max-bytes и временем жизни emulator.cache.ttl.
+ *
+ * Запрос с If-None-Match, совпадающим с ETag ответа в кэше, получает 304 без тела.
+ * При emulator.cache.delay-on-hit ответы из кэша и 304 отдаются после обычной эмулируемой задержки,
+ * поэтому профиль задержек не меняется от включения кэша.
+ * Кэшируются только ответы одним буфером: потоковые и параллельные ответы (больше
+ * emulator.orders.streaming-threshold или parallel-threshold заказов) отдаются частями и не кэшируются.
+ *
+ * Без emulator.random.deterministic кэш фиксирует случайные значения ответа на время ttl.
+ */
+@Service
+public class OrderResponseCache {
+    private static final Logger log = LoggerFactory.getLogger(OrderResponseCache.class);
+    /** Оценка накладных расходов на запись кэша сверх тела ответа */
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final OrderResponseService orderResponseService;
+    private final DelayService delayService;
+    private final ResponseMetrics responseMetrics;
+    private final RandomSource randomSource;
+    private final EmulatorConfig.Cache config;
+    private final Cache<Key, Entry> cache;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter notModified;
+    private final Counter bypassed;
+    private final Counter evictions;
+
+    public OrderResponseCache(OrderResponseService orderResponseService,
+                              DelayService delayService,
+                              ResponseMetrics responseMetrics,
+                              RandomSource randomSource,
+                              EmulatorConfig emulatorConfig,
+                              MeterRegistry meterRegistry) {
+        this.orderResponseService = orderResponseService;
+        this.delayService = delayService;
+        this.responseMetrics = responseMetrics;
+        this.randomSource = randomSource;
+        this.config = emulatorConfig.getCache();
+        this.hits = requestCounter(meterRegistry, "hit");
+        this.misses = requestCounter(meterRegistry, "miss");
+        this.notModified = requestCounter(meterRegistry, "not_modified");
+        this.bypassed = requestCounter(meterRegistry, "bypass");
+        this.evictions = Counter.builder("emulator.orders.cache.evictions")
+                .description("Ответы, вытесненные из кэша по размеру")
+                .register(meterRegistry);
+        if (config.isEnabled()) {
+            this.cache = Caffeine.newBuilder()
+                    .maximumWeight(config.getMaxBytes())
+                    .weigher((Key key, Entry entry) -> entry.body().length + ENTRY_OVERHEAD)
+                    .expireAfterWrite(config.getTtl())
+                    .removalListener((Key key, Entry entry, RemovalCause cause) -> {
+                        if (cause == RemovalCause.SIZE) {
+                            evictions.increment();
+                        }
+                    })
+                    .build();
+            log.info("Order response cache enabled: {} bytes, ttl {}, delay on hit {}",
+                    config.getMaxBytes(), config.getTtl(), config.isDelayOnHit());
+        } else {
+            this.cache = null;
+        }
+        Gauge.builder("emulator.orders.cache.entries", this, OrderResponseCache::entries)
+                .description("Количество ответов в кэше")
+                .register(meterRegistry);
+        Gauge.builder("emulator.orders.cache.bytes", this, OrderResponseCache::weightedBytes)
+                .description("Суммарный размер ответов в кэше с накладными расходами")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Нормализованный запрос: фильтры в том виде, в котором они влияют на тело ответа.
+     */
+    record Key(Integer limit, Long orderIdFrom, List<Long> orderIds, JsonFormat format, String requestId) {}
+
+    /**
+     * Тело ответа и его ETag (в кавычках, как в заголовке).
+     */
+    record Entry(byte[] body, String etag) {}
+
+    /**
+     * Отдает ответ из кэша, 304 при совпадении If-None-Match или генерирует и кэширует новый.
+     *
+     * @param requestId RqUID запроса
+     * @param orderIdFrom Начальный идентификатор заказа
+     * @param orderIds Список идентификаторов заказов
+     * @param limit Количество заказов для генерации
+     * @param format Формат JSON
+     * @param exchange HTTP-обмен (заголовки запроса и ответа, фабрика буферов)
+     * @return Mono или Flux с JSON-телом ответа
+     */
+    public Publisher<DataBuffer> getOrderResponseBody(String requestId, Long orderIdFrom, List<Long> orderIds,
+                                                      Integer limit, JsonFormat format, ServerWebExchange exchange) {
+        ServerHttpResponse response = exchange.getResponse();
+        int orderCount = OrderResponseService.determineOrderCount(orderIds, limit);
+        // Некорректный запрос получает ошибку генерации
+        if (orderResponseService.validateRequest(orderIds, orderCount) != null
+                || !orderResponseService.isSingleBuffer(orderCount)) {
+            bypassed.increment();
+            return orderResponseService.generateOrderResponseBody(
+                    requestId, orderIdFrom, orderIds, limit, format, response.bufferFactory());
+        }
+        Key key = key(requestId, orderIdFrom, orderIds, limit, format);
+        Entry cached = cache.getIfPresent(key);
+        if (cached == null) {
+            misses.increment();
+            return Mono.from(orderResponseService.generateOrderResponseBody(
+                    requestId, orderIdFrom, orderIds, limit, format, response.bufferFactory())).map(buffer -> {
+                Entry entry = entry(buffer);
+                cache.put(key, entry);
+                response.getHeaders().setETag(entry.etag());
+                return buffer;
+            });
+        }
+        Mono<Void> delay = config.isDelayOnHit()
+                ? delayService.delay(responseMetrics.meters(DelayService.ENDPOINT_ORDERS, orderCount), orderCount)
+                : Mono.empty();
+        if (matches(exchange.getRequest().getHeaders().getIfNoneMatch(), cached.etag())) {
+            notModified.increment();
+            return delay.then(Mono.<DataBuffer>fromRunnable(() -> {
+                response.setStatusCode(HttpStatus.NOT_MODIFIED);
+                response.getHeaders().setETag(cached.etag());
+            }));
+        }
+        hits.increment();
+        return delay.then(Mono.fromSupplier(() -> {
+            response.getHeaders().setETag(cached.etag());
+            return response.bufferFactory().wrap(cached.body());
+        }));
+    }
+
+    private Key key(String requestId, Long orderIdFrom, List<Long> orderIds, Integer limit, JsonFormat format) {
+        // Так же, как filters ответа: при order_ids не учитывается order_id_from и наоборот
+        if (orderIds != null && !orderIds.isEmpty()) {
+            orderIdFrom = null;
+        } else if (orderIdFrom != null) {
+            orderIds = null;
+        }
+        return new Key(limit, orderIdFrom, orderIds != null ? List.copyOf(orderIds) : null, format,
+                randomSource.isKeyedByRequestId() ? requestId : null);
+    }
+
+    private static Entry entry(DataBuffer buffer) {
+        byte[] body = new byte[buffer.readableByteCount()];
+        buffer.toByteBuffer(buffer.readPosition(), ByteBuffer.wrap(body), 0, body.length);
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        return new Entry(body, "\"" + Integer.toHexString(body.length) + "-" + Long.toHexString(crc.getValue()) + "\"");
+    }
+
+    private static boolean matches(List<String> ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch) {
+            // Слабое сравнение, как для If-None-Match (RFC 9110)
+            String value = candidate.startsWith("W/") ? candidate.substring(2) : candidate;
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long entries() {
+        return cache != null ? cache.estimatedSize() : 0;
+    }
+
+    private long weightedBytes() {
+        if (cache == null) {
+            return 0;
+        }
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0))
+                .orElse(0L);
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("emulator.orders.cache.requests")
+                .description("Запросы заказов, прошедшие через кэш ответов")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -1,21 +1,34 @@
 package com.example.emulator.service;
 
 import com.example.emulator.config.EmulatorConfig;
+import com.example.emulator.config.JacksonConfig;
+import com.example.emulator.config.JsonFormat;
 import com.example.emulator.dto.Cpn;
 import com.example.emulator.dto.OrderResponse;
 import com.example.emulator.dto.OrderResponse.OrderResponseData;
-import com.example.emulator.dto.OrderResponse.OrderResponseData.Order;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
-import java.time.LocalDateTime;
-import java.time.Duration;
-import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,6 +37,18 @@ import org.slf4j.LoggerFactory;
  * Сервис для генерации ответов на запросы заказов.
  * Использует CpnConfigurationService для получения данных о купонах
  * и генерирует динамические ответы на основе параметров запроса.
+ *
+ * В режиме emulator.orders.stateful выданные заказы запоминаются в {@link OrderStore}:
+ * повторный запрос того же order_id возвращает те же данные, а stats.coupon.last_order
+ * указывает на последний действительно выданный заказ.
+ *
+ * В режиме emulator.random.deterministic купон ответа, client_id и reserve_key вычисляются
+ * по ключам из {@link RandomSource}, и одинаковые запросы получают одинаковые заказы.
+ *
+ * Ответы больше emulator.orders.parallel-threshold заказов генерируются не на event loop:
+ * заказы делятся на части по parallel-chunk-orders, части пишутся параллельно на отдельном
+ * ограниченном пуле (parallel-threads потоков) и отдаются по порядку. Небольшие ответы
+ * генерируются на месте, без переключения потоков.
  */
 @Service
 public class OrderResponseService {
@@ -37,82 +62,394 @@ public class OrderResponseService {
     private static final String USE_TEXT = "use";
     private static final String PROMO_CODE_TEXT = "CODE123";
     private static final Logger log = LoggerFactory.getLogger(OrderResponseService.class);
-    /** Целевой формат даты и времени */
-    private static final DateTimeFormatter DATE_TIME_FORMATTER =
-            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXXX");
-    private static final Random randomGenerator = new Random(); // Renamed to avoid conflict with new field
 
     private final CpnConfigurationService cpnConfigurationService;
-    private final Random random; // For delay
-    private final int minDelay;
-    private final int maxDelay;
-    private final int delayRange;
+    private final TimestampService timestampService;
+    private final RandomSource randomSource;
+    private final DelayService delayService;
+    private final ResponseMetrics responseMetrics;
+    private final LogSampler logSampler;
+    private final OrderStore orderStore;
+    private final Map<JsonFormat, OrderResponseWriter> orderResponseWriters = new EnumMap<>(JsonFormat.class);
+    private final EmulatorConfig.Orders ordersConfig;
+    /** Пул параллельной генерации или null, если она отключена */
+    private final Scheduler generationScheduler;
 
-    public OrderResponseService(CpnConfigurationService cpnConfigurationService, EmulatorConfig emulatorConfig) {
+    public OrderResponseService(CpnConfigurationService cpnConfigurationService,
+                                TimestampService timestampService,
+                                RandomSource randomSource,
+                                DelayService delayService,
+                                ResponseMetrics responseMetrics,
+                                LogSampler logSampler,
+                                OrderStore orderStore,
+                                EmulatorConfig emulatorConfig,
+                                ObjectMapper objectMapper,
+                                @Qualifier(JacksonConfig.COMPACT_OBJECT_MAPPER) ObjectMapper compactObjectMapper) {
         this.cpnConfigurationService = cpnConfigurationService;
-        this.random = new Random();
-        this.minDelay = emulatorConfig.getDelay().getMin();
-        this.maxDelay = emulatorConfig.getDelay().getMax();
-        this.delayRange = this.maxDelay - this.minDelay + 1;
-        log.info("OrderResponseService initialized with delay {} - {} ms", this.minDelay, this.maxDelay);
+        this.timestampService = timestampService;
+        this.randomSource = randomSource;
+        this.delayService = delayService;
+        this.responseMetrics = responseMetrics;
+        this.logSampler = logSampler;
+        this.orderStore = orderStore;
+        this.orderResponseWriters.put(JsonFormat.PRETTY,
+                new OrderResponseWriter(objectMapper, this::createTemplateOrder));
+        this.orderResponseWriters.put(JsonFormat.COMPACT,
+                new OrderResponseWriter(compactObjectMapper, this::createTemplateOrder));
+        this.ordersConfig = emulatorConfig.getOrders();
+        this.generationScheduler = ordersConfig.getParallelThreshold() > 0
+                ? Schedulers.newParallel("order-generation", ordersConfig.getParallelThreads(), true)
+                : null;
+        log.info("OrderResponseService initialized with delay {}", delayService.model(DelayService.ENDPOINT_ORDERS));
     }
 
     /**
-     * Генерирует ответ на запрос заказов.
-     * 
+     * Генерирует сериализованное тело ответа на запрос заказов.
+     * Заказы собираются из кэшированных байтовых фрагментов выбранного купона
+     * (см. {@link OrderResponseWriter}), объекты заказов не создаются.
+     *
+     * Небольшие ответы возвращаются одним буфером (Mono, с Content-Length).
+     * Ответы больше emulator.orders.streaming-threshold заказов пишутся потоком буферов
+     * по мере генерации: следующий буфер создается только по запросу подписчика,
+     * поэтому расход памяти ограничен размером буфера независимо от limit.
+     *
      * @param requestId Идентификатор запроса
      * @param orderIdFrom Начальный идентификатор заказа
      * @param orderIds Список идентификаторов заказов
      * @param limit Количество заказов для генерации
-     * @return Mono с объектом ответа, содержащим список заказов и метаданные
+     * @param format Формат JSON (с отступами или компактный)
+     * @param bufferFactory Фабрика буферов ответа
+     * @return Mono или Flux с JSON-телом ответа
      */
-    public Mono<OrderResponse> generateOrderResponse(String requestId, Long orderIdFrom, List<Long> orderIds, Integer limit) {
-        log.info("Generating response for request: {}", requestId);
-        return cpnConfigurationService.getAllCpns()
-                .collectList()
-                .map(cpns -> {
-                    log.info("Got {} cpns from configuration", cpns.size());
-                    int index = random.nextInt(cpns.size());
-                    Cpn selectedCpn = cpns.get(index);
-                    log.info("Selected cpn with id: {}", selectedCpn.id());
-                    return selectedCpn;
-                })
-                .map(cpn -> createOrderResponse(orderIdFrom, orderIds, limit, cpn))
-                .delayElement(getRandomDelay()); // Apply random delay
+    public Publisher<DataBuffer> generateOrderResponseBody(String requestId, Long orderIdFrom, List<Long> orderIds,
+                                                           Integer limit, JsonFormat format,
+                                                           DataBufferFactory bufferFactory) {
+        int orderCount = determineOrderCount(orderIds, limit);
+        ResponseStatusException invalid = validateRequest(orderIds, orderCount);
+        if (invalid != null) {
+            return Mono.error(invalid);
+        }
+        ResponseMetrics.Meters meters = responseMetrics.meters(DelayService.ENDPOINT_ORDERS, orderCount);
+        if (isParallel(orderCount)) {
+            return Mono.fromSupplier(() -> startGeneration(meters, requestId, format, orderIdFrom, orderIds, limit, orderCount))
+                    .flatMapMany(generation -> generateParallel(bufferFactory, generation))
+                    .delaySubscription(delayService.delay(meters, orderCount))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        }
+        if (orderCount > ordersConfig.getStreamingThreshold()) {
+            return Flux.generate(
+                            () -> startGeneration(meters, requestId, format, orderIdFrom, orderIds, limit, orderCount),
+                            (OrderGeneration generation, SynchronousSink<DataBuffer> sink) ->
+                                    writeChunk(bufferFactory, generation, sink))
+                    .delaySubscription(delayService.delay(meters, orderCount))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        }
+        return delayService.delay(meters, orderCount)
+                .then(Mono.fromSupplier(() -> writeOrderResponse(bufferFactory,
+                        startGeneration(meters, requestId, format, orderIdFrom, orderIds, limit, orderCount))))
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
     }
 
     /**
-     * Создает объект ответа на основе параметров запроса и выбранного купона.
-     * 
-     * @param orderIdFrom Начальный идентификатор заказа
-     * @param orderIds Список идентификаторов заказов
-     * @param limit Количество заказов для генерации
-     * @param cpn Выбранный купон для генерации заказов
-     * @return Объект ответа с заказами и метаданными
+     * @return true, если ответ на orderCount заказов отдается одним буфером (Mono), а не потоком частей:
+     *         orderCount не больше порога потоковой генерации и, если она включена, порога параллельной
+     */
+    boolean isSingleBuffer(int orderCount) {
+        return orderCount <= ordersConfig.getStreamingThreshold() && !isParallel(orderCount);
+    }
+
+    private boolean isParallel(int orderCount) {
+        return generationScheduler != null && orderCount > ordersConfig.getParallelThreshold();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (generationScheduler != null) {
+            generationScheduler.dispose();
+        }
+    }
+
+    /**
+     * Состояние генерации одного ответа: выбранный купон, конверт ответа,
+     * позиция следующего заказа и накопленные для метрик время записи и размер.
+     * При параллельной генерации у каждой части свое состояние с диапазоном [next, end).
+     */
+    private static final class OrderGeneration {
+        final ResponseMetrics.Meters meters;
+        final OrderResponseWriter writer;
+        final CpnCatalog catalog;
+        final int cpnIndex;
+        final Long orderIdFrom;
+        final List<Long> orderIds;
+        final int orderCount;
+        final long requestKey;
+        final String orderTime;
+        final String endDateTime;
+        final OrderResponseWriter.Envelope envelope;
+        final RandomSource.OrderRandom random;
+        final OrderResponseWriter.OrderValues values = new OrderResponseWriter.OrderValues();
+        final OrderStore.Entry entry = new OrderStore.Entry();
+        /** Секунда создания, для которой отформатированы storedTime и storedDayBefore */
+        long storedSecond = Long.MIN_VALUE;
+        String storedTime;
+        String storedDayBefore;
+        int next;
+        int end;
+        long serializationNanos;
+        long bytes;
+
+        OrderGeneration(ResponseMetrics.Meters meters, OrderResponseWriter writer, CpnCatalog catalog, int cpnIndex, Long orderIdFrom, List<Long> orderIds, int orderCount,
+                        long requestKey, String orderTime, String endDateTime, OrderResponseWriter.Envelope envelope,
+                        RandomSource.OrderRandom random) {
+            this.meters = meters;
+            this.writer = writer;
+            this.catalog = catalog;
+            this.cpnIndex = cpnIndex;
+            this.orderIdFrom = orderIdFrom;
+            this.orderIds = orderIds;
+            this.orderCount = orderCount;
+            this.end = orderCount;
+            this.requestKey = requestKey;
+            this.orderTime = orderTime;
+            this.endDateTime = endDateTime;
+            this.envelope = envelope;
+            this.random = random;
+        }
+    }
+
+    private OrderGeneration startGeneration(ResponseMetrics.Meters meters, String requestId, JsonFormat format,
+                                            Long orderIdFrom, List<Long> orderIds, Integer limit, int orderCount) {
+        long start = System.nanoTime();
+        OrderResponseWriter writer = orderResponseWriters.get(format);
+        CpnCatalog catalog = cpnConfigurationService.getCatalog();
+        long requestKey = randomSource.requestKey(requestId, orderIdFrom, orderIds, orderCount);
+        int cpnIndex = catalog.randomIndex(randomSource.responseGenerator(requestKey));
+        long selected = System.nanoTime();
+        meters.recordCatalogLookup(selected - start);
+        if (logSampler.isSampled(requestId)) {
+            log.info("order_response rq={} count={} format={} cpn={}", requestId, orderCount,
+                    format, catalog.idAt(cpnIndex));
+        }
+        String orderTime = timestampService.now();
+        String endDateTime = timestampService.dayAgo();
+        OrderResponseWriter.Envelope envelope =
+                writer.envelope(createOrderResponse(orderIdFrom, orderIds, limit, orderTime));
+        meters.recordConstruction(System.nanoTime() - selected);
+        return new OrderGeneration(meters, writer, catalog, cpnIndex, orderIdFrom, orderIds, orderCount,
+                requestKey, orderTime, endDateTime, envelope, randomSource.orderRandom(requestKey));
+    }
+
+    /**
+     * Записывает весь ответ в один буфер без задержки.
+     * Используется также бенчмарками горячего пути (src/jmh).
+     *
+     * @throws ResponseStatusException если запрос не проходит {@link #validateRequest}
      */
-    private OrderResponse createOrderResponse(Long orderIdFrom, List<Long> orderIds, Integer limit, Cpn cpn) {
-        log.info("Creating order response with cpn: {}", cpn);
-        LocalDateTime now = LocalDateTime.now();
-        // LocalDateTime hourAgo = now.minusHours(1); // Больше не используется для времени создания заказа
+    DataBuffer writeOrderResponse(JsonFormat format, Long orderIdFrom, List<Long> orderIds, Integer limit,
+                                  DataBufferFactory bufferFactory) {
+        int orderCount = determineOrderCount(orderIds, limit);
+        ResponseStatusException invalid = validateRequest(orderIds, orderCount);
+        if (invalid != null) {
+            throw invalid;
+        }
+        return writeOrderResponse(bufferFactory, startGeneration(
+                responseMetrics.meters(DelayService.ENDPOINT_ORDERS, orderCount), null,
+                format, orderIdFrom, orderIds, limit, orderCount));
+    }
 
+    /**
+     * Записывает весь ответ с заказами в один буфер, склеивая кэшированные фрагменты
+     * с динамическими полями каждого заказа.
+     */
+    private DataBuffer writeOrderResponse(DataBufferFactory bufferFactory, OrderGeneration generation) {
+        DataBuffer buffer = bufferFactory.allocateBuffer(generation.writer.estimateSize(
+                generation.envelope, generation.catalog, generation.cpnIndex, generation.orderCount));
         try {
-            // Передаем 'now' для времени создания заказа, чтобы соответствовать требованию
-            List<OrderResponseData.Order> orders = createOrders(orderIdFrom, orderIds, limit, cpn, now);
-            log.info("Created {} orders", orders.size());
-            
-            var timestamp = formatDateTime(now);
-            var response = createOrderResponse(orders, orderIdFrom, orderIds, limit, timestamp);
-            
-            return response;
-        } catch (Exception e) {
+            long start = System.nanoTime();
+            generation.writer.writeHead(buffer, generation.envelope, generation.orderCount);
+            writeOrders(buffer, generation, Integer.MAX_VALUE);
+            generation.writer.writeTail(buffer, generation.envelope, generation.orderCount);
+            generation.meters.recordSerialization(System.nanoTime() - start, buffer.readableByteCount());
+            return buffer;
+        } catch (RuntimeException e) {
+            DataBufferUtils.release(buffer);
             log.error("Error creating order response: {}", e.getMessage(), e);
             throw e;
         }
     }
 
-    private OrderResponse createOrderResponse(List<Order> orders, Long orderIdFrom, List<Long> orderIds, Integer limit, String timestamp) {
+    /**
+     * Записывает очередной буфер потокового ответа размером около emulator.orders.chunk-size байт.
+     * Первый буфер начинается с конверта ответа, последний заканчивается его окончанием.
+     */
+    private OrderGeneration writeChunk(DataBufferFactory bufferFactory, OrderGeneration generation,
+                                       SynchronousSink<DataBuffer> sink) {
+        int chunkSize = ordersConfig.getChunkSize();
+        DataBuffer buffer = bufferFactory.allocateBuffer(chunkSize + chunkSize / 4);
+        try {
+            long start = System.nanoTime();
+            if (generation.next == 0) {
+                generation.writer.writeHead(buffer, generation.envelope, generation.orderCount);
+            }
+            writeOrders(buffer, generation, chunkSize);
+            if (generation.next == generation.orderCount) {
+                generation.writer.writeTail(buffer, generation.envelope, generation.orderCount);
+            }
+            generation.serializationNanos += System.nanoTime() - start;
+            generation.bytes += buffer.readableByteCount();
+            if (generation.next == generation.orderCount) {
+                generation.meters.recordSerialization(generation.serializationNanos, generation.bytes);
+                sink.next(buffer);
+                sink.complete();
+            } else {
+                sink.next(buffer);
+            }
+        } catch (RuntimeException e) {
+            DataBufferUtils.release(buffer);
+            log.error("Error streaming order response: {}", e.getMessage(), e);
+            sink.error(e);
+        }
+        return generation;
+    }
+
+    /**
+     * Генерирует ответ частями по emulator.orders.parallel-chunk-orders заказов на пуле генерации.
+     * Одновременно пишется не больше parallel-threads частей, следующая начинается по запросу
+     * подписчика, поэтому в памяти находится ограниченное количество частей.
+     * flatMapSequential отдает части в порядке заказов независимо от порядка завершения.
+     */
+    private Flux<DataBuffer> generateParallel(DataBufferFactory bufferFactory, OrderGeneration generation) {
+        int chunkOrders = ordersConfig.getParallelChunkOrders();
+        int chunks = (generation.orderCount + chunkOrders - 1) / chunkOrders;
+        AtomicLong nanos = new AtomicLong();
+        AtomicLong bytes = new AtomicLong();
+        return Flux.range(0, chunks)
+                .flatMapSequential(chunk -> Mono.fromCallable(() -> {
+                            long start = System.nanoTime();
+                            DataBuffer buffer = writeParallelChunk(bufferFactory, generation, chunk * chunkOrders,
+                                    Math.min(generation.orderCount, (chunk + 1) * chunkOrders));
+                            nanos.addAndGet(System.nanoTime() - start);
+                            bytes.addAndGet(buffer.readableByteCount());
+                            return buffer;
+                        }).subscribeOn(generationScheduler),
+                        ordersConfig.getParallelThreads(), 1)
+                .doOnComplete(() -> {
+                    generation.meters.recordSerialization(nanos.get(), bytes.get());
+                    responseMetrics.recordParallelGeneration(chunks, nanos.get());
+                });
+    }
+
+    /**
+     * Записывает заказы [from, to) в отдельный буфер. Первая часть начинается с конверта ответа,
+     * последняя заканчивается его окончанием.
+     */
+    private DataBuffer writeParallelChunk(DataBufferFactory bufferFactory, OrderGeneration generation, int from, int to) {
+        OrderGeneration chunk = new OrderGeneration(generation.meters, generation.writer, generation.catalog,
+                generation.cpnIndex, generation.orderIdFrom, generation.orderIds, generation.orderCount,
+                generation.requestKey, generation.orderTime, generation.endDateTime, generation.envelope,
+                randomSource.orderRandom(generation.requestKey));
+        chunk.next = from;
+        chunk.end = to;
+        DataBuffer buffer = bufferFactory.allocateBuffer(chunk.writer.estimateSize(
+                chunk.envelope, chunk.catalog, chunk.cpnIndex, to - from));
+        try {
+            if (from == 0) {
+                chunk.writer.writeHead(buffer, chunk.envelope, chunk.orderCount);
+            }
+            writeOrders(buffer, chunk, Integer.MAX_VALUE);
+            if (to == chunk.orderCount) {
+                chunk.writer.writeTail(buffer, chunk.envelope, chunk.orderCount);
+            }
+            return buffer;
+        } catch (RuntimeException e) {
+            DataBufferUtils.release(buffer);
+            log.error("Error generating order response chunk: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Записывает заказы начиная с generation.next, пока заказы не закончатся
+     * или размер буфера не превысит maxBytes.
+     */
+    private void writeOrders(DataBuffer buffer, OrderGeneration generation, int maxBytes) {
+        OrderResponseWriter.OrderValues values = generation.values;
+        while (generation.next < generation.end && buffer.readableByteCount() < maxBytes) {
+            int i = generation.next;
+            long orderNumber = determineOrderNumber(generation.orderIdFrom, generation.orderIds, i);
+            RandomGenerator random = generation.random.forOrder(orderNumber);
+            int cpnIndex = generation.cpnIndex;
+            if (orderStore.isEnabled()) {
+                cpnIndex = setStoredValues(generation, orderNumber, random);
+            } else {
+                values.set(
+                        orderNumber,
+                        randomSource.clientId(random),
+                        generation.orderTime,
+                        randomSource.reserveKey(random),
+                        generation.endDateTime);
+            }
+            generation.writer.writeOrder(buffer, generation.catalog, cpnIndex, i, values);
+            generation.next++;
+        }
+    }
+
+    /**
+     * Берет заказ из хранилища или сохраняет новый с купоном текущего ответа
+     * и заполняет значения для записи.
+     *
+     * @return позиция купона заказа в каталоге; если купон удален из каталога - купон ответа
+     */
+    private int setStoredValues(OrderGeneration generation, long orderNumber, RandomGenerator random) {
+        UUID reserveKey = randomSource.uuid(random);
+        OrderStore.Entry entry = generation.entry.set(generation.catalog.idAt(generation.cpnIndex),
+                randomSource.clientIdValue(random), reserveKey.getMostSignificantBits(),
+                reserveKey.getLeastSignificantBits(), timestampService.epochSecond());
+        orderStore.getOrPut(orderNumber, entry);
+        if (entry.createdAt() != generation.storedSecond) {
+            generation.storedSecond = entry.createdAt();
+            generation.storedTime = timestampService.format(entry.createdAt());
+            generation.storedDayBefore = timestampService.dayBefore(entry.createdAt());
+        }
+        generation.values.set(
+                orderNumber,
+                Integer.toString(entry.clientId()),
+                generation.storedTime,
+                new UUID(entry.reserveKeyMsb(), entry.reserveKeyLsb()).toString(),
+                generation.storedDayBefore);
+        int cpnIndex = generation.catalog.indexOfId(entry.cpnId());
+        return cpnIndex >= 0 ? cpnIndex : generation.cpnIndex;
+    }
+
+    /**
+     * Проверяет фильтры запроса до генерации: количество заказов в [0, emulator.orders.max-limit]
+     * и order_ids без null.
+     *
+     * @return ошибка 400 для некорректного запроса или null
+     */
+    @Nullable
+    ResponseStatusException validateRequest(List<Long> orderIds, int orderCount) {
+        if (orderCount < 0 || orderCount > ordersConfig.getMaxLimit()) {
+            return new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Order count must be between 0 and " + ordersConfig.getMaxLimit());
+        }
+        if (orderIds != null) {
+            for (Long orderId : orderIds) {
+                if (orderId == null) {
+                    return new ResponseStatusException(HttpStatus.BAD_REQUEST, "order_ids must not contain null");
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Создает конверт ответа: фильтры, статистику и время ответа.
+     * Заказы в конверт не входят, они пишутся {@link OrderResponseWriter} между его частями.
+     */
+    private OrderResponse createOrderResponse(Long orderIdFrom, List<Long> orderIds, Integer limit, String timestamp) {
         var filters = createFilters(orderIdFrom, orderIds, limit);
-        var stats = createStats(orderIdFrom);
+        var stats = createStats(orderIdFrom, orderIds, limit);
         
         return new OrderResponse(
                 STATUS_SUCCESS,
@@ -121,33 +458,11 @@ public class OrderResponseService {
                         filters,
                         stats,
                         timestamp,
-                        orders
+                        List.of()
                 )
         );
     }
 
-    /**
-     * Создает список заказов на основе параметров запроса.
-     * Количество заказов определяется либо параметром limit, либо количеством orderIds.
-     * 
-     * @param orderIdFrom Начальный идентификатор заказа
-     * @param orderIds Список идентификаторов заказов
-     * @param limit Количество заказов для генерации
-     * @param cpn Купон для создания заказов
-     * @param orderTime Время создания заказов
-     * @return Список сгенерированных заказов
-     */
-    private List<OrderResponseData.Order> createOrders(Long orderIdFrom, List<Long> orderIds, Integer limit, Cpn cpn, LocalDateTime orderTime) {
-        List<OrderResponseData.Order> orders = new ArrayList<>();
-        int orderCount = determineOrderCount(orderIds, limit);
-        
-        for (int i = 0; i < orderCount; i++) {
-            orders.add(createOrder(orderIdFrom, orderIds, cpn, orderTime, i));
-        }
-        
-        return orders;
-    }
-
     /**
      * Определяет количество заказов для генерации.
      * Если указаны orderIds, возвращает их количество.
@@ -158,7 +473,7 @@ public class OrderResponseService {
      * @param limit Количество заказов для генерации
      * @return Количество заказов для генерации
      */
-    private int determineOrderCount(List<Long> orderIds, Integer limit) {
+    static int determineOrderCount(List<Long> orderIds, Integer limit) {
         if (orderIds != null && !orderIds.isEmpty()) {
             return orderIds.size();
         }
@@ -166,25 +481,41 @@ public class OrderResponseService {
     }
 
     /**
-     * Создает один заказ с уникальными параметрами.
-     * 
-     * @param orderIdFrom Начальный идентификатор заказа
-     * @param orderIds Список идентификаторов заказов
-     * @param limit Количество заказов для генерации
+     * Создает заказ-шаблон для кэша фрагментов: динамические поля заполнены маркерами
+     * {@link OrderResponseWriter}, которые при ответе заменяются реальными значениями.
+     *
      * @param cpn Купон для создания заказа
-     * @param orderTime Время создания заказа
-     * @param index Индекс заказа в списке (для генерации orderNumber)
+     * @return Заказ с маркерами вместо динамических полей
+     */
+    private OrderResponseData.Order createTemplateOrder(Cpn cpn) {
+        return buildOrder(
+            cpn,
+            OrderResponseWriter.ORDER_ID_PLACEHOLDER,
+            OrderResponseWriter.CLIENT_ID_PLACEHOLDER,
+            OrderResponseWriter.ORDER_TIME_PLACEHOLDER,
+            OrderResponseWriter.RESERVE_KEY_PLACEHOLDER,
+            OrderResponseWriter.END_DATE_TIME_PLACEHOLDER
+        );
+    }
+
+    /**
+     * Собирает заказ из готовых значений динамических полей.
+     *
+     * @param cpn Купон для создания заказа
+     * @param orderNumber Номер заказа (order_id и order_number)
+     * @param clientId Идентификатор клиента
+     * @param orderTime Отформатированное время заказа (pay_datetime и date_created)
+     * @param reserveKey Ключ резерва
+     * @param endDateTime Отформатированное время окончания действия промокода
      * @return Объект заказа
      */
-    private OrderResponseData.Order createOrder(Long orderIdFrom, List<Long> orderIds, Cpn cpn, LocalDateTime orderTime, int index) {
+    private OrderResponseData.Order buildOrder(Cpn cpn, Long orderNumber, String clientId, String orderTime,
+                                               String reserveKey, String endDateTime) {
         if (cpn.offers() == null || cpn.offers().isEmpty()) {
             throw new IllegalStateException("No offers found in CPN");
         }
         var selectedOffer = cpn.offers().get(0); // Берем первый оффер для примера
-        
-        Long orderNumber = determineOrderNumber(orderIdFrom, orderIds, index);
-        String clientId = String.valueOf(randomGenerator.nextInt(1000000)); // client_id - случайное число строкой
-        
+
         return new OrderResponseData.Order(
             orderNumber, // order_id (new field, same as order_number)
             clientId,
@@ -197,14 +528,14 @@ public class OrderResponseService {
             null, // clientOS
             true, // agreement
             PAYMENT_TYPE_SPS_BONUSES,
-            formatDateTime(orderTime), // pay_datetime
+            orderTime, // pay_datetime
             1, // promocodes_count
             new OrderResponseData.Order.TotalAmount(null, 100),
-            formatDateTime(orderTime), // date_created
+            orderTime, // date_created
             PRODUCT_TYPE_COUPON,
             COMBINED_PDF_URL,
-            UUID.randomUUID().toString(), // reserve_key
-            createProduct(cpn, selectedOffer)
+            reserveKey,
+            createProduct(cpn, selectedOffer, endDateTime)
         );
     }
 
@@ -231,9 +562,10 @@ public class OrderResponseService {
      * 
      * @param cpn Купон с основной информацией
      * @param offer Оффер с дополнительной информацией
+     * @param endDateTime Время окончания действия промокода
      * @return Объект продукта
      */
-    private OrderResponseData.Order.Product createProduct(Cpn cpn, Cpn.CpnOffer offer) {
+    private OrderResponseData.Order.Product createProduct(Cpn cpn, Cpn.CpnOffer offer, String endDateTime) {
         return new OrderResponseData.Order.Product(
             Long.parseLong(cpn.omniId()),
             cpn.id(),
@@ -255,7 +587,7 @@ public class OrderResponseService {
                         null, // pdf_url - Static value (null) from response_body.json
                         0,          // type
                         1234,      // pin - СТАЛО 1234
-                        formatDateTime(LocalDateTime.now().minusDays(1)) // end_date_time
+                        endDateTime // end_date_time
                     )
                 )
             )
@@ -264,17 +596,29 @@ public class OrderResponseService {
 
     /**
      * Создает статистику по заказам.
-     * Включает информацию о последнем заказе.
+     * Включает информацию о последнем заказе: в режиме с состоянием - наибольший id
+     * из сохраненных заказов и заказов текущего ответа, иначе - условный orderIdFrom + 10.
      *
      * @param orderIdFrom Начальный идентификатор заказа
+     * @param orderIds Список идентификаторов заказов
+     * @param limit Количество заказов для генерации
      * @return Объект статистики
      */
-    private OrderResponseData.OrderResponseStats createStats(Long orderIdFrom) {
+    private OrderResponseData.OrderResponseStats createStats(Long orderIdFrom, List<Long> orderIds, Integer limit) {
         Long lastOrderIdInStats = null;
-        if (orderIdFrom != null) {
+        String dateCreatedInStats = timestampService.now();
+        if (orderStore.isEnabled()) {
+            long lastOrderId = Math.max(orderStore.lastOrderId(), maxOrderNumber(orderIdFrom, orderIds, limit));
+            if (lastOrderId != Long.MIN_VALUE) {
+                lastOrderIdInStats = lastOrderId;
+                OrderStore.Entry entry = new OrderStore.Entry();
+                if (orderStore.get(lastOrderId, entry)) {
+                    dateCreatedInStats = timestampService.format(entry.createdAt());
+                }
+            }
+        } else if (orderIdFrom != null) {
             lastOrderIdInStats = orderIdFrom + 10;
         }
-        String dateCreatedInStats = formatDateTime(LocalDateTime.now());
 
         // Assuming OrderResponseCouponStats and LastOrder are nested correctly as per DTO structure
         // This part might need adjustment if DTO structure for Stats is different
@@ -288,6 +632,24 @@ public class OrderResponseService {
         );
     }
 
+    /**
+     * @return наибольший номер заказа в ответе или Long.MIN_VALUE, если заказов нет
+     */
+    private long maxOrderNumber(Long orderIdFrom, List<Long> orderIds, Integer limit) {
+        int orderCount = determineOrderCount(orderIds, limit);
+        if (orderCount <= 0) {
+            return Long.MIN_VALUE;
+        }
+        if (orderIds != null && !orderIds.isEmpty()) {
+            long max = Long.MIN_VALUE;
+            for (Long orderId : orderIds) {
+                max = Math.max(max, orderId);
+            }
+            return max;
+        }
+        return determineOrderNumber(orderIdFrom, null, orderCount - 1);
+    }
+
     private OrderResponseData.OrderResponseFilters createFilters(Long orderIdFromParam, List<Long> orderIdsParam, Integer limitParam) {
         Long responseOrderIdFrom = orderIdFromParam;
         List<Long> responseOrderIds = orderIdsParam;
@@ -305,32 +667,4 @@ public class OrderResponseService {
             responseOrderIds
         );
     }
-
-
-
-/**
- * Возвращает случайную задержку на основе конфигурации эмулятора.
- * 
- * @return Случайная задержка
- */
-private Duration getRandomDelay() {
-    if (delayRange <= 0) { // Should not happen if config is correct (minDelay <= maxDelay)
-        return Duration.ofMillis(minDelay);
-    }
-    return Duration.ofMillis(random.nextInt(delayRange) + minDelay);
-}
-
-/**
- * Форматирует LocalDateTime в строку согласно DATE_TIME_FORMATTER с фиксированным смещением +03:00.
- *
- * @param localDateTime Дата и время для форматирования (без зоны)
- * @return Отформатированная строка с датой и временем и смещением +03:00
- */
-private String formatDateTime(LocalDateTime localDateTime) {
-    if (localDateTime == null) {
-        return null;
-    }
-    // Применяем фиксированное смещение +03:00, так как XXX в паттерне требует информации о зоне/смещении
-    return localDateTime.atOffset(ZoneOffset.ofHours(3)).format(DATE_TIME_FORMATTER);
-}
 }
@@ -0,0 +1,244 @@
+package com.example.emulator.service;
+
+import com.example.emulator.dto.Cpn;
+import com.example.emulator.dto.OrderResponse;
+import com.example.emulator.dto.OrderResponse.OrderResponseData.Order;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Сборщик тела ответа на запрос заказов из предварительно сериализованных фрагментов.
+ *
+ * Для каждого CPN один раз сериализуется заказ-шаблон с маркерами вместо динамических полей
+ * (order_id, client_id, время заказа, reserve_key, end_date_time). Статические части заказа
+ * (product, partner, offer, rules, channel, combined_pdf_url и т.д.) кэшируются как байты,
+ * а при ответе склеиваются со значениями текущего заказа без участия Jackson.
+ *
+ * Конверт ответа (filters, stats, timestamp) сериализуется Jackson на каждый запрос,
+ * так как зависит от параметров запроса, но он не зависит от limit.
+ * Разметка (отступы, разделители) берется из того же ObjectMapper, поэтому результат
+ * побайтно совпадает с сериализацией {@link OrderResponse} этим маппером.
+ */
+public final class OrderResponseWriter {
+    public static final long ORDER_ID_PLACEHOLDER = -7_123_456_789_012_345_678L;
+    public static final String CLIENT_ID_PLACEHOLDER = "@@client_id@@";
+    public static final String ORDER_TIME_PLACEHOLDER = "@@order_time@@";
+    public static final String RESERVE_KEY_PLACEHOLDER = "@@reserve_key@@";
+    public static final String END_DATE_TIME_PLACEHOLDER = "@@end_date_time@@";
+
+    static final int SLOT_ORDER_ID = 0;
+    static final int SLOT_CLIENT_ID = 1;
+    static final int SLOT_ORDER_TIME = 2;
+    static final int SLOT_RESERVE_KEY = 3;
+    static final int SLOT_END_DATE_TIME = 4;
+
+    private static final byte[] ORDERS_FIELD = "\"orders\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[][] PLACEHOLDERS = {
+            Long.toString(ORDER_ID_PLACEHOLDER).getBytes(StandardCharsets.US_ASCII),
+            CLIENT_ID_PLACEHOLDER.getBytes(StandardCharsets.US_ASCII),
+            ORDER_TIME_PLACEHOLDER.getBytes(StandardCharsets.US_ASCII),
+            RESERVE_KEY_PLACEHOLDER.getBytes(StandardCharsets.US_ASCII),
+            END_DATE_TIME_PLACEHOLDER.getBytes(StandardCharsets.US_ASCII)
+    };
+    private static final Cpn LAYOUT_CPN = new Cpn(1, "1", "use", "conditions", 1, "crm",
+            List.of(new Cpn.CpnOffer(1, "1", 0)));
+
+    private final ObjectMapper objectMapper;
+    private final Function<Cpn, Order> templateOrderFactory;
+    /** Байты между '[' и первым заказом */
+    private final byte[] ordersOpen;
+    /** Байты между соседними заказами */
+    private final byte[] ordersSeparator;
+    /** Байты между последним заказом и ']' */
+    private final byte[] ordersClose;
+    /** Байты между '[' и ']' пустого массива */
+    private final byte[] emptyOrders;
+
+    private volatile Fragments fragments = new Fragments(CpnCatalog.empty());
+
+    /**
+     * @param objectMapper маппер, определяющий формат ответа
+     * @param templateOrderFactory строит заказ для CPN, подставляя маркеры из констант этого класса
+     */
+    public OrderResponseWriter(ObjectMapper objectMapper, Function<Cpn, Order> templateOrderFactory) {
+        this.objectMapper = objectMapper;
+        this.templateOrderFactory = templateOrderFactory;
+
+        Order sample = templateOrderFactory.apply(LAYOUT_CPN);
+        byte[] two = serialize(envelope(List.of(sample, sample)));
+        int open = ordersArrayStart(two);
+        int firstStart = JsonBytes.skipWhitespace(two, open + 1);
+        int firstEnd = JsonBytes.skipValue(two, firstStart);
+        int secondStart = JsonBytes.skipWhitespace(two, JsonBytes.skipWhitespace(two, firstEnd) + 1);
+        int secondEnd = JsonBytes.skipValue(two, secondStart);
+        int close = JsonBytes.skipWhitespace(two, secondEnd);
+        this.ordersOpen = Arrays.copyOfRange(two, open + 1, firstStart);
+        this.ordersSeparator = Arrays.copyOfRange(two, firstEnd, secondStart);
+        this.ordersClose = Arrays.copyOfRange(two, secondEnd, close);
+
+        byte[] none = serialize(envelope(List.of()));
+        int emptyOpen = ordersArrayStart(none);
+        int emptyClose = JsonBytes.skipValue(none, emptyOpen) - 1;
+        this.emptyOrders = Arrays.copyOfRange(none, emptyOpen + 1, emptyClose);
+    }
+
+    /**
+     * Сериализованный конверт ответа, разделенный на части до и после содержимого массива orders.
+     */
+    public record Envelope(byte[] bytes, int headEnd, int tailStart) {
+    }
+
+    /**
+     * Значения динамических полей одного заказа.
+     * Изменяемый объект, переиспользуется для всех заказов ответа.
+     */
+    public static final class OrderValues implements ByteTemplate.Slots {
+        private long orderId;
+        private String clientId;
+        private String orderTime;
+        private String reserveKey;
+        private String endDateTime;
+
+        public OrderValues set(long orderId, String clientId, String orderTime, String reserveKey, String endDateTime) {
+            this.orderId = orderId;
+            this.clientId = clientId;
+            this.orderTime = orderTime;
+            this.reserveKey = reserveKey;
+            this.endDateTime = endDateTime;
+            return this;
+        }
+
+        @Override
+        public void write(int slot, DataBuffer out) {
+            switch (slot) {
+                case SLOT_ORDER_ID -> JsonBytes.writeLong(out, orderId);
+                case SLOT_CLIENT_ID -> JsonBytes.writeStringContent(out, clientId);
+                case SLOT_ORDER_TIME -> JsonBytes.writeStringContent(out, orderTime);
+                case SLOT_RESERVE_KEY -> JsonBytes.writeStringContent(out, reserveKey);
+                case SLOT_END_DATE_TIME -> JsonBytes.writeStringContent(out, endDateTime);
+                default -> throw new IllegalArgumentException("Unknown slot " + slot);
+            }
+        }
+    }
+
+    /**
+     * Сериализует конверт ответа. Список заказов в конверте должен быть пустым.
+     */
+    public Envelope envelope(OrderResponse emptyResponse) {
+        byte[] bytes = serialize(emptyResponse);
+        int open = ordersArrayStart(bytes);
+        int close = JsonBytes.skipValue(bytes, open) - 1;
+        return new Envelope(bytes, open + 1, close);
+    }
+
+    /**
+     * Записывает начало ответа до первого заказа.
+     */
+    public void writeHead(DataBuffer out, Envelope envelope, int orderCount) {
+        out.write(envelope.bytes(), 0, envelope.headEnd());
+        out.write(orderCount > 0 ? ordersOpen : emptyOrders);
+    }
+
+    /**
+     * Записывает один заказ.
+     *
+     * @param catalog снимок каталога, из которого выбран CPN
+     * @param cpnIndex позиция CPN в каталоге
+     * @param position порядковый номер заказа в ответе
+     */
+    public void writeOrder(DataBuffer out, CpnCatalog catalog, int cpnIndex, int position, OrderValues values) {
+        if (position > 0) {
+            out.write(ordersSeparator);
+        }
+        template(catalog, cpnIndex).render(out, values);
+    }
+
+    /**
+     * Записывает окончание ответа после последнего заказа.
+     */
+    public void writeTail(DataBuffer out, Envelope envelope, int orderCount) {
+        if (orderCount > 0) {
+            out.write(ordersClose);
+        }
+        byte[] bytes = envelope.bytes();
+        out.write(bytes, envelope.tailStart(), bytes.length - envelope.tailStart());
+    }
+
+    /**
+     * Оценивает размер ответа, чтобы выделить буфер без перевыделений.
+     */
+    public int estimateSize(Envelope envelope, CpnCatalog catalog, int cpnIndex, int orderCount) {
+        long perOrder = template(catalog, cpnIndex).staticLength() + 128L + ordersSeparator.length;
+        return (int) Math.min(Integer.MAX_VALUE - 8, envelope.bytes().length + perOrder * orderCount);
+    }
+
+    /**
+     * Возвращает шаблон заказа для CPN, компилируя его при первом обращении.
+     * Кэш привязан к снимку каталога и сбрасывается при его перезагрузке.
+     */
+    private ByteTemplate template(CpnCatalog catalog, int cpnIndex) {
+        Fragments current = fragments;
+        if (current.catalog != catalog) {
+            current = new Fragments(catalog);
+            fragments = current;
+        }
+        ByteTemplate template = current.templates.get(cpnIndex);
+        if (template == null) {
+            template = compile(catalog.get(cpnIndex));
+            current.templates.lazySet(cpnIndex, template);
+        }
+        return template;
+    }
+
+    private ByteTemplate compile(Cpn cpn) {
+        byte[] bytes = serialize(envelope(List.of(templateOrderFactory.apply(cpn))));
+        int start = JsonBytes.skipWhitespace(bytes, ordersArrayStart(bytes) + 1);
+        int end = JsonBytes.skipValue(bytes, start);
+        return ByteTemplate.compile(Arrays.copyOfRange(bytes, start, end), PLACEHOLDERS);
+    }
+
+    private byte[] serialize(OrderResponse response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize order response", e);
+        }
+    }
+
+    /**
+     * Поле orders идет после filters, stats и timestamp, которые не содержат произвольного текста,
+     * поэтому первое вхождение "orders" в документе и есть ключ массива заказов.
+     *
+     * @return позиция '[' массива orders
+     */
+    private static int ordersArrayStart(byte[] json) {
+        int field = JsonBytes.indexOf(json, ORDERS_FIELD, 0);
+        if (field < 0) {
+            throw new IllegalStateException("No orders field in serialized response");
+        }
+        int colon = JsonBytes.skipWhitespace(json, field + ORDERS_FIELD.length);
+        return JsonBytes.skipWhitespace(json, colon + 1);
+    }
+
+    private static OrderResponse envelope(List<Order> orders) {
+        return new OrderResponse("success", List.of(), new OrderResponse.OrderResponseData(
+                null, null, null, orders));
+    }
+
+    private static final class Fragments {
+        final CpnCatalog catalog;
+        final AtomicReferenceArray<ByteTemplate> templates;
+
+        Fragments(CpnCatalog catalog) {
+            this.catalog = catalog;
+            this.templates = new AtomicReferenceArray<>(catalog.size());
+        }
+    }
+}
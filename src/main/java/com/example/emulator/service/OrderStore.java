@@ -0,0 +1,323 @@
+package com.example.emulator.service;
+
+import com.example.emulator.config.EmulatorConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Хранилище выданных заказов для режима с состоянием (emulator.orders.stateful).
+ *
+ * Заказ, впервые попавший в ответ, запоминается по order_id, и повторные запросы
+ * (order_ids или страницы order_id_from) возвращают те же CPN, client_id, reserve_key и время создания.
+ * Запись заказа компактна: id купона, client_id, reserve_key как два long и время создания,
+ * всего 4 long на ячейку без объектов на куче.
+ *
+ * Таблица разбита на {@link #SEGMENTS} сегментов с открытой адресацией и линейным пробированием.
+ * Чтение не берет блокировок: оптимистичный штамп {@link StampedLock} проверяется после копирования
+ * полей, и только при конкурентной записи в тот же сегмент чтение повторяется под блокировкой.
+ * Запись нового заказа блокирует один сегмент. При заполнении сегмента вытесняется запись
+ * по алгоритму CLOCK (приближение LRU): чтение отмечает запись, стрелка пропускает
+ * отмеченные записи, снимая отметку, и удаляет первую неотмеченную.
+ *
+ * Отключенное хранилище не выделяет памяти.
+ */
+@Service
+public class OrderStore {
+    private static final Logger log = LoggerFactory.getLogger(OrderStore.class);
+
+    static final int SEGMENTS = 64;
+    private static final int NO_ORDER = -1;
+
+    private final Segment[] segments;
+    private final AtomicLong lastOrderId = new AtomicLong(Long.MIN_VALUE);
+    private final Counter created;
+    private final Counter evicted;
+
+    public OrderStore(EmulatorConfig emulatorConfig, MeterRegistry meterRegistry) {
+        EmulatorConfig.Orders config = emulatorConfig.getOrders();
+        if (config.isStateful()) {
+            int perSegment = Math.max(1, (config.getStoreCapacity() + SEGMENTS - 1) / SEGMENTS);
+            this.segments = new Segment[SEGMENTS];
+            for (int i = 0; i < SEGMENTS; i++) {
+                segments[i] = new Segment(perSegment);
+            }
+            log.info("Stateful orders enabled: up to {} orders in {} segments",
+                    (long) perSegment * SEGMENTS, SEGMENTS);
+        } else {
+            this.segments = null;
+        }
+        this.created = Counter.builder("emulator.orders.store.created")
+                .description("Заказы, добавленные в хранилище заказов")
+                .register(meterRegistry);
+        this.evicted = Counter.builder("emulator.orders.store.evicted")
+                .description("Заказы, вытесненные из хранилища при заполнении")
+                .register(meterRegistry);
+        Gauge.builder("emulator.orders.store.size", this, OrderStore::size)
+                .description("Количество заказов в хранилище")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return segments != null;
+    }
+
+    /**
+     * Значения заказа. Изменяемый объект, переиспользуется для всех заказов ответа.
+     */
+    public static final class Entry {
+        private long cpnId;
+        private int clientId;
+        private long reserveKeyMsb;
+        private long reserveKeyLsb;
+        private long createdAt;
+
+        /**
+         * @param cpnId id купона
+         * @param clientId client_id (0 - 999999)
+         * @param reserveKeyMsb старшие биты UUID reserve_key
+         * @param reserveKeyLsb младшие биты UUID reserve_key
+         * @param createdAt время создания, секунды с начала эпохи
+         */
+        public Entry set(long cpnId, int clientId, long reserveKeyMsb, long reserveKeyLsb, long createdAt) {
+            this.cpnId = cpnId;
+            this.clientId = clientId;
+            this.reserveKeyMsb = reserveKeyMsb;
+            this.reserveKeyLsb = reserveKeyLsb;
+            this.createdAt = createdAt;
+            return this;
+        }
+
+        public long cpnId() {
+            return cpnId;
+        }
+
+        public int clientId() {
+            return clientId;
+        }
+
+        public long reserveKeyMsb() {
+            return reserveKeyMsb;
+        }
+
+        public long reserveKeyLsb() {
+            return reserveKeyLsb;
+        }
+
+        public long createdAt() {
+            return createdAt;
+        }
+    }
+
+    /**
+     * Возвращает сохраненный заказ или сохраняет новый.
+     *
+     * @param orderId id заказа
+     * @param entry значения нового заказа; если заказ уже есть, заменяются сохраненными
+     * @return true если заказ добавлен
+     */
+    public boolean getOrPut(long orderId, Entry entry) {
+        long hash = hash(orderId);
+        Segment segment = segments[(int) (hash >>> 58)];
+        if (segment.read(orderId, (int) hash, entry)) {
+            return false;
+        }
+        if (!segment.putIfAbsent(orderId, (int) hash, entry)) {
+            return false;
+        }
+        created.increment();
+        lastOrderId.accumulateAndGet(orderId, Math::max);
+        return true;
+    }
+
+    /**
+     * Ищет сохраненный заказ без добавления.
+     *
+     * @return true если заказ найден, его значения записаны в entry
+     */
+    public boolean get(long orderId, Entry entry) {
+        long hash = hash(orderId);
+        return segments[(int) (hash >>> 58)].read(orderId, (int) hash, entry);
+    }
+
+    /**
+     * @return наибольший id из когда-либо сохраненных заказов или Long.MIN_VALUE
+     */
+    public long lastOrderId() {
+        return lastOrderId.get();
+    }
+
+    public long size() {
+        if (segments == null) {
+            return 0;
+        }
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    private static long hash(long key) {
+        // Финализатор fmix64 из MurmurHash3: старшие биты выбирают сегмент, младшие - ячейку
+        long h = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Сегмент таблицы: ключи, 4 long данных на ячейку, признак занятости и отметка обращения.
+     * Занятость и данные меняются только под блокировкой записи; отметку ставят читатели без блокировки.
+     */
+    private final class Segment {
+        private static final int STRIDE = 4;
+
+        private final StampedLock lock = new StampedLock();
+        private final long[] keys;
+        /** cpnId, reserveKeyMsb, reserveKeyLsb, createdAt << 20 | clientId */
+        private final long[] data;
+        private final boolean[] used;
+        private final boolean[] referenced;
+        private final int mask;
+        private final int maxSize;
+        private volatile int size;
+        private int hand;
+
+        Segment(int maxSize) {
+            int capacity = Integer.highestOneBit(Math.max(4, maxSize + maxSize / 3 - 1)) << 1;
+            this.keys = new long[capacity];
+            this.data = new long[capacity * STRIDE];
+            this.used = new boolean[capacity];
+            this.referenced = new boolean[capacity];
+            this.mask = capacity - 1;
+            this.maxSize = maxSize;
+        }
+
+        boolean read(long key, int hash, Entry out) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                int slot = find(key, hash);
+                if (slot != NO_ORDER) {
+                    copy(slot, out);
+                }
+                if (lock.validate(stamp)) {
+                    if (slot != NO_ORDER) {
+                        referenced[slot] = true;
+                    }
+                    return slot != NO_ORDER;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                int slot = find(key, hash);
+                if (slot == NO_ORDER) {
+                    return false;
+                }
+                copy(slot, out);
+                referenced[slot] = true;
+                return true;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        boolean putIfAbsent(long key, int hash, Entry entry) {
+            long stamp = lock.writeLock();
+            try {
+                int slot = find(key, hash);
+                if (slot != NO_ORDER) {
+                    copy(slot, entry);
+                    referenced[slot] = true;
+                    return false;
+                }
+                if (size >= maxSize) {
+                    evictOne();
+                }
+                slot = hash & mask;
+                while (used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                int base = slot * STRIDE;
+                data[base] = entry.cpnId;
+                data[base + 1] = entry.reserveKeyMsb;
+                data[base + 2] = entry.reserveKeyLsb;
+                data[base + 3] = entry.createdAt << 20 | entry.clientId;
+                referenced[slot] = false;
+                used[slot] = true;
+                size++;
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Поиск ячейки ключа. При оптимистичном чтении массивы могут меняться, поэтому
+         * количество проб ограничено размером таблицы, а результат проверяется штампом.
+         */
+        private int find(long key, int hash) {
+            int slot = hash & mask;
+            for (int probes = 0; probes <= mask && used[slot]; probes++) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return NO_ORDER;
+        }
+
+        private void copy(int slot, Entry out) {
+            int base = slot * STRIDE;
+            long packed = data[base + 3];
+            out.set(data[base], (int) (packed & 0xFFFFF), data[base + 1], data[base + 2], packed >>> 20);
+        }
+
+        private void evictOne() {
+            while (true) {
+                int slot = hand;
+                hand = (hand + 1) & mask;
+                if (!used[slot]) {
+                    continue;
+                }
+                if (referenced[slot]) {
+                    referenced[slot] = false;
+                    continue;
+                }
+                delete(slot);
+                // На место удаленной записи могла сдвинуться следующая, стрелка проверит ее снова
+                hand = slot;
+                evicted.increment();
+                return;
+            }
+        }
+
+        /**
+         * Удаление со сдвигом назад: записи той же цепочки пробирования переносятся в освободившуюся
+         * ячейку, поэтому таблица обходится без маркеров удаления.
+         */
+        private void delete(int slot) {
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            while (used[next]) {
+                int ideal = (int) hash(keys[next]) & mask;
+                if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    System.arraycopy(data, next * STRIDE, data, hole * STRIDE, STRIDE);
+                    referenced[hole] = referenced[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            used[hole] = false;
+            referenced[hole] = false;
+            size--;
+        }
+    }
+}
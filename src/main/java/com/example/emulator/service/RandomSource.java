@@ -0,0 +1,269 @@
+package com.example.emulator.service;
+
+import com.example.emulator.config.EmulatorConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Общий источник случайных значений эмулятора: задержки, выбор купона, client_id и reserve_key.
+ *
+ * По умолчанию использует {@link ThreadLocalRandom}: у каждого потока event loop свой генератор,
+ * поэтому нет общего состояния и CAS, как у разделяемого java.util.Random.
+ * reserve_key строится из двух случайных long без SecureRandom
+ * (UUID.randomUUID() синхронизирован и криптостоек, что эмулятору не нужно).
+ *
+ * Если задан emulator.random.seed, у каждого потока свой {@link SplittableRandom}, отщепленный
+ * от корневого генератора с этим seed при первом обращении потока, поэтому потоки не разделяют состояние.
+ * Воспроизводим только последовательный прогон: запросы идут по одному и обрабатываются
+ * теми же потоками в том же порядке (например, по одному соединению).
+ *
+ * В детерминированном режиме (emulator.random.deterministic) значения заказов не берутся
+ * из последовательности, а вычисляются хэшем: купон ответа - от seed и нормализованного запроса
+ * (или RqUID), client_id и reserve_key - от seed и order_id (и RqUID при key: rq-uid).
+ * Одинаковые запросы получают одинаковые тела независимо от порядка, параллельности и узла,
+ * поэтому ответы можно кэшировать по запросу. Хэш - перемешивание SplitMix64, без общего состояния.
+ * Задержки и сценарии по-прежнему случайны. Отметка времени reserve_key версии 7 в этом режиме
+ * тоже вычисляется из ключа (в пределах 2024 года), а не берется из часов.
+ */
+@Service
+public class RandomSource {
+    private static final Logger log = LoggerFactory.getLogger(RandomSource.class);
+    private static final int CLIENT_ID_BOUND = 1_000_000;
+    /** Начало отметок времени детерминированных UUID v7: 2024-01-01T00:00:00Z */
+    private static final long V7_DETERMINISTIC_EPOCH = 1_704_067_200_000L;
+    /** Разброс отметок времени детерминированных UUID v7: один год */
+    private static final long V7_DETERMINISTIC_WINDOW = 365L * 24 * 60 * 60 * 1000;
+
+    /** Генераторы потоков от фиксированного seed или null, если используется ThreadLocalRandom */
+    private final ThreadLocal<SplittableRandom> seeded;
+    private final EmulatorConfig.Random.UuidVersion uuidVersion;
+    private final boolean deterministic;
+    private final boolean keyedByRequestId;
+    /** Перемешанный seed - основа детерминированных ключей */
+    private final long seedKey;
+
+    public RandomSource(EmulatorConfig emulatorConfig) {
+        EmulatorConfig.Random config = emulatorConfig.getRandom();
+        this.seeded = config.getSeed() != null ? perThread(new SplittableRandom(config.getSeed())) : null;
+        this.uuidVersion = config.getUuidVersion();
+        this.deterministic = config.isDeterministic();
+        this.keyedByRequestId = config.getKey() == EmulatorConfig.Random.DeterministicKey.RQ_UID;
+        this.seedKey = SplitMix64.mix(config.getSeed() != null ? config.getSeed() : 0L);
+        log.info("Random source initialized: {}, reserve_key UUID {}{}",
+                seeded != null ? "seeded (" + config.getSeed() + ")" : "thread-local", uuidVersion,
+                deterministic ? ", deterministic orders by " + config.getKey() : "");
+    }
+
+    private static ThreadLocal<SplittableRandom> perThread(SplittableRandom root) {
+        return ThreadLocal.withInitial(() -> {
+            synchronized (root) {
+                return root.split();
+            }
+        });
+    }
+
+    /**
+     * @return true если значения заказов вычисляются детерминированно по ключу
+     */
+    public boolean isDeterministic() {
+        return deterministic;
+    }
+
+    /**
+     * @return true если детерминированные значения зависят от RqUID (key: rq-uid)
+     */
+    public boolean isKeyedByRequestId() {
+        return deterministic && keyedByRequestId;
+    }
+
+    /**
+     * @return генератор для текущего потока; не следует сохранять его между вызовами
+     */
+    public RandomGenerator generator() {
+        return seeded != null ? seeded.get() : ThreadLocalRandom.current();
+    }
+
+    /**
+     * @return случайное число в диапазоне [0, bound)
+     */
+    public int nextInt(int bound) {
+        return generator().nextInt(bound);
+    }
+
+    /**
+     * @return client_id - случайное число до миллиона строкой
+     */
+    public String clientId() {
+        return clientId(generator());
+    }
+
+    /**
+     * @return client_id из переданного генератора строкой
+     */
+    public String clientId(RandomGenerator random) {
+        return Integer.toString(clientIdValue(random));
+    }
+
+    /**
+     * @return client_id числом (0 - 999999)
+     */
+    public int clientIdValue() {
+        return clientIdValue(generator());
+    }
+
+    /**
+     * @return client_id из переданного генератора числом (0 - 999999)
+     */
+    public int clientIdValue(RandomGenerator random) {
+        return random.nextInt(CLIENT_ID_BOUND);
+    }
+
+    /**
+     * @return reserve_key - UUID выбранной версии в каноническом виде
+     */
+    public String reserveKey() {
+        return uuid().toString();
+    }
+
+    /**
+     * @return reserve_key из переданного генератора в каноническом виде
+     */
+    public String reserveKey(RandomGenerator random) {
+        return uuid(random).toString();
+    }
+
+    /**
+     * Генерирует некриптографический UUID версии 4 или 7 (RFC 9562).
+     */
+    public UUID uuid() {
+        return uuid(generator());
+    }
+
+    /**
+     * Генерирует UUID версии 4 или 7 из переданного генератора.
+     */
+    public UUID uuid(RandomGenerator random) {
+        long msb = random.nextLong();
+        long lsb = random.nextLong();
+        if (uuidVersion == EmulatorConfig.Random.UuidVersion.V7) {
+            // 48 бит unix-времени в миллисекундах, затем версия и 12 случайных бит.
+            // В детерминированном режиме время берется из того же генератора, что и остальные биты
+            long millis = deterministic
+                    ? V7_DETERMINISTIC_EPOCH + Math.floorMod(random.nextLong(), V7_DETERMINISTIC_WINDOW)
+                    : System.currentTimeMillis();
+            msb = (millis << 16) | (msb & 0x0FFFL) | 0x7000L;
+        } else {
+            msb = (msb & ~0xF000L) | 0x4000L;
+        }
+        lsb = (lsb & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * Ключ запроса для детерминированного режима: хэш RqUID (при key: rq-uid) или нормализованного
+     * запроса - списка order_ids либо пары order_id_from и количества заказов.
+     * Вне детерминированного режима не вычисляется и равен 0.
+     *
+     * @param requestId RqUID или null
+     * @return ключ, от которого зависят купон ответа и (при key: rq-uid) значения заказов
+     */
+    public long requestKey(String requestId, Long orderIdFrom, List<Long> orderIds, int orderCount) {
+        if (!deterministic) {
+            return 0;
+        }
+        long h = seedKey;
+        if (keyedByRequestId && requestId != null) {
+            for (int i = 0; i < requestId.length(); i++) {
+                h = (h ^ requestId.charAt(i)) * 0x100000001B3L;
+            }
+            return SplitMix64.mix(h);
+        }
+        if (orderIds != null && !orderIds.isEmpty()) {
+            for (Long orderId : orderIds) {
+                h = SplitMix64.mix(h ^ orderId);
+            }
+        } else {
+            h = SplitMix64.mix(h ^ (orderIdFrom != null ? orderIdFrom : 1L));
+        }
+        return SplitMix64.mix(h + orderCount);
+    }
+
+    /**
+     * @param requestKey ключ из {@link #requestKey}
+     * @return генератор для выбора купона ответа: детерминированный по ключу или общий
+     */
+    public RandomGenerator responseGenerator(long requestKey) {
+        return deterministic ? new Keyed().reset(requestKey) : generator();
+    }
+
+    /**
+     * @param requestKey ключ из {@link #requestKey}
+     * @return источник генераторов значений заказов одного ответа
+     */
+    public OrderRandom orderRandom(long requestKey) {
+        return new OrderRandom(keyedByRequestId ? requestKey : seedKey);
+    }
+
+    /**
+     * Генераторы значений заказов одного ответа. В детерминированном режиме для каждого заказа
+     * переиспользуется один генератор, сброшенный на ключ заказа, поэтому объект не разделяется
+     * между потоками и живет в пределах генерации одного ответа.
+     */
+    public final class OrderRandom {
+        private final long base;
+        private final Keyed keyed;
+
+        private OrderRandom(long base) {
+            this.base = base;
+            this.keyed = deterministic ? new Keyed() : null;
+        }
+
+        /**
+         * @return генератор значений заказа; действителен до следующего вызова
+         */
+        public RandomGenerator forOrder(long orderId) {
+            return keyed != null ? keyed.reset(base ^ SplitMix64.mix(orderId)) : generator();
+        }
+    }
+
+    /**
+     * Короткая последовательность SplitMix64 от ключа без атомарного состояния.
+     */
+    private static final class Keyed implements RandomGenerator {
+        private long state;
+
+        Keyed reset(long key) {
+            this.state = key;
+            return this;
+        }
+
+        @Override
+        public long nextLong() {
+            state += SplitMix64.GOLDEN_GAMMA;
+            return SplitMix64.mix(state);
+        }
+    }
+
+    /**
+     * Шаг и функция перемешивания SplitMix64.
+     */
+    static final class SplitMix64 {
+        private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+        private SplitMix64() {
+        }
+
+        static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
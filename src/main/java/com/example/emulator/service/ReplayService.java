@@ -0,0 +1,161 @@
+package com.example.emulator.service;
+
+import com.example.emulator.config.EmulatorConfig;
+import com.example.emulator.dto.ReplayReloadResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Воспроизведение записанных ответов реального сервиса.
+ *
+ * Файл записей emulator.replay.location загружается в {@link ReplayStore} и публикуется
+ * через AtomicReference, как каталог CPN: перезагрузка строит новое хранилище вне event loop
+ * и атомарно подменяет ссылку. Отображение старого файла освобождается сборщиком мусора,
+ * когда его перестают использовать ответы в обработке.
+ *
+ * Запрос ищется по пути и значению заголовка emulator.replay.key-header; найденный ответ
+ * отдается после записанной задержки, иначе запрос обрабатывается генератором как обычно.
+ * Попадания и промахи считает метрика emulator.replay.requests{result}.
+ */
+@Service
+public class ReplayService {
+    private static final Logger log = LoggerFactory.getLogger(ReplayService.class);
+
+    private final ObjectMapper objectMapper;
+    private final ResourceLoader resourceLoader;
+    private final EmulatorConfig.Replay config;
+    private final DelayService delayService;
+    private final ResponseMetrics.Meters meters;
+    private final AtomicReference<ReplayStore> store = new AtomicReference<>(ReplayStore.empty());
+    private final Object reloadLock = new Object();
+    private final Counter hits;
+    private final Counter misses;
+
+    public ReplayService(ObjectMapper objectMapper,
+                         ResourceLoader resourceLoader,
+                         EmulatorConfig emulatorConfig,
+                         DelayService delayService,
+                         ResponseMetrics responseMetrics,
+                         MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.resourceLoader = resourceLoader;
+        this.config = emulatorConfig.getReplay();
+        this.delayService = delayService;
+        this.meters = responseMetrics.meters(DelayService.ENDPOINT_REPLAY);
+        this.hits = requestCounter(meterRegistry, "hit");
+        this.misses = requestCounter(meterRegistry, "miss");
+        Gauge.builder("emulator.replay.entries", store, ref -> ref.get().size())
+                .description("Количество записанных ответов в текущем хранилище")
+                .register(meterRegistry);
+        Gauge.builder("emulator.replay.source.bytes", store, ref -> ref.get().bytes())
+                .description("Размер файла, из которого загружены записанные ответы")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void loadStore() {
+        if (!isEnabled()) {
+            log.info("Replay is disabled: emulator.replay.location is not set");
+            return;
+        }
+        try {
+            reloadNow();
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not load replay records from " + config.getLocation(), e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return config.getLocation() != null;
+    }
+
+    /**
+     * @return заголовок запроса, по значению которого ищется запись
+     */
+    public String getKeyHeader() {
+        return config.getKeyHeader();
+    }
+
+    /**
+     * @return текущее хранилище записей
+     */
+    public ReplayStore getStore() {
+        return store.get();
+    }
+
+    /**
+     * Ищет записанный ответ и учитывает попадание или промах.
+     *
+     * @param path путь запроса
+     * @param key значение заголовка ключа
+     * @return записанный ответ или null
+     */
+    @Nullable
+    public ReplayStore.Response find(String path, String key) {
+        ReplayStore.Response response = store.get().find(path, key);
+        (response != null ? hits : misses).increment();
+        return response;
+    }
+
+    /**
+     * @return Mono, завершающийся после записанной задержки ответа
+     */
+    public Mono<Void> delay(ReplayStore.Response response) {
+        return delayService.delay(meters, response.latency());
+    }
+
+    /**
+     * Перечитывает файл записей вне event loop.
+     * При ошибке текущее хранилище остается без изменений.
+     *
+     * @return Mono с результатом перезагрузки
+     */
+    public Mono<ReplayReloadResponse> reload() {
+        return Mono.fromCallable(this::reloadNow)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private ReplayReloadResponse reloadNow() throws IOException {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Replay location is not configured (emulator.replay.location)");
+        }
+        synchronized (reloadLock) {
+            long start = System.nanoTime();
+            Resource resource = resourceLoader.getResource(config.getLocation());
+            if (!resource.isFile()) {
+                throw new IllegalStateException("Replay records must be a file: " + config.getLocation());
+            }
+            ReplayStore loaded = ReplayStore.load(resource.getFile().toPath(), objectMapper);
+            ReplayStore previous = store.getAndSet(loaded);
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            log.info("Replay records loaded from {}: {} -> {} entries ({} bytes, {} duplicate keys skipped, "
+                            + "{} hash collisions) in {} ms",
+                    config.getLocation(), previous.size(), loaded.size(), loaded.bytes(), loaded.duplicates(),
+                    loaded.collisions(), elapsed);
+            return new ReplayReloadResponse("success", loaded.size(), elapsed, null);
+        }
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("emulator.replay.requests")
+                .description("Запросы, для которых искался записанный ответ")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
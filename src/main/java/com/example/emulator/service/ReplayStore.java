@@ -0,0 +1,484 @@
+package com.example.emulator.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Индексированное хранилище записанных ответов для режима воспроизведения.
+ *
+ * Источник - JSONL-файл, по одной записи на строку:
+ * <pre>
+ * {"path": "/api/back/v1/cpn/orders", "key": "6f1c...", "status": 200, "latency_ms": 87.5,
+ *  "headers": {"Content-Type": "application/json"}, "body": {...}}
+ * </pre>
+ * Файл отображается в память регионами до {@link #REGION_SIZE} байт, границы регионов
+ * проходят между строками. Тело ответа не копируется в кучу: в индексе хранится только
+ * его положение в регионе, ответ отдается срезом отображенного буфера.
+ * Тело-объект или массив отдается как записано, тело-строка - без кавычек
+ * (строки с escape-последовательностями не поддерживаются).
+ *
+ * Ключ записи - 64-битный хэш пары (path, key) в {@link LongIntIndex}; сами path и key тоже не копируются
+ * в кучу, а сравниваются с запросом по положению в регионе, поэтому совпадение хэша разных пар
+ * не отдает чужой ответ. Записи с совпавшим хэшем, но другой парой (path, key) хранятся в отдельной
+ * небольшой таблице по строковому ключу. Остальные поля записи лежат в примитивных массивах,
+ * одинаковые наборы заголовков хранятся один раз. При повторе пары (path, key) используется первая запись;
+ * path и key с escape-последовательностями не поддерживаются. Хранилище иммутабельно после загрузки.
+ */
+public final class ReplayStore {
+    /** Максимальный размер одного отображенного региона файла */
+    static final long REGION_SIZE = 1L << 30;
+
+    private static final TypeReference<LinkedHashMap<String, String>> HEADERS_TYPE = new TypeReference<>() {};
+    private static final ReplayStore EMPTY = new ReplayStore(new ByteBuffer[0], new LongIntIndex(0), Map.of(),
+            new long[0], new int[0], new int[0], new int[0], new long[0], new int[0], new short[0], new int[0],
+            new int[0], new HttpHeaders[0], 0, 0);
+
+    private final ByteBuffer[] regions;
+    private final LongIntIndex index;
+    /** Записи, хэш которых совпал с хэшем другой пары (path, key): path + '\0' + key -> запись */
+    private final Map<String, Integer> collided;
+    /** Регион записи в старших 32 битах, смещение path в регионе - в младших */
+    private final long[] paths;
+    private final int[] pathLengths;
+    /** Смещение key в регионе записи */
+    private final int[] keys;
+    private final int[] keyLengths;
+    /** Регион тела в старших 32 битах, смещение в регионе - в младших */
+    private final long[] bodies;
+    private final int[] lengths;
+    private final short[] statuses;
+    private final int[] latenciesMicros;
+    private final int[] headerSets;
+    private final HttpHeaders[] headers;
+    private final long bytes;
+    private final int duplicates;
+
+    private ReplayStore(ByteBuffer[] regions, LongIntIndex index, Map<String, Integer> collided,
+                        long[] paths, int[] pathLengths, int[] keys, int[] keyLengths,
+                        long[] bodies, int[] lengths, short[] statuses,
+                        int[] latenciesMicros, int[] headerSets, HttpHeaders[] headers, long bytes, int duplicates) {
+        this.regions = regions;
+        this.index = index;
+        this.collided = collided;
+        this.paths = paths;
+        this.pathLengths = pathLengths;
+        this.keys = keys;
+        this.keyLengths = keyLengths;
+        this.bodies = bodies;
+        this.lengths = lengths;
+        this.statuses = statuses;
+        this.latenciesMicros = latenciesMicros;
+        this.headerSets = headerSets;
+        this.headers = headers;
+        this.bytes = bytes;
+        this.duplicates = duplicates;
+    }
+
+    public static ReplayStore empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Записанный ответ.
+     *
+     * @param status HTTP-статус
+     * @param headers заголовки ответа (только чтение)
+     * @param latency записанное время ответа
+     * @param body тело - срез отображенного файла, отдельный для каждого вызова {@link #find}
+     */
+    public record Response(int status, HttpHeaders headers, Duration latency, ByteBuffer body) {
+    }
+
+    /**
+     * @param path путь запроса
+     * @param key значение ключа запроса (по умолчанию RqUID)
+     * @return записанный ответ или null
+     */
+    @Nullable
+    public Response find(String path, String key) {
+        int entry = index.get(hash(path, key));
+        if (entry == LongIntIndex.MISSING) {
+            return null;
+        }
+        if (!matches(entry, path, key)) {
+            Integer other = collided.isEmpty() ? null : collided.get(path + '\0' + key);
+            if (other == null) {
+                return null;
+            }
+            entry = other;
+        }
+        long body = bodies[entry];
+        ByteBuffer region = regions[(int) (body >>> 32)];
+        return new Response(statuses[entry], headers[headerSets[entry]],
+                Duration.ofNanos(latenciesMicros[entry] * 1000L),
+                region.slice((int) body, lengths[entry]));
+    }
+
+    public int size() {
+        return index.size() + collided.size();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return размер файла записей в байтах
+     */
+    public long bytes() {
+        return bytes;
+    }
+
+    /**
+     * @return количество записей, пропущенных из-за повтора пары (path, key)
+     */
+    public int duplicates() {
+        return duplicates;
+    }
+
+    /**
+     * @return количество записей, хэш которых совпал с хэшем другой пары (path, key)
+     */
+    public int collisions() {
+        return collided.size();
+    }
+
+    private boolean matches(int entry, String path, String key) {
+        ByteBuffer region = regions[(int) (paths[entry] >>> 32)];
+        return equalsUtf8(region, (int) paths[entry], pathLengths[entry], path)
+                && equalsUtf8(region, keys[entry], keyLengths[entry], key);
+    }
+
+    /**
+     * Сравнивает байты региона со строкой в UTF-8; ASCII-строки сравниваются без кодирования.
+     */
+    static boolean equalsUtf8(ByteBuffer region, int offset, int length, String value) {
+        int chars = value.length();
+        if (chars > length) {
+            return false;
+        }
+        for (int i = 0; i < chars; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                return bytes.length == length && region.slice(offset, length).equals(ByteBuffer.wrap(bytes));
+            }
+            if (region.get(offset + i) != c) {
+                return false;
+            }
+        }
+        return chars == length;
+    }
+
+    private static String decode(ByteBuffer region, int offset, int length) {
+        byte[] bytes = new byte[length];
+        region.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Хэш FNV-1a по символам пути и ключа с разделителем, чтобы ("/a", "bc") и ("/ab", "c") различались.
+     */
+    static long hash(String path, String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < path.length(); i++) {
+            h = (h ^ path.charAt(i)) * 0x100000001b3L;
+        }
+        h = (h ^ 0xFFFF) * 0x100000001b3L;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Разбирает файл записей и строит хранилище.
+     * Файл читается потоково через {@link MappedFileInputStream}, затем регионы со строками
+     * отображаются в память для отдачи тел.
+     *
+     * @param path файл записей в формате JSONL
+     * @param objectMapper ObjectMapper для разбора
+     * @return загруженное хранилище
+     */
+    public static ReplayStore load(Path path, ObjectMapper objectMapper) throws IOException {
+        Builder builder = new Builder();
+        long size;
+        try (MappedFileInputStream in = new MappedFileInputStream(path);
+             JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            size = in.size();
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IllegalStateException("Replay record must be a JSON object, got " + token
+                            + " at byte " + parser.currentTokenLocation().getByteOffset());
+                }
+                builder.add(parser, objectMapper);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return builder.build(channel, size);
+        }
+    }
+
+    /**
+     * Накопитель записей при разборе файла. Новый регион начинается со строки,
+     * которая не помещается в текущий; смещения тел считаются от начала своего региона.
+     */
+    private static final class Builder {
+        private final List<Long> regionStarts = new ArrayList<>(List.of(0L));
+        private final Map<Map<String, String>, Integer> headerSetIds = new HashMap<>();
+        private final List<HttpHeaders> headerSets = new ArrayList<>();
+        private final BitSet stringBodies = new BitSet();
+        private long[] hashes = new long[1024];
+        private long[] pathRefs = new long[1024];
+        private int[] pathLengths = new int[1024];
+        private int[] keyOffsets = new int[1024];
+        private int[] keyLengths = new int[1024];
+        private long[] bodies = new long[1024];
+        private int[] lengths = new int[1024];
+        private short[] statuses = new short[1024];
+        private int[] latencies = new int[1024];
+        private int[] headerIds = new int[1024];
+        private int size;
+
+        void add(JsonParser parser, ObjectMapper objectMapper) throws IOException {
+            long recordStart = parser.currentTokenLocation().getByteOffset();
+            String path = null;
+            String key = null;
+            long pathStart = 0;
+            long keyStart = 0;
+            int status = 200;
+            double latencyMs = 0;
+            Map<String, String> recordHeaders = null;
+            long bodyStart = 0;
+            long bodyEnd = 0;
+            boolean stringBody = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "path" -> {
+                        pathStart = parser.currentTokenLocation().getByteOffset() + 1;
+                        path = rawString(parser, value, "path", pathStart);
+                    }
+                    case "key" -> {
+                        keyStart = parser.currentTokenLocation().getByteOffset() + 1;
+                        key = rawString(parser, value, "key", keyStart);
+                    }
+                    case "status" -> status = parser.getIntValue();
+                    case "latency_ms" -> latencyMs = parser.getDoubleValue();
+                    case "headers" -> recordHeaders = value == JsonToken.VALUE_NULL ? null
+                            : objectMapper.readValue(parser, HEADERS_TYPE);
+                    case "body" -> {
+                        if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                            bodyStart = parser.currentTokenLocation().getByteOffset();
+                            parser.skipChildren();
+                            bodyEnd = parser.currentLocation().getByteOffset();
+                            stringBody = false;
+                        } else if (value == JsonToken.VALUE_STRING) {
+                            // Содержимое строки без кавычек; finishToken не создает String
+                            bodyStart = parser.currentTokenLocation().getByteOffset() + 1;
+                            parser.finishToken();
+                            bodyEnd = parser.currentLocation().getByteOffset() - 1;
+                            stringBody = true;
+                        } else if (value != JsonToken.VALUE_NULL) {
+                            throw new IllegalStateException("Replay body must be an object, array or string at byte "
+                                    + parser.currentTokenLocation().getByteOffset());
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+            long recordEnd = parser.currentLocation().getByteOffset();
+            if (path == null || key == null) {
+                throw new IllegalStateException("Replay record at byte " + recordStart + " must have path and key");
+            }
+            if (status < 100 || status > 599 || latencyMs < 0 || latencyMs * 1000 > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Invalid status or latency_ms in replay record at byte " + recordStart);
+            }
+            long regionStart = regionStarts.get(regionStarts.size() - 1);
+            if (recordEnd - regionStart > REGION_SIZE) {
+                if (recordEnd - recordStart > REGION_SIZE) {
+                    throw new IllegalStateException("Replay record at byte " + recordStart + " exceeds "
+                            + REGION_SIZE + " bytes");
+                }
+                regionStart = recordStart;
+                regionStarts.add(regionStart);
+            }
+            ensureCapacity();
+            hashes[size] = hash(path, key);
+            pathRefs[size] = ((long) (regionStarts.size() - 1) << 32) | (pathStart - regionStart);
+            pathLengths[size] = utf8Length(path);
+            keyOffsets[size] = (int) (keyStart - regionStart);
+            keyLengths[size] = utf8Length(key);
+            long bodyOffset = bodyEnd > bodyStart ? bodyStart - regionStart : 0;
+            bodies[size] = ((long) (regionStarts.size() - 1) << 32) | bodyOffset;
+            lengths[size] = (int) (bodyEnd - bodyStart);
+            statuses[size] = (short) status;
+            latencies[size] = (int) Math.round(latencyMs * 1000);
+            headerIds[size] = headerSet(recordHeaders, stringBody);
+            stringBodies.set(size, stringBody);
+            size++;
+        }
+
+        ReplayStore build(FileChannel channel, long fileSize) throws IOException {
+            ByteBuffer[] regions = new ByteBuffer[regionStarts.size()];
+            for (int i = 0; i < regions.length; i++) {
+                long start = regionStarts.get(i);
+                long end = i + 1 < regions.length ? regionStarts.get(i + 1) : fileSize;
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(end - start, REGION_SIZE));
+            }
+            LongIntIndex index = new LongIntIndex(size);
+            Map<String, Integer> collided = new HashMap<>();
+            int duplicates = 0;
+            for (int i = 0; i < size; i++) {
+                ByteBuffer region = regions[(int) (bodies[i] >>> 32)];
+                verifyBody(region, (int) bodies[i], lengths[i], stringBodies.get(i));
+                if (index.putIfAbsent(hashes[i], i)) {
+                    continue;
+                }
+                int first = index.get(hashes[i]);
+                ByteBuffer firstRegion = regions[(int) (pathRefs[first] >>> 32)];
+                ByteBuffer pathRegion = regions[(int) (pathRefs[i] >>> 32)];
+                String path = decode(pathRegion, (int) pathRefs[i], pathLengths[i]);
+                String key = decode(pathRegion, keyOffsets[i], keyLengths[i]);
+                boolean samePair = equalsUtf8(firstRegion, (int) pathRefs[first], pathLengths[first], path)
+                        && equalsUtf8(firstRegion, keyOffsets[first], keyLengths[first], key);
+                if (samePair || collided.putIfAbsent(path + '\0' + key, i) != null) {
+                    duplicates++;
+                }
+            }
+            return new ReplayStore(regions, index, collided, Arrays.copyOf(pathRefs, size),
+                    Arrays.copyOf(pathLengths, size), Arrays.copyOf(keyOffsets, size), Arrays.copyOf(keyLengths, size),
+                    Arrays.copyOf(bodies, size), Arrays.copyOf(lengths, size),
+                    Arrays.copyOf(statuses, size), Arrays.copyOf(latencies, size), Arrays.copyOf(headerIds, size),
+                    headerSets.toArray(new HttpHeaders[0]), fileSize, duplicates);
+        }
+
+        /**
+         * Читает строковое значение path или key. Значение сравнивается с запросом по байтам файла,
+         * поэтому его запись в файле должна совпадать с UTF-8 без escape-последовательностей.
+         */
+        private static String rawString(JsonParser parser, JsonToken value, String field, long start)
+                throws IOException {
+            if (value != JsonToken.VALUE_STRING) {
+                throw new IllegalStateException("Replay " + field + " must be a string at byte " + (start - 1));
+            }
+            String text = parser.getText();
+            long end = parser.currentLocation().getByteOffset() - 1;
+            if (end - start != utf8Length(text)) {
+                throw new IllegalStateException("Replay " + field + " with escape sequences is not supported at byte "
+                        + (start - 1));
+            }
+            return text;
+        }
+
+        private static int utf8Length(String value) {
+            int length = 0;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    length++;
+                } else if (c < 0x800) {
+                    length += 2;
+                } else if (Character.isHighSurrogate(c)) {
+                    length += 4;
+                    i++;
+                } else {
+                    length += 3;
+                }
+            }
+            return length;
+        }
+
+        /**
+         * Проверяет, что найденные при разборе границы тела совпадают с содержимым файла,
+         * и что тело-строку можно отдать без раскодирования.
+         */
+        private static void verifyBody(ByteBuffer region, int offset, int length, boolean stringBody) {
+            if (length == 0) {
+                return;
+            }
+            if (stringBody) {
+                for (int i = offset; i < offset + length; i++) {
+                    if (region.get(i) == '\\') {
+                        throw new IllegalStateException("Replay string bodies with escape sequences are not supported,"
+                                + " store the body as a JSON value");
+                    }
+                }
+                return;
+            }
+            byte first = region.get(offset);
+            byte last = region.get(offset + length - 1);
+            if (!(first == '{' && last == '}') && !(first == '[' && last == ']')) {
+                throw new IllegalStateException("Unexpected replay body bounds at region offset " + offset);
+            }
+        }
+
+        /**
+         * Заголовки длины и кодирования тела записанного ответа отбрасываются: они выставляются
+         * при отдаче. Без Content-Type тип выбирается по виду тела.
+         */
+        private int headerSet(@Nullable Map<String, String> recordHeaders, boolean stringBody) {
+            Map<String, String> key = new LinkedHashMap<>();
+            if (recordHeaders != null) {
+                recordHeaders.forEach((name, value) -> {
+                    if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)
+                            && !HttpHeaders.TRANSFER_ENCODING.equalsIgnoreCase(name)) {
+                        key.put(name, value);
+                    }
+                });
+            }
+            if (key.keySet().stream().noneMatch(HttpHeaders.CONTENT_TYPE::equalsIgnoreCase)) {
+                key.put(HttpHeaders.CONTENT_TYPE, stringBody
+                        ? MediaType.TEXT_PLAIN_VALUE + ";charset=UTF-8" : MediaType.APPLICATION_JSON_VALUE);
+            }
+            Integer id = headerSetIds.get(key);
+            if (id == null) {
+                HttpHeaders httpHeaders = new HttpHeaders();
+                key.forEach(httpHeaders::add);
+                id = headerSets.size();
+                headerSets.add(HttpHeaders.readOnlyHttpHeaders(httpHeaders));
+                headerSetIds.put(key, id);
+            }
+            return id;
+        }
+
+        private void ensureCapacity() {
+            if (size < hashes.length) {
+                return;
+            }
+            int capacity = hashes.length * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            pathRefs = Arrays.copyOf(pathRefs, capacity);
+            pathLengths = Arrays.copyOf(pathLengths, capacity);
+            keyOffsets = Arrays.copyOf(keyOffsets, capacity);
+            keyLengths = Arrays.copyOf(keyLengths, capacity);
+            bodies = Arrays.copyOf(bodies, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            latencies = Arrays.copyOf(latencies, capacity);
+            headerIds = Arrays.copyOf(headerIds, capacity);
+        }
+    }
+}
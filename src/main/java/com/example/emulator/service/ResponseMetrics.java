@@ -0,0 +1,217 @@
+package com.example.emulator.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики обработки эмулируемых ответов по этапам.
+ *
+ * Стандартный таймер http.server.requests складывает искусственную задержку с реальной работой,
+ * поэтому по нему не видно собственных накладных расходов эмулятора. Здесь каждый этап
+ * измеряется отдельно:
+ * - emulator.response.catalog.lookup - выбор купона из каталога;
+ * - emulator.response.construction - сборка ответа (объектов или конверта шаблона);
+ * - emulator.response.serialization и emulator.response.bytes - запись JSON и размер тела;
+ * - emulator.delay.applied - выбранная задержка;
+ * - emulator.delay.scheduler.lateness - опоздание срабатывания задержки относительно срока.
+ *
+ * Все метрики имеют теги endpoint и limit (корзина количества заказов: 0, 1, 10, 100, 1000,
+ * 10000, more; none - для эндпоинтов без заказов) и публикуют гистограммы для Prometheus.
+ * Набор метрик одной пары тегов создается при первом обращении и далее берется из кэша.
+ *
+ * Параллельная генерация больших ответов (emulator.orders.parallel-threshold) учитывается без тегов:
+ * - emulator.response.parallel.chunks - количество частей ответа, сгенерированных вне event loop;
+ * - emulator.response.offloaded - время генерации, вынесенное с event loop на пул генерации.
+ */
+@Service
+public class ResponseMetrics {
+    /** Значение тега limit для эндпоинтов без заказов */
+    public static final String LIMIT_NONE = "none";
+
+    private static final String[] LIMIT_BUCKETS = {"0", "1", "10", "100", "1000", "10000", "more"};
+    private static final int NONE_INDEX = LIMIT_BUCKETS.length;
+
+    /**
+     * Эмулируемые эндпоинты, ответы которых сериализуются кодеком WebFlux.
+     * Тело /cpn/orders пишется сервисом напрямую и учитывается в {@link OrderResponseService}.
+     */
+    private static final Map<String, String> ENDPOINT_PATHS = Map.of(
+            "/api/back/v1/emulate", DelayService.ENDPOINT_EMULATE);
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Meters[]> meters = new ConcurrentHashMap<>();
+    private final DistributionSummary parallelChunks;
+    private final Timer offloaded;
+
+    public ResponseMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.parallelChunks = DistributionSummary.builder("emulator.response.parallel.chunks")
+                .description("Количество частей ответа, сгенерированных параллельно вне event loop")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(10_000.0)
+                .register(meterRegistry);
+        this.offloaded = Timer.builder("emulator.response.offloaded")
+                .description("Время генерации ответа, вынесенное с event loop на пул генерации")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(1000))
+                .maximumExpectedValue(Duration.ofSeconds(60))
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param endpoint имя эндпоинта (см. константы DelayService.ENDPOINT_*)
+     * @param orderCount количество заказов в ответе
+     * @return метрики эндпоинта для корзины количества заказов
+     */
+    public Meters meters(String endpoint, int orderCount) {
+        return metersAt(endpoint, bucketIndex(orderCount));
+    }
+
+    /**
+     * @param endpoint имя эндпоинта без заказов
+     * @return метрики эндпоинта с тегом limit=none
+     */
+    public Meters meters(String endpoint) {
+        return metersAt(endpoint, NONE_INDEX);
+    }
+
+    /**
+     * @return метрики эмулируемого эндпоинта по пути запроса, либо null для остальных путей
+     */
+    @Nullable
+    public Meters forRequest(ServerHttpRequest request) {
+        String endpoint = ENDPOINT_PATHS.get(request.getPath().pathWithinApplication().value());
+        return endpoint != null ? meters(endpoint) : null;
+    }
+
+    /**
+     * Учитывает ответ, сгенерированный частями на пуле генерации.
+     *
+     * @param chunks количество частей
+     * @param nanos суммарное время генерации частей (не занятое на event loop)
+     */
+    public void recordParallelGeneration(int chunks, long nanos) {
+        parallelChunks.record(chunks);
+        offloaded.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static int bucketIndex(int orderCount) {
+        if (orderCount <= 1) {
+            return Math.max(orderCount, 0);
+        }
+        int index = 2;
+        for (int bound = 10; bound < orderCount && index < LIMIT_BUCKETS.length - 1; bound *= 10) {
+            index++;
+        }
+        return index;
+    }
+
+    private Meters metersAt(String endpoint, int index) {
+        Meters[] byBucket = meters.computeIfAbsent(endpoint, key -> new Meters[NONE_INDEX + 1]);
+        Meters result = byBucket[index];
+        if (result == null) {
+            // При гонке оба потока получат из реестра одни и те же метрики
+            result = new Meters(endpoint, index == NONE_INDEX ? LIMIT_NONE : LIMIT_BUCKETS[index]);
+            byBucket[index] = result;
+        }
+        return result;
+    }
+
+    /**
+     * Метрики одной пары тегов endpoint и limit.
+     */
+    public final class Meters {
+        private final String endpoint;
+        private final Timer catalogLookup;
+        private final Timer construction;
+        private final Timer serialization;
+        private final DistributionSummary bytes;
+        private final Timer delay;
+        private final Timer lateness;
+
+        private Meters(String endpoint, String limit) {
+            this.endpoint = endpoint;
+            this.catalogLookup = stageTimer("emulator.response.catalog.lookup",
+                    "Выбор купона из каталога", endpoint, limit);
+            this.construction = stageTimer("emulator.response.construction",
+                    "Сборка ответа без сериализации заказов", endpoint, limit);
+            this.serialization = stageTimer("emulator.response.serialization",
+                    "Запись JSON-тела ответа", endpoint, limit);
+            this.bytes = DistributionSummary.builder("emulator.response.bytes")
+                    .description("Размер JSON-тела ответа")
+                    .baseUnit("bytes")
+                    .tag("endpoint", endpoint)
+                    .tag("limit", limit)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(64.0)
+                    .maximumExpectedValue(256.0 * 1024 * 1024)
+                    .register(meterRegistry);
+            this.delay = Timer.builder("emulator.delay.applied")
+                    .description("Задержка, выбранная для эмулируемого ответа")
+                    .tag("endpoint", endpoint)
+                    .tag("limit", limit)
+                    .publishPercentiles(0.5, 0.9, 0.99, 0.999)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(30))
+                    .register(meterRegistry);
+            this.lateness = Timer.builder("emulator.delay.scheduler.lateness")
+                    .description("Опоздание срабатывания эмулируемой задержки относительно срока")
+                    .tag("endpoint", endpoint)
+                    .tag("limit", limit)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(1000))
+                    .maximumExpectedValue(Duration.ofSeconds(1))
+                    .register(meterRegistry);
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public void recordCatalogLookup(long nanos) {
+            catalogLookup.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        public void recordConstruction(long nanos) {
+            construction.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        public void recordSerialization(long nanos, long size) {
+            serialization.record(nanos, TimeUnit.NANOSECONDS);
+            bytes.record(size);
+        }
+
+        public void recordDelay(Duration applied) {
+            delay.record(applied);
+        }
+
+        /**
+         * @return таймер опоздания задержки для {@link DelayScheduler}
+         */
+        public Timer lateness() {
+            return lateness;
+        }
+    }
+
+    private Timer stageTimer(String name, String description, String endpoint, String limit) {
+        return Timer.builder(name)
+                .description(description)
+                .tag("endpoint", endpoint)
+                .tag("limit", limit)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(1000))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.emulator.service;
+
+import com.example.emulator.dto.ScenarioRules;
+import com.example.emulator.dto.ScenarioRules.ActionType;
+import io.micrometer.core.instrument.Counter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Действие сценария, подготовленное при загрузке правил:
+ * статус, заголовки и тело ответа об ошибке уже разобраны и закодированы.
+ */
+public final class Scenario {
+    private static final int DEFAULT_ERROR_STATUS = 500;
+    private static final Duration DEFAULT_HANG = Duration.ofMinutes(5);
+    private static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    private final String name;
+    private final ActionType type;
+    private final Duration delay;
+    private final HttpStatusCode status;
+    private final HttpHeaders headers;
+    private final byte[] body;
+    private final Duration hang;
+    private final BodyThrottler.Profile throttle;
+    private final Counter applied;
+
+    Scenario(String name, ScenarioRules.Action action, Counter applied) {
+        this.name = name;
+        this.type = action.type();
+        this.delay = Duration.ofMillis(nonNegative(action.delayMs(), "delay_ms"));
+        this.status = HttpStatusCode.valueOf(action.status() != null ? action.status() : DEFAULT_ERROR_STATUS);
+        HttpHeaders responseHeaders = new HttpHeaders();
+        if (action.headers() != null) {
+            action.headers().forEach(responseHeaders::set);
+        }
+        this.headers = HttpHeaders.readOnlyHttpHeaders(responseHeaders);
+        String text = action.body() != null ? action.body()
+                : "{\"status\":\"error\",\"errors\":[\"Injected by scenario " + name + "\"]}";
+        this.body = text.getBytes(StandardCharsets.UTF_8);
+        this.hang = action.durationMs() != null
+                ? Duration.ofMillis(nonNegative(action.durationMs(), "duration_ms")) : DEFAULT_HANG;
+        long bytesPerSecond = action.bytesPerSecond() != null ? action.bytesPerSecond() : 0;
+        int chunkSize = action.chunkSize() != null ? action.chunkSize() : DEFAULT_CHUNK_SIZE;
+        if (type == ActionType.THROTTLE && (bytesPerSecond <= 0 || chunkSize <= 0)) {
+            throw new IllegalArgumentException("Scenario " + name + ": throttle needs positive bytes_per_second and chunk_size");
+        }
+        this.throttle = type == ActionType.THROTTLE ? BodyThrottler.Profile.of(bytesPerSecond, chunkSize) : null;
+        this.applied = applied;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ActionType getType() {
+        return type;
+    }
+
+    /**
+     * @return задержка перед действием
+     */
+    public Duration getDelay() {
+        return delay;
+    }
+
+    public HttpStatusCode getStatus() {
+        return status;
+    }
+
+    /**
+     * @return дополнительные заголовки ответа об ошибке
+     */
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return тело ответа об ошибке в UTF-8; массив общий, не изменять
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * @return сколько держать соединение без ответа перед обрывом
+     */
+    public Duration getHang() {
+        return hang;
+    }
+
+    /**
+     * @return профиль отдачи тела для throttle, для остальных действий null
+     */
+    public BodyThrottler.Profile getThrottle() {
+        return throttle;
+    }
+
+    /**
+     * Учитывает применение сценария в метрике emulator.scenario.applied.
+     */
+    public void markApplied() {
+        applied.increment();
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + type.name().toLowerCase() + ")";
+    }
+
+    private long nonNegative(Long value, String field) {
+        if (value == null) {
+            return 0;
+        }
+        if (value < 0) {
+            throw new IllegalArgumentException("Scenario " + name + ": " + field + " must not be negative");
+        }
+        return value;
+    }
+}
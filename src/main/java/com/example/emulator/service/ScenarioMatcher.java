@@ -0,0 +1,317 @@
+package com.example.emulator.service;
+
+import com.example.emulator.dto.OrderRequest;
+import com.example.emulator.dto.ScenarioRules;
+import io.micrometer.core.instrument.Counter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.random.RandomGenerator;
+import java.util.regex.Pattern;
+
+/**
+ * Скомпилированный набор правил сценариев.
+ *
+ * При загрузке правила раскладываются по индексам, поэтому стоимость проверки запроса
+ * не растет с общим количеством правил:
+ * - по точному пути: для каждого пути из правил заранее собран упорядоченный список
+ *   применимых к нему правил (точных, префиксных и без пути);
+ * - внутри пути - по точному значению RqUID: правила вида "RqUID": "fail-42" достаются из HashMap.
+ * Значения заголовков без спецсимволов регулярных выражений сравниваются через equals,
+ * остальные - заранее скомпилированными Pattern.
+ *
+ * Правила применяются в порядке файла: из нескольких подходящих выбирается первое.
+ * Экземпляр иммутабелен и подменяется целиком при перезагрузке правил.
+ */
+public final class ScenarioMatcher {
+    /** Заголовок идентификатора запроса, по значению которого индексируются правила */
+    public static final String REQUEST_ID_HEADER = "RqUID";
+
+    private static final String PREFIX_SUFFIX = "/**";
+    private static final String REGEX_CHARS = "\\^$.|?*+()[]{}";
+    private static final Rule[] NO_RULES = new Rule[0];
+    private static final ScenarioMatcher EMPTY = new ScenarioMatcher(List.of());
+
+    private final int size;
+    private final Map<String, Bucket> exactPaths = new HashMap<>();
+    /** Правила с префиксом пути или без пути - для путей, не упомянутых в правилах точно */
+    private final Bucket otherPaths;
+
+    private ScenarioMatcher(List<Rule> rules) {
+        this.size = rules.size();
+        Map<String, List<Rule>> byPath = new LinkedHashMap<>();
+        List<Rule> general = new ArrayList<>();
+        for (Rule rule : rules) {
+            if (rule.exactPath != null) {
+                byPath.computeIfAbsent(rule.exactPath, path -> new ArrayList<>());
+            } else {
+                general.add(rule);
+            }
+        }
+        for (Map.Entry<String, List<Rule>> entry : byPath.entrySet()) {
+            for (Rule rule : rules) {
+                if (rule.matchesPath(entry.getKey())) {
+                    entry.getValue().add(rule);
+                }
+            }
+            exactPaths.put(entry.getKey(), new Bucket(entry.getValue()));
+        }
+        this.otherPaths = new Bucket(general);
+    }
+
+    /**
+     * Компилирует правила из файла сценариев.
+     *
+     * @param rules разобранный файл
+     * @param counters фабрика счетчика применений по имени правила и типу действия
+     * @throws IllegalArgumentException если правило некорректно
+     */
+    public static ScenarioMatcher compile(ScenarioRules rules,
+                                          BiFunction<String, ScenarioRules.ActionType, Counter> counters) {
+        if (rules == null || rules.rules() == null || rules.rules().isEmpty()) {
+            return EMPTY;
+        }
+        List<Rule> compiled = new ArrayList<>();
+        for (ScenarioRules.Rule rule : rules.rules()) {
+            if (rule == null) {
+                continue;
+            }
+            String name = rule.name() != null ? rule.name() : "rule-" + (compiled.size() + 1);
+            if (rule.action() == null || rule.action().type() == null) {
+                throw new IllegalArgumentException("Scenario " + name + " has no action type");
+            }
+            Scenario scenario = new Scenario(name, rule.action(), counters.apply(name, rule.action().type()));
+            compiled.add(new Rule(compiled.size(), rule, scenario));
+        }
+        return new ScenarioMatcher(compiled);
+    }
+
+    /**
+     * @return набор без правил
+     */
+    public static ScenarioMatcher empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param path путь запроса
+     * @return true, если для пути есть правила с условиями на тело запроса
+     */
+    public boolean needsBody(String path) {
+        return bucket(path).needsBody;
+    }
+
+    /**
+     * Находит первое подходящее правило.
+     *
+     * @param method HTTP-метод
+     * @param path путь запроса
+     * @param headers заголовки запроса
+     * @param filters фильтры из тела запроса заказов; null, если тело не читалось или не разобрано
+     * @param random генератор для правил с percentage
+     * @return действие сценария или null
+     */
+    @Nullable
+    public Scenario match(String method, String path, HttpHeaders headers,
+                          @Nullable OrderRequest.Filters filters, RandomGenerator random) {
+        Bucket bucket = bucket(path);
+        if (bucket.empty) {
+            return null;
+        }
+        Rule[] keyed = NO_RULES;
+        if (!bucket.byRequestId.isEmpty()) {
+            String requestId = headers.getFirst(REQUEST_ID_HEADER);
+            if (requestId != null) {
+                keyed = bucket.byRequestId.getOrDefault(requestId, NO_RULES);
+            }
+        }
+        Rule[] others = bucket.others;
+        int i = 0;
+        int j = 0;
+        while (i < keyed.length || j < others.length) {
+            Rule rule = j >= others.length || (i < keyed.length && keyed[i].order < others[j].order)
+                    ? keyed[i++] : others[j++];
+            if (rule.matches(method, path, headers, filters, random)) {
+                return rule.scenario;
+            }
+        }
+        return null;
+    }
+
+    private Bucket bucket(String path) {
+        Bucket bucket = exactPaths.get(path);
+        return bucket != null ? bucket : otherPaths;
+    }
+
+    /**
+     * Правила, применимые к одному пути, с индексом по точному RqUID.
+     */
+    private static final class Bucket {
+        final boolean empty;
+        final boolean needsBody;
+        final Map<String, Rule[]> byRequestId = new HashMap<>();
+        final Rule[] others;
+
+        Bucket(List<Rule> rules) {
+            this.empty = rules.isEmpty();
+            this.needsBody = rules.stream().anyMatch(rule -> rule.needsBody);
+            Map<String, List<Rule>> keyed = new HashMap<>();
+            List<Rule> rest = new ArrayList<>();
+            for (Rule rule : rules) {
+                if (rule.requestId != null) {
+                    keyed.computeIfAbsent(rule.requestId, key -> new ArrayList<>()).add(rule);
+                } else {
+                    rest.add(rule);
+                }
+            }
+            keyed.forEach((requestId, list) -> byRequestId.put(requestId, list.toArray(NO_RULES)));
+            this.others = rest.toArray(NO_RULES);
+        }
+    }
+
+    /**
+     * Скомпилированное условие одного правила.
+     */
+    private static final class Rule {
+        final int order;
+        final Scenario scenario;
+        /** Точный путь или null */
+        final String exactPath;
+        /** Префикс пути или null */
+        final String pathPrefix;
+        final String method;
+        /** Точное значение RqUID для индекса или null */
+        final String requestId;
+        final HeaderCondition[] headers;
+        final ScenarioRules.Filters filters;
+        final boolean needsBody;
+        final double percentage;
+
+        Rule(int order, ScenarioRules.Rule rule, Scenario scenario) {
+            this.order = order;
+            this.scenario = scenario;
+            String path = rule.path();
+            if (path == null || path.isEmpty() || path.equals(PREFIX_SUFFIX)) {
+                this.exactPath = null;
+                this.pathPrefix = null;
+            } else if (path.endsWith(PREFIX_SUFFIX)) {
+                this.exactPath = null;
+                this.pathPrefix = path.substring(0, path.length() - PREFIX_SUFFIX.length());
+            } else {
+                this.exactPath = path;
+                this.pathPrefix = null;
+            }
+            this.method = rule.method() != null ? rule.method().toUpperCase(Locale.ROOT) : null;
+
+            String keyedRequestId = null;
+            List<HeaderCondition> conditions = new ArrayList<>();
+            if (rule.headers() != null) {
+                for (Map.Entry<String, String> header : rule.headers().entrySet()) {
+                    HeaderCondition condition = new HeaderCondition(header.getKey(), header.getValue());
+                    if (keyedRequestId == null && condition.literal != null
+                            && REQUEST_ID_HEADER.equalsIgnoreCase(condition.name)) {
+                        keyedRequestId = condition.literal;
+                    } else {
+                        conditions.add(condition);
+                    }
+                }
+            }
+            this.requestId = keyedRequestId;
+            this.headers = conditions.toArray(new HeaderCondition[0]);
+            this.filters = rule.filters();
+            this.needsBody = filters != null;
+            this.percentage = rule.percentage() != null ? rule.percentage() : 100;
+            if (percentage < 0 || percentage > 100) {
+                throw new IllegalArgumentException("Scenario " + scenario.getName() + ": percentage must be between 0 and 100");
+            }
+        }
+
+        boolean matchesPath(String path) {
+            if (exactPath != null) {
+                return exactPath.equals(path);
+            }
+            // Префикс совпадает только по границе сегмента: /cpn/** не относится к /cpns
+            return pathPrefix == null || path.equals(pathPrefix) || path.startsWith(pathPrefix + "/");
+        }
+
+        boolean matches(String requestMethod, String path, HttpHeaders requestHeaders,
+                        @Nullable OrderRequest.Filters requestFilters, RandomGenerator random) {
+            if (!matchesPath(path) || (method != null && !method.equals(requestMethod))) {
+                return false;
+            }
+            for (HeaderCondition header : headers) {
+                if (!header.matches(requestHeaders.getFirst(header.name))) {
+                    return false;
+                }
+            }
+            if (filters != null && (requestFilters == null || !matchesFilters(requestFilters))) {
+                return false;
+            }
+            return percentage >= 100 || random.nextDouble() * 100 < percentage;
+        }
+
+        private boolean matchesFilters(OrderRequest.Filters request) {
+            if (filters.productType() != null && !filters.productType().equals(request.productType())) {
+                return false;
+            }
+            if (filters.limit() != null && !inRange(filters.limit(), request.limit())) {
+                return false;
+            }
+            if (filters.orderIdFrom() != null && !inRange(filters.orderIdFrom(), request.orderIdFrom())) {
+                return false;
+            }
+            return filters.orderIds() == null
+                    || inRange(filters.orderIds(), request.orderIds() != null ? request.orderIds().size() : 0);
+        }
+
+        private static boolean inRange(ScenarioRules.Range range, @Nullable Number value) {
+            if (value == null) {
+                return false;
+            }
+            long v = value.longValue();
+            return (range.min() == null || v >= range.min()) && (range.max() == null || v <= range.max());
+        }
+    }
+
+    /**
+     * Условие на значение заголовка: точное сравнение или регулярное выражение.
+     */
+    private static final class HeaderCondition {
+        final String name;
+        final String literal;
+        final Pattern pattern;
+
+        HeaderCondition(String name, String value) {
+            this.name = name;
+            if (value == null || value.chars().noneMatch(c -> REGEX_CHARS.indexOf(c) >= 0)) {
+                this.literal = value != null ? value : "";
+                this.pattern = null;
+            } else {
+                this.literal = null;
+                this.pattern = Pattern.compile(value);
+            }
+        }
+
+        boolean matches(@Nullable String value) {
+            if (value == null) {
+                return false;
+            }
+            return literal != null ? literal.equals(value) : pattern.matcher(value).matches();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.emulator.service;
+
+import com.example.emulator.config.EmulatorConfig;
+import com.example.emulator.dto.ScenarioReloadResponse;
+import com.example.emulator.dto.ScenarioRules;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Загрузка и горячая перезагрузка правил сценариев поведения.
+ *
+ * Правила читаются из JSON-файла emulator.scenarios.location, компилируются
+ * в {@link ScenarioMatcher} и публикуются через AtomicReference, как и каталог CPN:
+ * запрос в обработке работает со своим снимком, некорректный файл не заменяет текущие правила.
+ * Перезагрузка - по изменению файла (emulator.scenarios.watch) или через административный эндпоинт.
+ */
+@Service
+public class ScenarioService {
+    private static final Logger log = LoggerFactory.getLogger(ScenarioService.class);
+
+    private final ObjectMapper objectMapper;
+    private final ResourceLoader resourceLoader;
+    private final EmulatorConfig.Scenarios config;
+    private final MeterRegistry meterRegistry;
+    private final AtomicReference<ScenarioMatcher> matcher = new AtomicReference<>(ScenarioMatcher.empty());
+    private final Object reloadLock = new Object();
+
+    private volatile long lastModified = -1L;
+    private Disposable watcher;
+
+    public ScenarioService(ObjectMapper objectMapper,
+                           ResourceLoader resourceLoader,
+                           EmulatorConfig emulatorConfig,
+                           MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.resourceLoader = resourceLoader;
+        this.config = emulatorConfig.getScenarios();
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("emulator.scenario.rules", matcher, ref -> ref.get().size())
+                .description("Количество правил сценариев в текущем снимке")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void loadScenarios() {
+        if (config.getLocation() == null) {
+            log.info("Scenarios are disabled: emulator.scenarios.location is not set");
+            return;
+        }
+        try {
+            reloadNow();
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not load scenarios from " + config.getLocation(), e);
+        }
+        if (config.isWatch()) {
+            startWatching();
+        }
+    }
+
+    @PreDestroy
+    public void stopWatching() {
+        if (watcher != null) {
+            watcher.dispose();
+        }
+    }
+
+    /**
+     * @return текущий снимок правил
+     */
+    public ScenarioMatcher getMatcher() {
+        return matcher.get();
+    }
+
+    /**
+     * Перечитывает правила вне event loop.
+     * При ошибке чтения или компиляции текущие правила остаются без изменений.
+     *
+     * @return Mono с результатом перезагрузки
+     */
+    public Mono<ScenarioReloadResponse> reload() {
+        return Mono.fromCallable(this::reloadNow)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private ScenarioReloadResponse reloadNow() throws IOException {
+        if (config.getLocation() == null) {
+            throw new IllegalStateException("Scenario location is not configured (emulator.scenarios.location)");
+        }
+        synchronized (reloadLock) {
+            long start = System.nanoTime();
+            Resource resource = resourceLoader.getResource(config.getLocation());
+            lastModified = lastModified(resource);
+            ScenarioRules rules;
+            try (InputStream in = resource.getInputStream()) {
+                rules = objectMapper.readValue(in, ScenarioRules.class);
+            }
+            ScenarioMatcher compiled = ScenarioMatcher.compile(rules, this::appliedCounter);
+            ScenarioMatcher previous = matcher.getAndSet(compiled);
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            log.info("Scenarios reloaded from {}: {} -> {} rules in {} ms",
+                    config.getLocation(), previous.size(), compiled.size(), elapsed);
+            return new ScenarioReloadResponse("success", compiled.size(), elapsed, null);
+        }
+    }
+
+    private void startWatching() {
+        Resource resource = resourceLoader.getResource(config.getLocation());
+        if (lastModified(resource) < 0) {
+            log.warn("Scenarios {} is not a file, watching is disabled", config.getLocation());
+            return;
+        }
+        watcher = Flux.interval(config.getWatchInterval(), Schedulers.boundedElastic())
+                .filter(tick -> {
+                    long modified = lastModified(resource);
+                    return modified >= 0 && modified != lastModified;
+                })
+                .concatMap(tick -> reload()
+                        .onErrorResume(e -> {
+                            log.error("Failed to reload scenarios, keeping previous rules", e);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+        log.info("Watching scenarios {} every {}", config.getLocation(), config.getWatchInterval());
+    }
+
+    private Counter appliedCounter(String rule, ScenarioRules.ActionType action) {
+        return Counter.builder("emulator.scenario.applied")
+                .description("Количество запросов, к которым применен сценарий")
+                .tag("rule", rule)
+                .tag("action", action.name().toLowerCase())
+                .register(meterRegistry);
+    }
+
+    private static long lastModified(Resource resource) {
+        try {
+            return resource.isFile() ? resource.lastModified() : -1L;
+        } catch (IOException e) {
+            return -1L;
+        }
+    }
+}
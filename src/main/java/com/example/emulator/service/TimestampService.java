@@ -0,0 +1,111 @@
+package com.example.emulator.service;
+
+import com.example.emulator.config.EmulatorConfig;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Общий источник времени и отформатированных отметок времени для ответов эмулятора.
+ *
+ * Отметки в формате yyyy-MM-dd'T'HH:mm:ssXXX имеют точность до секунды, поэтому строка
+ * форматируется не чаще одного раза в секунду и кэшируется. Обновление без блокировок:
+ * иммутабельный снимок публикуется через volatile-ссылку, при одновременной смене секунды
+ * несколько потоков могут отформатировать одно и то же значение, что безопасно.
+ *
+ * Смещение задается в emulator.time.offset (по умолчанию +03:00).
+ */
+@Service
+public class TimestampService {
+    /** Целевой формат даты и времени */
+    public static final DateTimeFormatter DATE_TIME_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXXX");
+    private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final ZoneOffset offset;
+    private volatile Snapshot snapshot;
+
+    /**
+     * Отформатированные отметки времени для одной секунды.
+     */
+    private record Snapshot(long epochSecond, String now, String dayAgo) {
+    }
+
+    public TimestampService(EmulatorConfig emulatorConfig) {
+        this.offset = emulatorConfig.getTime().getOffset();
+        this.snapshot = snapshot(currentEpochSecond());
+    }
+
+    /**
+     * @return текущее время в целевом формате
+     */
+    public String now() {
+        return current().now();
+    }
+
+    /**
+     * @return время ровно сутки назад в целевом формате (срок действия промокода)
+     */
+    public String dayAgo() {
+        return current().dayAgo();
+    }
+
+    /**
+     * @return текущее время в секундах с начала эпохи (секунда кэшированной отметки {@link #now()})
+     */
+    public long epochSecond() {
+        return current().epochSecond();
+    }
+
+    /**
+     * Форматирует произвольный момент без кэширования.
+     *
+     * @param epochSecond секунды с начала эпохи
+     * @return время в целевом формате
+     */
+    public String format(long epochSecond) {
+        return DATE_TIME_FORMATTER.format(Instant.ofEpochSecond(epochSecond).atOffset(offset));
+    }
+
+    /**
+     * @param epochSecond секунды с начала эпохи
+     * @return время ровно за сутки до указанного в целевом формате
+     */
+    public String dayBefore(long epochSecond) {
+        return format(epochSecond - SECONDS_PER_DAY);
+    }
+
+    /**
+     * @return текущее время в миллисекундах с начала эпохи
+     */
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * @return смещение, с которым форматируются отметки времени
+     */
+    public ZoneOffset getOffset() {
+        return offset;
+    }
+
+    private Snapshot current() {
+        long epochSecond = currentEpochSecond();
+        Snapshot current = snapshot;
+        if (current.epochSecond() != epochSecond) {
+            current = snapshot(epochSecond);
+            snapshot = current;
+        }
+        return current;
+    }
+
+    private Snapshot snapshot(long epochSecond) {
+        return new Snapshot(epochSecond, format(epochSecond), format(epochSecond - SECONDS_PER_DAY));
+    }
+
+    private static long currentEpochSecond() {
+        return Math.floorDiv(System.currentTimeMillis(), 1000L);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.emulator.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonBytesTest {
+
+    private static String write(Consumer<DataBuffer> writer) {
+        DataBuffer buffer = DefaultDataBufferFactory.sharedInstance.allocateBuffer(16);
+        writer.accept(buffer);
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void writesLongLikeLongToString() {
+        for (long value : new long[] {0, 7, -1, 10, 1_234_567_890_123L, Long.MAX_VALUE, Long.MIN_VALUE + 1,
+                Long.MIN_VALUE}) {
+            assertThat(write(out -> JsonBytes.writeLong(out, value))).isEqualTo(Long.toString(value));
+        }
+    }
+
+    @Test
+    void writesSeveralValuesIntoOneBuffer() {
+        assertThat(write(out -> {
+            JsonBytes.writeLong(out, -42);
+            JsonBytes.writeStringContent(out, "abc");
+            JsonBytes.writeLong(out, 42);
+        })).isEqualTo("-42abc42");
+    }
+
+    @Test
+    void writesAsciiStringContentAsIs() {
+        String longValue = "x".repeat(JsonBytes.SCRATCH_SIZE * 3 + 1);
+
+        assertThat(write(out -> JsonBytes.writeStringContent(out, ""))).isEmpty();
+        assertThat(write(out -> JsonBytes.writeStringContent(out, "2024-01-01T00:00:00+03:00/a")))
+                .isEqualTo("2024-01-01T00:00:00+03:00/a");
+        assertThat(write(out -> JsonBytes.writeStringContent(out, longValue))).isEqualTo(longValue);
+    }
+
+    @Test
+    void escapesSpecialAndNonAsciiCharacters() {
+        assertThat(write(out -> JsonBytes.writeStringContent(out, "a\"b\\c\nd\u0001")))
+                .isEqualTo("a\\\"b\\\\c\\nd\\u0001");
+        assertThat(write(out -> JsonBytes.writeStringContent(out, "ключ"))).isEqualTo("ключ");
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.emulator.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongIntIndexTest {
+
+    @Test
+    void returnsValuesOfAddedKeys() {
+        LongIntIndex index = new LongIntIndex(3);
+
+        assertThat(index.putIfAbsent(10L, 0)).isTrue();
+        assertThat(index.putIfAbsent(-5L, 1)).isTrue();
+        assertThat(index.putIfAbsent(0L, 2)).isTrue();
+
+        assertThat(index.get(10L)).isEqualTo(0);
+        assertThat(index.get(-5L)).isEqualTo(1);
+        assertThat(index.get(0L)).isEqualTo(2);
+        assertThat(index.get(11L)).isEqualTo(LongIntIndex.MISSING);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void keepsFirstValueOfDuplicateKey() {
+        LongIntIndex index = new LongIntIndex(2);
+
+        assertThat(index.putIfAbsent(7L, 0)).isTrue();
+        assertThat(index.putIfAbsent(7L, 1)).isFalse();
+
+        assertThat(index.get(7L)).isEqualTo(0);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void findsAllKeysAtExpectedSize() {
+        int size = 100_000;
+        LongIntIndex index = new LongIntIndex(size);
+        for (int i = 0; i < size; i++) {
+            // Последовательные id и id с одинаковыми младшими битами
+            assertThat(index.putIfAbsent(i < size / 2 ? 1000L + i : (long) i << 32, i)).isTrue();
+        }
+
+        for (int i = 0; i < size; i++) {
+            assertThat(index.get(i < size / 2 ? 1000L + i : (long) i << 32)).isEqualTo(i);
+        }
+        assertThat(index.get(Long.MIN_VALUE)).isEqualTo(LongIntIndex.MISSING);
+        assertThat(index.size()).isEqualTo(size);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.emulator.service;
+
+import com.example.emulator.config.EmulatorConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MockRouteServiceTest {
+
+    private static MockRouteService service(String name, String body) {
+        EmulatorConfig.Mocks.Route route = new EmulatorConfig.Mocks.Route();
+        route.setName(name);
+        route.setPath("/api/accounts/{id}");
+        route.setBody(body);
+        EmulatorConfig config = new EmulatorConfig();
+        config.getMocks().getRoutes().add(route);
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RandomSource randomSource = new RandomSource(config);
+        ResponseMetrics responseMetrics = new ResponseMetrics(registry);
+        DelayService delayService = new DelayService(config, randomSource,
+                new DelayScheduler(config, registry), responseMetrics);
+        return new MockRouteService(config, new DefaultResourceLoader(), delayService, responseMetrics,
+                randomSource, new TimestampService(config));
+    }
+
+    @Test
+    void compilesKnownPlaceholders() {
+        MockRouteService service = service("account", "{\"id\": \"{{var.id}}\", \"n\": {{seq}}, "
+                + "\"r\": {{random.int(1, 6)}}, \"f\": {{body.items.0.id}}, \"q\": \"{{query.q}}\", \"t\": \"{{now}}\"}");
+
+        assertThat(service.getRoutes()).extracting(MockRouteService.Route::getName).containsExactly("account");
+    }
+
+    @Test
+    void rejectsBuiltInEndpointNames() {
+        for (String name : DelayService.BUILT_IN_ENDPOINTS) {
+            assertThatThrownBy(() -> service(name, "{}"))
+                    .as(name)
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("reserved");
+        }
+    }
+
+    @Test
+    void rejectsUnknownPlaceholders() {
+        for (String expression : new String[] {"unknown", "header.", "var.missing", "random.int(5, 1)"}) {
+            assertThatThrownBy(() -> service("account", "{\"v\": \"{{" + expression + "}}\"}"))
+                    .as(expression)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("Could not compile mock route account")
+                    .hasRootCauseInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.emulator.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MockTemplateTest {
+
+    private static String render(MockTemplate template) {
+        DataBuffer buffer = template.render(null, MissingNode.getInstance(), DefaultDataBufferFactory.sharedInstance);
+        String text = buffer.toString(StandardCharsets.UTF_8);
+        DataBufferUtils.release(buffer);
+        return text;
+    }
+
+    private static MockTemplate compile(String source, boolean json, Function<String, Object> values) {
+        return MockTemplate.compile(source.getBytes(StandardCharsets.UTF_8), json,
+                expression -> (request, body) -> values.apply(expression));
+    }
+
+    @Test
+    void rendersMoreThanTenSlots() {
+        // Маркеры слотов 1 и 10 - 11 начинаются одинаково
+        StringBuilder source = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 12; i++) {
+            source.append('[').append("{{v").append(i).append("}}").append(']');
+            expected.append("[value").append(i).append(']');
+        }
+
+        MockTemplate template = compile(source.toString(), false, expression -> "value" + expression.substring(1));
+
+        assertThat(render(template)).isEqualTo(expected.toString());
+    }
+
+    @Test
+    void evaluatesRepeatedExpressionOnce() {
+        AtomicLong seq = new AtomicLong();
+        List<String> resolved = new ArrayList<>();
+        MockTemplate template = MockTemplate.compile(
+                "{\"a\": {{seq}}, \"b\": {{ seq }}, \"c\": {{other}}, \"d\": {{seq}}}".getBytes(StandardCharsets.UTF_8),
+                true, expression -> {
+                    resolved.add(expression);
+                    return expression.equals("seq") ? (request, body) -> seq.incrementAndGet() : (request, body) -> 0L;
+                });
+
+        assertThat(resolved).containsExactly("seq", "other");
+        assertThat(render(template)).isEqualTo("{\"a\": 1, \"b\": 1, \"c\": 0, \"d\": 1}");
+        assertThat(render(template)).isEqualTo("{\"a\": 2, \"b\": 2, \"c\": 0, \"d\": 2}");
+    }
+
+    @Test
+    void escapesStringsOnlyInJsonTemplates() throws Exception {
+        JsonNode node = new ObjectMapper().readTree("{\"name\": \"x\\\"y\", \"items\": [1, 2]}");
+        Function<String, Object> values = expression -> switch (expression) {
+            case "text" -> "кот \"в\" \\сапогах\n";
+            case "node" -> node;
+            case "textNode" -> node.get("name");
+            case "number" -> -42L;
+            default -> null;
+        };
+        String source = "\"{{text}}\" {{node}} \"{{textNode}}\" {{number}} \"{{missing}}\"";
+
+        assertThat(render(compile(source, true, values)))
+                .isEqualTo("\"кот \\\"в\\\" \\\\сапогах\\n\" {\"name\":\"x\\\"y\",\"items\":[1,2]} \"x\\\"y\" -42 \"\"");
+        assertThat(render(compile(source, false, values)))
+                .isEqualTo("\"кот \"в\" \\сапогах\n\" {\"name\":\"x\\\"y\",\"items\":[1,2]} \"x\"y\" -42 \"\"");
+    }
+
+    @Test
+    void rejectsBrokenTemplates() {
+        Function<String, MockTemplate.Placeholder> resolver = expression -> (request, body) -> null;
+
+        assertThatThrownBy(() -> MockTemplate.compile("{\"a\": {{seq}".getBytes(StandardCharsets.UTF_8), true, resolver))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Unterminated placeholder");
+        assertThatThrownBy(() -> MockTemplate.compile(new byte[] {'a', 0, 'b'}, true, resolver))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("NUL");
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.emulator.service;
+
+import com.example.emulator.config.EmulatorConfig;
+import com.example.emulator.config.JacksonConfig;
+import com.example.emulator.dto.Cpn;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сборка сервисов заказов для тестов без контекста Spring.
+ */
+final class OrderFixtures {
+    static final JacksonConfig JACKSON_CONFIG = new JacksonConfig();
+
+    private OrderFixtures() {
+    }
+
+    /**
+     * Записывает каталог из 20 купонов во временный файл.
+     */
+    static Path catalog() throws IOException {
+        List<Cpn> cpns = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            cpns.add(new Cpn(1000L + i, Long.toString(500_000L + i), "Покажите промокод на кассе", "conditions",
+                    77L + i, "crm" + i, List.of(new Cpn.CpnOffer(900_000L + i, Long.toString(800_000L + i), 10))));
+        }
+        Path file = Files.createTempFile("cpn-test-", ".json");
+        file.toFile().deleteOnExit();
+        Files.write(file, JACKSON_CONFIG.compactObjectMapper().writeValueAsBytes(cpns));
+        return file;
+    }
+
+    /**
+     * Настройки с каталогом из файла, нулевой задержкой и детерминированными значениями заказов.
+     */
+    static EmulatorConfig config(Path catalog) {
+        EmulatorConfig config = new EmulatorConfig();
+        config.getCatalog().setLocation(catalog.toUri().toString());
+        config.getRandom().setSeed(42L);
+        config.getRandom().setDeterministic(true);
+        config.getScheduler().setType(EmulatorConfig.Scheduler.SchedulerType.REACTOR);
+        return config;
+    }
+
+    /**
+     * Склеивает тело ответа из всех буферов и освобождает их.
+     */
+    static String body(Publisher<DataBuffer> body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (DataBuffer buffer : Flux.from(body).collectList().block()) {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            out.writeBytes(bytes);
+            DataBufferUtils.release(buffer);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Сервисы заказов с общим реестром метрик.
+     */
+    static final class Services {
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        final EmulatorConfig config;
+        final RandomSource randomSource;
+        final ResponseMetrics responseMetrics;
+        final DelayService delayService;
+        final OrderResponseService orderResponseService;
+
+        Services(EmulatorConfig config) {
+            this.config = config;
+            CpnConfigurationService catalogService = new CpnConfigurationService(JACKSON_CONFIG.objectMapper(),
+                    new DefaultResourceLoader(), config, registry);
+            catalogService.loadConfiguration();
+            this.randomSource = new RandomSource(config);
+            this.responseMetrics = new ResponseMetrics(registry);
+            this.delayService = new DelayService(config, randomSource,
+                    new DelayScheduler(config, registry), responseMetrics);
+            this.orderResponseService = new OrderResponseService(catalogService, new TimestampService(config),
+                    randomSource, delayService, responseMetrics, new LogSampler(config),
+                    new OrderStore(config, registry), config,
+                    JACKSON_CONFIG.objectMapper(), JACKSON_CONFIG.compactObjectMapper());
+        }
+
+        OrderResponseCache orderResponseCache() {
+            return new OrderResponseCache(orderResponseService, delayService, responseMetrics, randomSource,
+                    config, registry);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.emulator.service;
+
+import com.example.emulator.config.EmulatorConfig;
+import com.example.emulator.config.JsonFormat;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderResponseCacheTest {
+    @Test
+    void etagIsLengthAndCrc32cOfBody() throws Exception {
+        OrderFixtures.Services services = services(cache -> {});
+        OrderResponseCache cache = services.orderResponseCache();
+
+        MockServerWebExchange miss = exchange();
+        String body = body(cache, miss);
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        CRC32C crc = new CRC32C();
+        crc.update(bytes);
+        assertThat(miss.getResponse().getHeaders().getETag())
+                .isEqualTo("\"" + Integer.toHexString(bytes.length) + "-" + Long.toHexString(crc.getValue()) + "\"");
+
+        MockServerWebExchange hit = exchange();
+        assertThat(body(cache, hit)).isEqualTo(body);
+        assertThat(hit.getResponse().getHeaders().getETag()).isEqualTo(miss.getResponse().getHeaders().getETag());
+        assertThat(requests(services, "miss")).isEqualTo(1);
+        assertThat(requests(services, "hit")).isEqualTo(1);
+    }
+
+    @Test
+    void matchingIfNoneMatchGetsNotModified() throws Exception {
+        OrderFixtures.Services services = services(cache -> {});
+        OrderResponseCache cache = services.orderResponseCache();
+        MockServerWebExchange miss = exchange();
+        body(cache, miss);
+        String etag = miss.getResponse().getHeaders().getETag();
+
+        for (String ifNoneMatch : new String[] {etag, "W/" + etag, "*", "\"other\", " + etag}) {
+            MockServerWebExchange exchange = exchange(ifNoneMatch);
+            assertThat(body(cache, exchange)).as(ifNoneMatch).isEmpty();
+            assertThat(exchange.getResponse().getStatusCode()).as(ifNoneMatch).isEqualTo(HttpStatus.NOT_MODIFIED);
+            assertThat(exchange.getResponse().getHeaders().getETag()).isEqualTo(etag);
+        }
+        MockServerWebExchange other = exchange("\"other\"");
+        assertThat(body(cache, other)).isNotEmpty();
+        assertThat(other.getResponse().getStatusCode()).isNotEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(requests(services, "not_modified")).isEqualTo(4);
+        assertThat(requests(services, "hit")).isEqualTo(1);
+    }
+
+    @Test
+    void delaysHitsOnlyWithDelayOnHit() throws Exception {
+        for (boolean delayOnHit : new boolean[] {true, false}) {
+            OrderFixtures.Services services = services(cache -> cache.setDelayOnHit(delayOnHit));
+            OrderResponseCache cache = services.orderResponseCache();
+            MockServerWebExchange miss = exchange();
+            body(cache, miss);
+            body(cache, exchange());
+            body(cache, exchange(miss.getResponse().getHeaders().getETag()));
+
+            // Промах задерживается при генерации ответа, попадание и 304 - только при delay-on-hit
+            long delays = services.registry.find("emulator.delay.applied").timers().stream()
+                    .mapToLong(timer -> timer.count()).sum();
+            assertThat(delays).as("delay on hit %s", delayOnHit).isEqualTo(delayOnHit ? 3 : 1);
+        }
+    }
+
+    @Test
+    void bypassesParallelMultiPartBody() throws Exception {
+        EmulatorConfig config = OrderFixtures.config(OrderFixtures.catalog());
+        config.getCache().setEnabled(true);
+        config.getOrders().setStreamingThreshold(1000);
+        config.getOrders().setParallelThreshold(100);
+        config.getOrders().setParallelChunkOrders(100);
+        OrderFixtures.Services services = new OrderFixtures.Services(config);
+        OrderResponseCache cache = services.orderResponseCache();
+        try {
+            for (int attempt = 0; attempt < 2; attempt++) {
+                MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/orders"));
+                String body = OrderFixtures.body(cache.getOrderResponseBody("rq", 1L, null, 500,
+                        JsonFormat.COMPACT, exchange));
+
+                JsonNode orders = OrderFixtures.JACKSON_CONFIG.objectMapper().readTree(body).findValue("orders");
+                assertThat(orders.size()).isEqualTo(500);
+                assertThat(exchange.getResponse().getHeaders().getETag()).isNull();
+            }
+            assertThat(services.registry.get("emulator.orders.cache.requests").tag("result", "bypass")
+                    .counter().count()).isEqualTo(2);
+            assertThat(services.registry.get("emulator.orders.cache.entries").gauge().value()).isZero();
+        } finally {
+            services.orderResponseService.stop();
+        }
+    }
+
+    @Test
+    void passesInvalidRequestsToGeneration() throws Exception {
+        OrderResponseCache cache = services(config -> {}).orderResponseCache();
+
+        StepVerifier.create(Flux.from(cache.getOrderResponseBody("rq", null, Arrays.asList(1L, null), null,
+                        JsonFormat.COMPACT, exchange())))
+                .expectError(ResponseStatusException.class)
+                .verify();
+        StepVerifier.create(Flux.from(cache.getOrderResponseBody("rq", null, null, -1, JsonFormat.COMPACT, exchange())))
+                .expectError(ResponseStatusException.class)
+                .verify();
+    }
+
+    private static OrderFixtures.Services services(Consumer<EmulatorConfig.Cache> cache) throws Exception {
+        EmulatorConfig config = OrderFixtures.config(OrderFixtures.catalog());
+        config.getCache().setEnabled(true);
+        cache.accept(config.getCache());
+        return new OrderFixtures.Services(config);
+    }
+
+    private static MockServerWebExchange exchange(String... ifNoneMatch) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/orders");
+        if (ifNoneMatch.length > 0) {
+            request.ifNoneMatch(ifNoneMatch);
+        }
+        return MockServerWebExchange.from(request);
+    }
+
+    private static String body(OrderResponseCache cache, MockServerWebExchange exchange) {
+        return OrderFixtures.body(cache.getOrderResponseBody("rq", 1L, null, 10, JsonFormat.COMPACT, exchange));
+    }
+
+    private static double requests(OrderFixtures.Services services, String result) {
+        return services.registry.get("emulator.orders.cache.requests").tag("result", result).counter().count();
+    }
+}
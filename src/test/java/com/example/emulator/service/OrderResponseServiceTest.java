@@ -0,0 +1,104 @@
+package com.example.emulator.service;
+
+import com.example.emulator.config.EmulatorConfig;
+import com.example.emulator.config.JsonFormat;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderResponseServiceTest {
+    @Test
+    void streamingBodyEqualsSingleBufferBody() throws Exception {
+        assertSameBody(orders -> {
+            orders.setStreamingThreshold(0);
+            orders.setChunkSize(1024);
+        });
+    }
+
+    @Test
+    void parallelBodyEqualsSingleBufferBody() throws Exception {
+        assertSameBody(orders -> {
+            orders.setParallelThreshold(1);
+            orders.setParallelChunkOrders(7);
+            orders.setParallelThreads(3);
+        });
+    }
+
+    @Test
+    void rejectsOrderCountAboveMaxLimit() throws Exception {
+        OrderResponseService service = service(OrderFixtures.catalog(), orders -> orders.setMaxLimit(10));
+
+        StepVerifier.create(Flux.from(service.generateOrderResponseBody("rq", 1L, null, 11, JsonFormat.COMPACT,
+                        DefaultDataBufferFactory.sharedInstance)))
+                .expectError(ResponseStatusException.class)
+                .verify();
+    }
+
+    @Test
+    void rejectsNullOrderIds() throws Exception {
+        OrderResponseService service = service(OrderFixtures.catalog(), orders -> {});
+
+        StepVerifier.create(Flux.from(service.generateOrderResponseBody("rq", null, Arrays.asList(1L, null), null,
+                        JsonFormat.COMPACT, DefaultDataBufferFactory.sharedInstance)))
+                .expectErrorSatisfies(error -> assertThat(((ResponseStatusException) error).getStatusCode().value())
+                        .isEqualTo(400))
+                .verify();
+    }
+
+    /**
+     * Сравнивает тела одних и тех же запросов, сгенерированные одним буфером и в режиме, заданном настройкой.
+     */
+    private static void assertSameBody(Consumer<EmulatorConfig.Orders> mode) throws Exception {
+        Path catalog = OrderFixtures.catalog();
+        OrderResponseService single = service(catalog, orders -> orders.setParallelThreshold(0));
+        OrderResponseService other = service(catalog, mode);
+        try {
+            for (JsonFormat format : JsonFormat.values()) {
+                for (int limit : new int[] {0, 1, 100}) {
+                    assertSameBody(single, other, format, null, limit);
+                }
+                assertSameBody(single, other, format, List.of(5L, 3L, 9L, 3L), null);
+            }
+        } finally {
+            single.stop();
+            other.stop();
+        }
+    }
+
+    /**
+     * Время ответа форматируется с точностью до секунды, поэтому при смене секунды сравнение повторяется.
+     */
+    private static void assertSameBody(OrderResponseService single, OrderResponseService other, JsonFormat format,
+                                       List<Long> orderIds, Integer limit) {
+        String expected = null;
+        String actual = null;
+        for (int attempt = 0; attempt < 3; attempt++) {
+            expected = body(single, format, orderIds, limit);
+            actual = body(other, format, orderIds, limit);
+            if (expected.equals(body(single, format, orderIds, limit))) {
+                break;
+            }
+        }
+        assertThat(actual).as("%s %s limit %s", format, orderIds, limit).isEqualTo(expected);
+    }
+
+    private static String body(OrderResponseService service, JsonFormat format, List<Long> orderIds, Integer limit) {
+        return OrderFixtures.body(service.generateOrderResponseBody("rq-1", 100L, orderIds, limit, format,
+                DefaultDataBufferFactory.sharedInstance));
+    }
+
+    private static OrderResponseService service(Path catalog, Consumer<EmulatorConfig.Orders> orders) {
+        EmulatorConfig config = OrderFixtures.config(catalog);
+        orders.accept(config.getOrders());
+        return new OrderFixtures.Services(config).orderResponseService;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.emulator.service;
+
+import com.example.emulator.config.JacksonConfig;
+import com.example.emulator.dto.Cpn;
+import com.example.emulator.dto.OrderResponse;
+import com.example.emulator.dto.OrderResponse.OrderResponseData;
+import com.example.emulator.dto.OrderResponse.OrderResponseData.Order;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderResponseWriterTest {
+    private static final JacksonConfig JACKSON_CONFIG = new JacksonConfig();
+    private static final CpnCatalog CATALOG = CpnCatalog.of(List.of(
+            new Cpn(1001L, "500001", "Покажите промокод на кассе", "Скидка \"не\" суммируется",
+                    77L, "crm-1", List.of(new Cpn.CpnOffer(9001L, "8001", 10))),
+            new Cpn(1002L, "500002", "use", "conditions/with/slashes",
+                    78L, "crm-2", List.of(new Cpn.CpnOffer(9002L, "8002", 20), new Cpn.CpnOffer(9003L, "8003", 30)))));
+    private static final OrderResponseData.OrderResponseFilters FILTERS =
+            new OrderResponseData.OrderResponseFilters(3, "coupon", 100L, null);
+    private static final OrderResponseData.OrderResponseStats STATS = new OrderResponseData.OrderResponseStats(
+            new OrderResponseData.OrderResponseStats.OrderResponseCouponStats(
+                    new OrderResponseData.OrderResponseStats.OrderResponseCouponStats.LastOrder(
+                            110L, "2024-01-01T00:00:00+03:00")));
+    private static final String TIMESTAMP = "2024-01-02T03:04:05+03:00";
+
+    @Test
+    void prettyBodyMatchesMapperForZeroOneAndManyOrders() throws Exception {
+        ObjectMapper mapper = JACKSON_CONFIG.objectMapper();
+        for (int limit : new int[] {0, 1, 5}) {
+            assertWriterMatchesMapper(mapper, limit);
+        }
+    }
+
+    @Test
+    void compactBodyMatchesMapperForZeroOneAndManyOrders() throws Exception {
+        ObjectMapper mapper = JACKSON_CONFIG.compactObjectMapper();
+        for (int limit : new int[] {0, 1, 5}) {
+            assertWriterMatchesMapper(mapper, limit);
+        }
+    }
+
+    @Test
+    void escapesDynamicValuesLikeMapper() throws Exception {
+        ObjectMapper mapper = JACKSON_CONFIG.compactObjectMapper();
+        OrderResponseWriter writer = new OrderResponseWriter(mapper, OrderResponseWriterTest::templateOrder);
+        List<Order> orders = List.of(order(CATALOG.get(0), Long.MIN_VALUE, "клиент \"1\"", "a\\b\tc",
+                "ключ/\u0001", "2024-01-01T00:00:00+03:00"));
+
+        byte[] expected = mapper.writeValueAsBytes(response(orders));
+        byte[] actual = write(writer, orders, new int[] {0});
+
+        assertThat(new String(actual, StandardCharsets.UTF_8)).isEqualTo(new String(expected, StandardCharsets.UTF_8));
+    }
+
+    private static void assertWriterMatchesMapper(ObjectMapper mapper, int limit) throws Exception {
+        OrderResponseWriter writer = new OrderResponseWriter(mapper, OrderResponseWriterTest::templateOrder);
+        List<Order> orders = new ArrayList<>();
+        int[] cpnIndexes = new int[limit];
+        for (int i = 0; i < limit; i++) {
+            cpnIndexes[i] = i % CATALOG.size();
+            orders.add(order(CATALOG.get(cpnIndexes[i]), 100L + i, Integer.toString(1000 * i),
+                    "2024-01-02T03:04:0" + i + "+03:00", "00000000-0000-4000-8000-00000000000" + i,
+                    "2024-01-01T03:04:05+03:00"));
+        }
+
+        byte[] expected = mapper.writeValueAsBytes(response(orders));
+        byte[] actual = write(writer, orders, cpnIndexes);
+
+        assertThat(new String(actual, StandardCharsets.UTF_8))
+                .as("limit %d", limit)
+                .isEqualTo(new String(expected, StandardCharsets.UTF_8));
+    }
+
+    private static byte[] write(OrderResponseWriter writer, List<Order> orders, int[] cpnIndexes) {
+        OrderResponseWriter.Envelope envelope = writer.envelope(response(List.of()));
+        DataBuffer buffer = DefaultDataBufferFactory.sharedInstance.allocateBuffer(1024);
+        writer.writeHead(buffer, envelope, orders.size());
+        OrderResponseWriter.OrderValues values = new OrderResponseWriter.OrderValues();
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            values.set(order.orderId(), order.clientId(), order.payDatetime(), order.reserveKey(),
+                    order.product().offer().promocodes().get(0).endDateTime());
+            writer.writeOrder(buffer, CATALOG, cpnIndexes[i], i, values);
+        }
+        writer.writeTail(buffer, envelope, orders.size());
+        byte[] bytes = new byte[buffer.readableByteCount()];
+        buffer.read(bytes);
+        return bytes;
+    }
+
+    private static OrderResponse response(List<Order> orders) {
+        return new OrderResponse("success", List.of(), new OrderResponseData(FILTERS, STATS, TIMESTAMP, orders));
+    }
+
+    private static Order templateOrder(Cpn cpn) {
+        return order(cpn, OrderResponseWriter.ORDER_ID_PLACEHOLDER, OrderResponseWriter.CLIENT_ID_PLACEHOLDER,
+                OrderResponseWriter.ORDER_TIME_PLACEHOLDER, OrderResponseWriter.RESERVE_KEY_PLACEHOLDER,
+                OrderResponseWriter.END_DATE_TIME_PLACEHOLDER);
+    }
+
+    private static Order order(Cpn cpn, long orderId, String clientId, String orderTime, String reserveKey,
+                               String endDateTime) {
+        Cpn.CpnOffer offer = cpn.offers().get(0);
+        return new Order(orderId, clientId, null, orderId, null, "success", "https://rules.pdf", "web", null, true,
+                "spsBonuses", orderTime, 1, new Order.TotalAmount(null, 100), orderTime, "coupon",
+                "https://combined.pdf", reserveKey,
+                new Order.Product(Long.parseLong(cpn.omniId()), cpn.id(), cpn.conditions(), cpn.use(),
+                        new Order.Product.Partner(String.valueOf(cpn.partnerOmniId()), cpn.partnerCrmId()),
+                        new Order.Product.Offer(Long.parseLong(offer.omniId()), offer.id(), offer.price(),
+                                List.of(new Order.Promocode("CODE123", null, null, null, 0, 1234, endDateTime)))));
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.emulator.service;
+
+import com.example.emulator.config.EmulatorConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderStoreTest {
+
+    private static OrderStore store(int capacity) {
+        EmulatorConfig config = new EmulatorConfig();
+        config.getOrders().setStateful(true);
+        config.getOrders().setStoreCapacity(capacity);
+        return new OrderStore(config, new SimpleMeterRegistry());
+    }
+
+    /** Значения заказа, по которым видно, каким потоком и для какого id он записан */
+    private static OrderStore.Entry entry(long orderId, int writer) {
+        return new OrderStore.Entry().set(orderId * 31 + writer, writer, orderId, ~orderId, 1_700_000_000L + writer);
+    }
+
+    private static void assertEntry(OrderStore.Entry entry, long orderId) {
+        int writer = entry.clientId();
+        assertThat(entry.cpnId()).isEqualTo(orderId * 31 + writer);
+        assertThat(entry.reserveKeyMsb()).isEqualTo(orderId);
+        assertThat(entry.reserveKeyLsb()).isEqualTo(~orderId);
+        assertThat(entry.createdAt()).isEqualTo(1_700_000_000L + writer);
+    }
+
+    @Test
+    void disabledStoreIsEmpty() {
+        OrderStore store = new OrderStore(new EmulatorConfig(), new SimpleMeterRegistry());
+
+        assertThat(store.isEnabled()).isFalse();
+        assertThat(store.size()).isZero();
+        assertThat(store.lastOrderId()).isEqualTo(Long.MIN_VALUE);
+    }
+
+    @Test
+    void returnsStoredOrderInsteadOfNewValues() {
+        OrderStore store = store(1000);
+
+        assertThat(store.getOrPut(42L, entry(42L, 1))).isTrue();
+        OrderStore.Entry repeated = entry(42L, 2);
+        assertThat(store.getOrPut(42L, repeated)).isFalse();
+
+        assertThat(repeated.clientId()).isEqualTo(1);
+        assertEntry(repeated, 42L);
+        OrderStore.Entry found = new OrderStore.Entry();
+        assertThat(store.get(42L, found)).isTrue();
+        assertEntry(found, 42L);
+        assertThat(store.get(43L, found)).isFalse();
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.lastOrderId()).isEqualTo(42L);
+    }
+
+    @Test
+    void evictsWhenFilledPastCapacity() {
+        int capacity = OrderStore.SEGMENTS * 8;
+        OrderStore store = store(capacity);
+        int orders = capacity * 20;
+        for (long id = 1; id <= orders; id++) {
+            assertThat(store.getOrPut(id, entry(id, 0))).isTrue();
+        }
+
+        assertThat(store.size()).isLessThanOrEqualTo(capacity).isPositive();
+        assertThat(store.lastOrderId()).isEqualTo(orders);
+        // Удаление из середины цепочки пробирования не должно терять оставшиеся записи
+        int found = 0;
+        OrderStore.Entry entry = new OrderStore.Entry();
+        for (long id = 1; id <= orders; id++) {
+            if (store.get(id, entry)) {
+                assertEntry(entry, id);
+                found++;
+            }
+        }
+        assertThat((long) found).isEqualTo(store.size());
+    }
+
+    @Test
+    void keepsProbeChainsAfterInterleavedEvictions() {
+        OrderStore store = store(OrderStore.SEGMENTS * 16);
+        OrderStore.Entry entry = new OrderStore.Entry();
+        for (long id = 0; id < 50_000; id++) {
+            store.getOrPut(id * 7919, entry(id * 7919, 0));
+            if (id % 3 == 0) {
+                // Чтение отмечает запись, и CLOCK выбирает другие ячейки цепочки
+                store.get((id / 2) * 7919, entry);
+            }
+        }
+
+        int found = 0;
+        for (long id = 0; id < 50_000; id++) {
+            if (store.get(id * 7919, entry)) {
+                assertEntry(entry, id * 7919);
+                found++;
+            }
+        }
+        assertThat((long) found).isEqualTo(store.size());
+    }
+
+    @Test
+    void concurrentWritersSeeTheFirstStoredOrder() throws Exception {
+        int threads = 4;
+        int orders = 20_000;
+        OrderStore store = store(orders * 2);
+        int[][] seen = new int[threads][orders];
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int writer = t;
+                futures.add(executor.submit(() -> {
+                    OrderStore.Entry read = new OrderStore.Entry();
+                    for (int i = 0; i < orders; i++) {
+                        // Потоки проходят ключи в разном порядке, чтобы чтение шло параллельно с записью
+                        long id = writer % 2 == 0 ? i : orders - 1 - i;
+                        OrderStore.Entry entry = entry(id, writer);
+                        store.getOrPut(id, entry);
+                        assertEntry(entry, id);
+                        seen[writer][(int) id] = entry.clientId();
+                        long other = (id * 13) % orders;
+                        if (store.get(other, read)) {
+                            assertEntry(read, other);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(store.size()).isEqualTo(orders);
+        OrderStore.Entry entry = new OrderStore.Entry();
+        for (int id = 0; id < orders; id++) {
+            assertThat(store.get(id, entry)).isTrue();
+            for (int t = 0; t < threads; t++) {
+                assertThat(seen[t][id]).isEqualTo(entry.clientId());
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.emulator.service;
+
+import com.example.emulator.config.JacksonConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReplayStoreTest {
+    private static final ObjectMapper OBJECT_MAPPER = new JacksonConfig().objectMapper();
+
+    /** Ключи с одинаковым хэшем FNV-1a для пути /replay, подобраны перебором */
+    private static final String COLLIDING_KEY = "Q0b2duM3rNE";
+    private static final String OTHER_COLLIDING_KEY = "G8LMmZAMVNB";
+
+    private static ReplayStore load(String... lines) throws IOException {
+        Path file = Files.createTempFile("replay-test-", ".jsonl");
+        file.toFile().deleteOnExit();
+        Files.writeString(file, String.join("\n", lines) + "\n", StandardCharsets.UTF_8);
+        return ReplayStore.load(file, OBJECT_MAPPER);
+    }
+
+    private static String body(ReplayStore.Response response) {
+        ByteBuffer body = response.body();
+        byte[] bytes = new byte[body.remaining()];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void findsRecordedResponses() throws Exception {
+        ReplayStore store = load(
+                "{\"path\": \"/orders\", \"key\": \"rq-1\", \"status\": 201, \"latency_ms\": 87.5,"
+                        + " \"headers\": {\"X-Trace\": \"t1\", \"Content-Length\": \"10\"}, \"body\": {\"id\": 1}}",
+                "{\"path\": \"/orders\", \"key\": \"ключ\", \"body\": [1, 2]}");
+
+        ReplayStore.Response response = store.find("/orders", "rq-1");
+        assertThat(response.status()).isEqualTo(201);
+        assertThat(response.latency()).isEqualTo(Duration.ofMillis(87).plusNanos(500_000));
+        assertThat(response.headers().getFirst("X-Trace")).isEqualTo("t1");
+        assertThat(response.headers().getContentLength()).isEqualTo(-1);
+        assertThat(body(response)).isEqualTo("{\"id\": 1}");
+        assertThat(body(store.find("/orders", "ключ"))).isEqualTo("[1, 2]");
+        assertThat(store.find("/orders", "ключ").status()).isEqualTo(200);
+
+        assertThat(store.find("/orders", "rq-2")).isNull();
+        assertThat(store.find("/order", "rq-1")).isNull();
+        assertThat(store.find("/orders", "rq-")).isNull();
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.duplicates()).isZero();
+    }
+
+    @Test
+    void keepsFirstRecordOfRepeatedPair() throws Exception {
+        ReplayStore store = load(
+                "{\"path\": \"/orders\", \"key\": \"rq-1\", \"body\": {\"n\": 1}}",
+                "{\"path\": \"/orders\", \"key\": \"rq-1\", \"body\": {\"n\": 2}}",
+                "{\"path\": \"/emulate\", \"key\": \"rq-1\", \"body\": {\"n\": 3}}");
+
+        assertThat(body(store.find("/orders", "rq-1"))).isEqualTo("{\"n\": 1}");
+        assertThat(body(store.find("/emulate", "rq-1"))).isEqualTo("{\"n\": 3}");
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.duplicates()).isEqualTo(1);
+    }
+
+    @Test
+    void servesStringBodyWithoutQuotes() throws Exception {
+        ReplayStore store = load(
+                "{\"path\": \"/text\", \"key\": \"k\", \"body\": \"plain text\"}",
+                "{\"path\": \"/json\", \"key\": \"k\", \"body\": {\"text\": \"plain text\"}}",
+                "{\"path\": \"/empty\", \"key\": \"k\", \"body\": null}");
+
+        ReplayStore.Response text = store.find("/text", "k");
+        assertThat(body(text)).isEqualTo("plain text");
+        assertThat(text.headers().getContentType()).isEqualTo(MediaType.parseMediaType("text/plain;charset=UTF-8"));
+        ReplayStore.Response json = store.find("/json", "k");
+        assertThat(body(json)).isEqualTo("{\"text\": \"plain text\"}");
+        assertThat(json.headers().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(body(store.find("/empty", "k"))).isEmpty();
+    }
+
+    @Test
+    void rejectsEscapeSequences() {
+        assertThatThrownBy(() -> load("{\"path\": \"/orders\", \"key\": \"rq\\u002d1\", \"body\": {}}"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("key with escape sequences");
+        assertThatThrownBy(() -> load("{\"path\": \"\\/orders\", \"key\": \"rq-1\", \"body\": {}}"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("path with escape sequences");
+        assertThatThrownBy(() -> load("{\"path\": \"/orders\", \"key\": \"rq-1\", \"body\": \"line\\nline\"}"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("escape sequences");
+    }
+
+    @Test
+    void separatesPairsWithCollidingHash() throws Exception {
+        assertThat(ReplayStore.hash("/replay", COLLIDING_KEY))
+                .isEqualTo(ReplayStore.hash("/replay", OTHER_COLLIDING_KEY));
+
+        ReplayStore store = load(
+                "{\"path\": \"/replay\", \"key\": \"" + COLLIDING_KEY + "\", \"body\": {\"n\": 1}}",
+                "{\"path\": \"/replay\", \"key\": \"" + OTHER_COLLIDING_KEY + "\", \"body\": {\"n\": 2}}",
+                "{\"path\": \"/replay\", \"key\": \"" + OTHER_COLLIDING_KEY + "\", \"body\": {\"n\": 3}}");
+
+        assertThat(body(store.find("/replay", COLLIDING_KEY))).isEqualTo("{\"n\": 1}");
+        assertThat(body(store.find("/replay", OTHER_COLLIDING_KEY))).isEqualTo("{\"n\": 2}");
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.collisions()).isEqualTo(1);
+        assertThat(store.duplicates()).isEqualTo(1);
+    }
+}
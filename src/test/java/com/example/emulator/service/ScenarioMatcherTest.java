@@ -0,0 +1,93 @@
+package com.example.emulator.service;
+
+import com.example.emulator.dto.ScenarioRules;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScenarioMatcherTest {
+    private static final ScenarioRules.Action ERROR =
+            new ScenarioRules.Action(ScenarioRules.ActionType.ERROR, null, 500, null, null, null, null, null);
+
+    private static ScenarioRules.Rule rule(String name, String path, String method, Map<String, String> headers) {
+        return new ScenarioRules.Rule(name, path, method, headers, null, null, ERROR);
+    }
+
+    private static ScenarioMatcher compile(ScenarioRules.Rule... rules) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        return ScenarioMatcher.compile(new ScenarioRules(Arrays.asList(rules)),
+                (name, type) -> Counter.builder("scenario").tag("rule", name).register(registry));
+    }
+
+    private static String match(ScenarioMatcher matcher, String method, String path, String requestId) {
+        HttpHeaders headers = new HttpHeaders();
+        if (requestId != null) {
+            headers.set(ScenarioMatcher.REQUEST_ID_HEADER, requestId);
+        }
+        Scenario scenario = matcher.match(method, path, headers, null, new SplittableRandom(1));
+        return scenario != null ? scenario.getName() : null;
+    }
+
+    @Test
+    void prefixMatchesOnlyOnSegmentBoundary() {
+        ScenarioMatcher matcher = compile(rule("cpn", "/api/cpn/**", null, null));
+
+        assertThat(match(matcher, "POST", "/api/cpn", null)).isEqualTo("cpn");
+        assertThat(match(matcher, "POST", "/api/cpn/orders", null)).isEqualTo("cpn");
+        assertThat(match(matcher, "POST", "/api/cpns", null)).isNull();
+        assertThat(match(matcher, "POST", "/api/cpnx/orders", null)).isNull();
+    }
+
+    @Test
+    void prefixRulesApplyToPathsWithExactRules() {
+        ScenarioMatcher matcher = compile(
+                rule("exact-get", "/api/cpn/orders", "GET", null),
+                rule("prefix", "/api/cpn/**", null, null),
+                rule("other", "/api/cpns", null, null));
+
+        assertThat(match(matcher, "GET", "/api/cpn/orders", null)).isEqualTo("exact-get");
+        assertThat(match(matcher, "POST", "/api/cpn/orders", null)).isEqualTo("prefix");
+        assertThat(match(matcher, "POST", "/api/cpns", null)).isEqualTo("other");
+    }
+
+    @Test
+    void firstRuleInFileOrderWins() {
+        ScenarioMatcher matcher = compile(
+                rule("any-post", null, "post", null),
+                rule("prefix", "/api/**", null, null),
+                rule("exact", "/api/orders", null, null));
+
+        assertThat(match(matcher, "POST", "/api/orders", null)).isEqualTo("any-post");
+        assertThat(match(matcher, "GET", "/api/orders", null)).isEqualTo("prefix");
+        assertThat(match(matcher, "GET", "/health", null)).isNull();
+    }
+
+    @Test
+    void requestIdRulesKeepFileOrder() {
+        ScenarioMatcher matcher = compile(
+                rule("pattern", "/api/orders", null, Map.of("RqUID", "^fail-.*")),
+                rule("literal", "/api/orders", null, Map.of("RqUID", "fail-42")),
+                rule("literal-first", null, null, Map.of("RqUID", "slow-1")),
+                rule("pattern-second", null, null, Map.of("RqUID", "^slow-.*")));
+
+        assertThat(match(matcher, "POST", "/api/orders", "fail-42")).isEqualTo("pattern");
+        assertThat(match(matcher, "POST", "/api/orders", "slow-1")).isEqualTo("literal-first");
+        assertThat(match(matcher, "POST", "/api/orders", "slow-2")).isEqualTo("pattern-second");
+        assertThat(match(matcher, "POST", "/api/orders", null)).isNull();
+    }
+
+    @Test
+    void emptyRulesMatchNothing() {
+        ScenarioMatcher matcher = compile();
+
+        assertThat(matcher.isEmpty()).isTrue();
+        assertThat(match(matcher, "GET", "/api/orders", "fail-42")).isNull();
+    }
+}